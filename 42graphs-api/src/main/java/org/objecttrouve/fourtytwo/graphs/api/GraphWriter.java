@@ -24,10 +24,75 @@
 
 package org.objecttrouve.fourtytwo.graphs.api;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
 public interface GraphWriter {
-    void commit();
+    /** @return what was written, or {@code null} if the writer doesn't keep track */
+    IngestSummary commit();
 
     <T, U>GraphWriter add(SequenceTree<T, U> sequenceTree);
 
+    /**
+     * Adds a nested tree with all its subtrees, each subtree before its root is related to the parent.
+     * Writers that don't know better collect the roots of the subtrees and add them as a {@link SequenceTree} in the end.
+     */
+    default <T, U> GraphWriter add(final NestedTree<T, U> nestedTree) {
+        final List<Value<U>> children = new ArrayList<>();
+        final Iterator<? extends Tree<U>> subtrees = nestedTree.getSubtrees();
+        while (subtrees.hasNext()) {
+            final Tree<U> subtree = subtrees.next();
+            if (!subtree.getParentDimension().getName().equals(nestedTree.getChildDimension().getName())) {
+                throw new IllegalArgumentException("Subtree in dimension " + subtree.getParentDimension().getName() + " below " + nestedTree.getChildDimension().getName() + " children.");
+            }
+            if (subtree instanceof NestedTree) {
+                add((NestedTree<U, ?>) subtree);
+            } else {
+                add((SequenceTree<U, ?>) subtree);
+            }
+            children.add(subtree.getRoot());
+        }
+        return add(new SequenceTree<T, U>() {
+            @Override
+            public Value<T> getRoot() {
+                return nestedTree.getRoot();
+            }
+
+            @Override
+            public Dimension getParentDimension() {
+                return nestedTree.getParentDimension();
+            }
+
+            @Override
+            public Dimension getChildDimension() {
+                return nestedTree.getChildDimension();
+            }
+
+            @Override
+            public List<Value<U>> getValues() {
+                return children;
+            }
+        });
+    }
+
+    /**
+     * Adds many trees at once, in iteration order.
+     * Writers may batch them internally, so nothing is guaranteed to be visible before this method returns.
+     */
+    default GraphWriter addAll(final Iterable<? extends SequenceTree<?, ?>> sequenceTrees) {
+        for (final SequenceTree<?, ?> sequenceTree : sequenceTrees) {
+            add(sequenceTree);
+        }
+        return this;
+    }
+
+    /** Like {@link #addAll(Iterable)}, consuming the stream in encounter order. */
+    default GraphWriter addAll(final Stream<? extends SequenceTree<?, ?>> sequenceTrees) {
+        final Stream<SequenceTree<?, ?>> trees = sequenceTrees.map(t -> t);
+        return addAll(trees::iterator);
+    }
+
     void abort();
 }
@@ -0,0 +1,72 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 objecttrouve.org <un.object.trouve@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.objecttrouve.fourtytwo.graphs.api;
+
+/**
+ * What a {@link GraphWriter} did between its creation and {@link GraphWriter#commit()}.
+ * Node and relationship counts are what the writer created, not what it was given.
+ */
+public interface IngestSummary {
+
+    long getTrees();
+
+    long getNodes();
+
+    long getRelationships();
+
+    /** Lookups of root and child identifiers, i.e. one per root and one per child. */
+    long getDictionaryLookups();
+
+    /** Lookups that found a node, either one created earlier by the writer or one already in the store. */
+    default long getDictionaryHits() {
+        return getDictionaryLookups() - getDictionaryMisses();
+    }
+
+    /**
+     * Lookups that had to create a node, which is the same as {@link #getNodes()}
+     * unless the writer merges parts with their own dictionaries, where a node can be a miss in more than one part.
+     */
+    default long getDictionaryMisses() {
+        return getNodes();
+    }
+
+    /** Estimated heap held by the writer's identifier dictionary at the end, {@code 0} if it has none. */
+    long getDictionaryBytes();
+
+    /**
+     * Number of trees by their number of children.
+     * Bucket {@code 0} counts trees without children, bucket {@code i} those with {@code 2^(i-1)} to {@code 2^i - 1}.
+     */
+    long[] getTreeLengthHistogram();
+
+    /** Time spent inside the writer, including commit. */
+    long getStoreNanos();
+
+    /** Time spent by the caller between calls to the writer. */
+    long getCallerNanos();
+
+    /** Time from the writer's creation to the end of its commit. */
+    long getElapsedNanos();
+}
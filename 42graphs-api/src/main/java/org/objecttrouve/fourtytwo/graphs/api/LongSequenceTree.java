@@ -0,0 +1,48 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 objecttrouve.org <un.object.trouve@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.objecttrouve.fourtytwo.graphs.api;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link SequenceTree} with {@code long} identifiers in the child dimension.
+ * Writers that know this type read the identifiers from {@link #getIdentifiers()} without boxing them.
+ */
+public interface LongSequenceTree<T> extends SequenceTree<T, Long> {
+
+    /** The identifiers of the children, in sequence order. Not to be modified by the caller. */
+    long[] getIdentifiers();
+
+    @Override
+    default List<Value<Long>> getValues() {
+        final long[] identifiers = getIdentifiers();
+        final List<Value<Long>> values = new ArrayList<>(identifiers.length);
+        for (final long identifier : identifiers) {
+            values.add(() -> identifier);
+        }
+        return values;
+    }
+}
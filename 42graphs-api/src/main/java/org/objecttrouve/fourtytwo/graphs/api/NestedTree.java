@@ -0,0 +1,43 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 objecttrouve.org <un.object.trouve@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.objecttrouve.fourtytwo.graphs.api;
+
+import java.util.Iterator;
+
+/**
+ * A tree of more than two levels, like a document of sentences of tokens.
+ * Its children are the roots of its subtrees, in sequence order.
+ * The subtrees are handed out one by one, so that a writer can go through the hierarchy in one pass,
+ * without all of it in memory.
+ */
+public interface NestedTree<T, U> extends Tree<T> {
+
+    /**
+     * The subtrees, one per child in sequence order, each a {@link SequenceTree} or a {@link NestedTree}
+     * with the {@link #getChildDimension()} of this tree as parent dimension.
+     * Only to be iterated once.
+     */
+    Iterator<? extends Tree<U>> getSubtrees();
+}
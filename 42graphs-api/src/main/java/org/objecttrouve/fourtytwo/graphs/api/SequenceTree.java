@@ -26,9 +26,6 @@ package org.objecttrouve.fourtytwo.graphs.api;
 
 import java.util.List;
 
-public interface SequenceTree<T, U> {
-    Value<T> getRoot();
-    Dimension getParentDimension();
-    Dimension getChildDimension();
+public interface SequenceTree<T, U> extends Tree<T> {
     List<Value<U>> getValues();
 }
@@ -26,5 +26,7 @@ package org.objecttrouve.fourtytwo.graphs.api;
 
 public interface Value<T> {
     String idKey = "identifier";
+    /** Optional dense {@code int} id of a string identifier within its dimension. */
+    String symbolKey = "symbol";
     T getIdentifier();
 }
@@ -0,0 +1,159 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 objecttrouve.org <un.object.trouve@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.objecttrouve.fourtytwo.graphs.examples.common;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Maps the input on a pool of threads in batches, and hands the output to the caller in input order on the calling thread.
+ * Only a few batches per thread are in flight at a time, so the input is read as the consumer keeps up.
+ * The function has to be safe to call from several threads, like {@link Tokenizer#process(String)}.
+ */
+public class OrderedPipeline<I, O> {
+
+    private static final int batchSize = 256;
+    private static final AtomicInteger pipelines = new AtomicInteger();
+
+    private final Function<I, O> function;
+    private final int threads;
+
+    public OrderedPipeline(final Function<I, O> function, final int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Need at least one thread.");
+        }
+        this.function = function;
+        this.threads = threads;
+    }
+
+    public void run(final Iterator<? extends I> input, final Consumer<? super O> output) {
+        try (final Output mapped = new Output(input)) {
+            mapped.forEachRemaining(output);
+        }
+    }
+
+    /**
+     * Same as {@link #run(Iterator, Consumer)}, with the output pulled by the caller instead.
+     * The threads go away once the output is exhausted or fails.
+     */
+    public Iterator<O> map(final Iterator<? extends I> input) {
+        return new Output(input);
+    }
+
+    private class Output implements Iterator<O>, AutoCloseable {
+
+        private final Iterator<? extends I> input;
+        private final ExecutorService executor;
+        private final Deque<Future<List<O>>> inFlight = new ArrayDeque<>();
+        private Iterator<O> taken = Collections.emptyIterator();
+
+        private Output(final Iterator<? extends I> input) {
+            this.input = input;
+            final int pipeline = pipelines.incrementAndGet();
+            final AtomicInteger workers = new AtomicInteger();
+            this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+                final Thread thread = new Thread(runnable, OrderedPipeline.class.getSimpleName() + "-" + pipeline + "-" + workers.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!taken.hasNext()) {
+                if (executor.isShutdown()) {
+                    return false;
+                }
+                try {
+                    submit();
+                    if (inFlight.isEmpty()) {
+                        close();
+                        return false;
+                    }
+                    taken = take(inFlight).iterator();
+                } catch (final RuntimeException e) {
+                    close();
+                    throw e;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public O next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return taken.next();
+        }
+
+        /* Keeps a few batches per thread in flight, reading the input as the output is taken. */
+        private void submit() {
+            while (inFlight.size() <= 2 * threads && input.hasNext()) {
+                final List<I> batch = new ArrayList<>(batchSize);
+                while (batch.size() < batchSize && input.hasNext()) {
+                    batch.add(input.next());
+                }
+                inFlight.add(executor.submit(() -> map(batch)));
+            }
+        }
+
+        @Override
+        public void close() {
+            executor.shutdownNow();
+        }
+    }
+
+    private List<O> map(final List<I> batch) {
+        final List<O> mapped = new ArrayList<>(batch.size());
+        for (final I item : batch) {
+            mapped.add(function.apply(item));
+        }
+        return mapped;
+    }
+
+    private static <O> List<O> take(final Deque<Future<List<O>>> inFlight) {
+        try {
+            return inFlight.poll().get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for " + OrderedPipeline.class.getSimpleName() + " output.", e);
+        } catch (final ExecutionException e) {
+            throw new IllegalStateException("Could not process input.", e.getCause());
+        }
+    }
+}
@@ -27,6 +27,7 @@ package org.objecttrouve.fourtytwo.graphs.examples.common;
 import com.google.common.base.Charsets;
 import com.google.common.io.CharStreams;
 
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -34,6 +35,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Optional;
+import java.util.zip.CRC32;
 
 import static java.util.Optional.ofNullable;
 
@@ -61,6 +63,25 @@ public class ResourceFile {
             .orElseThrow(()-> new IllegalArgumentException("Could not load '" + name + "'."));
     }
 
+    /** Reads the file as it goes, rather than all at once like {@link #read()}. */
+    public BufferedReader reader(){
+        return new BufferedReader(new InputStreamReader(inputStream(), Charsets.UTF_8));
+    }
+
+    /** CRC32 of the file's bytes. */
+    public long checksum(){
+        final CRC32 crc = new CRC32();
+        final byte[] buffer = new byte[1 << 16];
+        try (final InputStream in = inputStream()) {
+            for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+                crc.update(buffer, 0, read);
+            }
+        } catch (final IOException e) {
+            throw new RuntimeException("Could not read resource file '" + name + "'.", e);
+        }
+        return crc.getValue();
+    }
+
     public String read(){
         try {
             return CharStreams.toString(new InputStreamReader(
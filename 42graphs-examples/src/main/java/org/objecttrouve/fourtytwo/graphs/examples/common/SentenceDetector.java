@@ -29,14 +29,17 @@ import opennlp.tools.sentdetect.SentenceModel;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Reader;
 
+/**
+ * Thread-safe: each thread gets its own {@link SentenceDetectorME}, which isn't, and they all share the loaded model.
+ */
 public class SentenceDetector {
 
-    private final SentenceDetectorME detector;
-
-    private SentenceDetector(final SentenceDetectorME detector) {
+    private final ThreadLocal<SentenceDetectorME> detector;
 
-        this.detector = detector;
+    private SentenceDetector(final SentenceModel model) {
+        this.detector = ThreadLocal.withInitial(() -> new SentenceDetectorME(model));
     }
 
     public static SentenceDetector load(final String modelFile){
@@ -48,12 +51,15 @@ public class SentenceDetector {
         } catch (final IOException e) {
             throw new RuntimeException("Could not load sentence detector modelFile.", e);
         }
-        //Instantiating the SentenceDetectorME class
-        final SentenceDetectorME detector = new SentenceDetectorME(model);
-        return new SentenceDetector(detector);
+        return new SentenceDetector(model);
     }
 
     public String[] process(final String text){
-        return detector.sentDetect(text);
+        return detector.get().sentDetect(text);
+    }
+
+    /** Detects the sentences while the text is read, see {@link SentenceStream}, which belongs to the calling thread. */
+    public SentenceStream sentences(final Reader text){
+        return new SentenceStream(detector.get(), text, SentenceStream.defaultChunkChars);
     }
 }
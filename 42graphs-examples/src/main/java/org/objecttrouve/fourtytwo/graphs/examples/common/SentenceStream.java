@@ -0,0 +1,129 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 objecttrouve.org <un.object.trouve@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.objecttrouve.fourtytwo.graphs.examples.common;
+
+import opennlp.tools.sentdetect.SentenceDetectorME;
+import opennlp.tools.util.Span;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * The sentences of a text, detected chunk by chunk while the text is read,
+ * so only about a chunk of it is held in memory at a time.
+ * A sentence that ends close to the end of the text read so far may change with what follows,
+ * so it is only handed out once more text has been read behind it.
+ */
+public class SentenceStream implements Iterator<String>, Closeable {
+
+    public static final int defaultChunkChars = 1 << 16;
+    /* Gives the detector enough text after a sentence end to decide on it as it would with all of the text. */
+    private static final int lookahead = 1 << 10;
+
+    private final SentenceDetectorME detector;
+    private final Reader reader;
+    private final char[] chunk;
+    /* Starts with the last sentence handed out, which the detector needs as context before the next one. */
+    private final StringBuilder pending = new StringBuilder();
+    private int handedOut;
+    private final Deque<String> sentences = new ArrayDeque<>();
+    private boolean exhausted;
+
+    SentenceStream(final SentenceDetectorME detector, final Reader reader, final int chunkChars) {
+        if (chunkChars <= lookahead) {
+            throw new IllegalArgumentException("Chunks need to be longer than " + lookahead + " chars.");
+        }
+        this.detector = detector;
+        this.reader = reader;
+        this.chunk = new char[chunkChars];
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (sentences.isEmpty() && !exhausted) {
+            readChunk();
+        }
+        return !sentences.isEmpty();
+    }
+
+    @Override
+    public String next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return sentences.poll();
+    }
+
+    private void readChunk() {
+        try {
+            final int read = reader.read(chunk);
+            if (read < 0) {
+                exhausted = true;
+            } else {
+                pending.append(chunk, 0, read);
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Could not read text.", e);
+        }
+        if (!exhausted && pending.length() < chunk.length) {
+            return;
+        }
+        final String text = pending.toString();
+        int lastStart = -1;
+        for (final Span span : detector.sentPosDetect(text)) {
+            if (span.getEnd() <= handedOut) {
+                continue;
+            }
+            if (!exhausted && span.getEnd() > text.length() - lookahead) {
+                break;
+            }
+            /* The sentence before ends where it ended with the text known back then. */
+            int start = Math.max(span.getStart(), handedOut);
+            while (Character.isWhitespace(text.charAt(start))) {
+                start++;
+            }
+            sentences.add(text.substring(start, span.getEnd()));
+            lastStart = start;
+            handedOut = span.getEnd();
+        }
+        if (exhausted) {
+            pending.setLength(0);
+        } else if (lastStart > 0) {
+            pending.delete(0, lastStart);
+            handedOut -= lastStart;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 objecttrouve.org <un.object.trouve@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.objecttrouve.fourtytwo.graphs.examples.common;
+
+import org.objecttrouve.fourtytwo.graphs.api.Dimension;
+import org.objecttrouve.fourtytwo.graphs.api.NestedTree;
+import org.objecttrouve.fourtytwo.graphs.api.Tree;
+import org.objecttrouve.fourtytwo.graphs.api.Value;
+
+import java.util.Iterator;
+
+/** A tree of subtrees with string identifiers, as they come, e.g. the sentences of a document while they are detected. */
+public class StringNestedTree implements NestedTree<String, String> {
+
+    private final String root;
+    private final String parentDimension;
+    private final String childDimension;
+    private final Iterator<? extends Tree<String>> subtrees;
+
+    public StringNestedTree(final String root, final String parentDimension, final String childDimension, final Iterator<? extends Tree<String>> subtrees) {
+        this.root = root;
+        this.parentDimension = parentDimension;
+        this.childDimension = childDimension;
+        this.subtrees = subtrees;
+    }
+
+    @Override
+    public Value<String> getRoot() {
+        return () -> root;
+    }
+
+    @Override
+    public Dimension getParentDimension() {
+        return () -> parentDimension;
+    }
+
+    @Override
+    public Dimension getChildDimension() {
+        return () -> childDimension;
+    }
+
+    @Override
+    public Iterator<? extends Tree<String>> getSubtrees() {
+        return subtrees;
+    }
+}
@@ -31,21 +31,24 @@ import org.objecttrouve.fourtytwo.graphs.api.Value;
 import java.util.List;
 import java.util.stream.Collectors;
 
-import static java.util.Arrays.asList;
+import static java.util.Arrays.stream;
+import static java.util.Collections.unmodifiableList;
 
 public class StringSequenceTree implements SequenceTree<String, String> {
 
     private final String root;
     private final String parentDimension;
     private final String childDimension;
-    private final List<String> stringSequence;
+    private final List<Value<String>> values;
 
 
     public StringSequenceTree(final String root, final String parentDimension, final String childDimension, final String... strings) {
         this.root = root;
         this.parentDimension = parentDimension;
         this.childDimension = childDimension;
-        this.stringSequence = asList(strings);
+        this.values = unmodifiableList(stream(strings)//
+                .map(StringValue::new)//
+                .collect(Collectors.toList()));
     }
 
     @Override
@@ -64,8 +67,6 @@ public class StringSequenceTree implements SequenceTree<String, String> {
 
     @Override
     public List<Value<String>> getValues() {
-        return stringSequence.stream()//
-                .map(s -> (Value<String>) () -> s)//
-                .collect(Collectors.toList());
+        return values;
     }
 }
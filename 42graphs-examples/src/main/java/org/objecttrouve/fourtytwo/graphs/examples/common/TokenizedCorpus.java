@@ -0,0 +1,247 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 objecttrouve.org <un.object.trouve@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.objecttrouve.fourtytwo.graphs.examples.common;
+
+import org.objecttrouve.fourtytwo.graphs.api.Dimension;
+import org.objecttrouve.fourtytwo.graphs.api.GraphWriter;
+import org.objecttrouve.fourtytwo.graphs.api.NestedTree;
+import org.objecttrouve.fourtytwo.graphs.api.Tree;
+import org.objecttrouve.fourtytwo.graphs.api.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+
+import static java.lang.String.valueOf;
+
+/**
+ * Documents of tokenized sentences, as written by {@link TokenizedCorpusWriter}, read from a memory mapped file,
+ * so that the graph can be built again without sentence detection and tokenization.
+ * The file holds, in this order:
+ * <ul>
+ * <li>a magic number and the format version,</li>
+ * <li>the sentences, each as its number of tokens followed by the tokens' dictionary ids, all as varints,</li>
+ * <li>the dictionary, as the number of tokens followed by each token as varint length and UTF-8 bytes,</li>
+ * <li>the dimensions of documents, sentences and tokens, and the document index,
+ * with each document's name and first sentence,</li>
+ * <li>a footer of fixed length, with the checksum of the source text, where the dictionary and the index start,
+ * and the numbers of sentences and tokens.</li>
+ * </ul>
+ * Sentences are numbered from 1 over all documents, like {@code WarmUpMain} numbers them.
+ * Files of 2 GB and more aren't supported.
+ */
+public class TokenizedCorpus {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenizedCorpus.class);
+
+    static final int magic = 0x34324743;
+    static final int version = 1;
+    private static final int footerBytes = 3 * Long.BYTES + Integer.BYTES + Long.BYTES;
+
+    private final ByteBuffer mapped;
+    private final long sourceChecksum;
+    private final int sentences;
+    private final long tokens;
+    private final String[] dictionary;
+    private final String documentDimension;
+    private final String sentenceDimension;
+    private final String tokenDimension;
+    private final String[] documentNames;
+    private final int[] documentStarts;
+
+    private TokenizedCorpus(final ByteBuffer mapped) throws IOException {
+        this.mapped = mapped;
+        if (mapped.limit() < 2 * Integer.BYTES + footerBytes || mapped.getInt(0) != magic) {
+            throw new IOException("Not a tokenized corpus.");
+        }
+        if (mapped.getInt(Integer.BYTES) != version) {
+            throw new IOException("Tokenized corpus of version " + mapped.getInt(Integer.BYTES) + " instead of " + version + ".");
+        }
+        final ByteBuffer footer = mapped.duplicate();
+        footer.position(mapped.limit() - footerBytes);
+        this.sourceChecksum = footer.getLong();
+        final int dictionaryStart = (int) footer.getLong();
+        final int indexStart = (int) footer.getLong();
+        this.sentences = footer.getInt();
+        this.tokens = footer.getLong();
+
+        final ByteBuffer in = mapped.duplicate();
+        in.position(dictionaryStart);
+        this.dictionary = new String[varint(in)];
+        for (int i = 0; i < dictionary.length; i++) {
+            dictionary[i] = string(in);
+        }
+        in.position(indexStart);
+        this.documentDimension = string(in);
+        this.sentenceDimension = string(in);
+        this.tokenDimension = string(in);
+        final int documents = varint(in);
+        this.documentNames = new String[documents];
+        this.documentStarts = new int[documents + 1];
+        for (int d = 0; d < documents; d++) {
+            documentNames[d] = string(in);
+            documentStarts[d] = varint(in);
+        }
+        documentStarts[documents] = sentences;
+    }
+
+    public static TokenizedCorpus open(final Path file) throws IOException {
+        try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Tokenized corpus " + file + " is too large to be mapped at once.");
+            }
+            /* The mapping stays valid when the channel is closed. */
+            return new TokenizedCorpus(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /** @return the corpus in the file, if it's there, readable and tokenized from the source with the given checksum */
+    public static Optional<TokenizedCorpus> open(final Path file, final long sourceChecksum) {
+        if (!Files.isRegularFile(file)) {
+            return Optional.empty();
+        }
+        try {
+            final TokenizedCorpus corpus = open(file);
+            if (corpus.sourceChecksum != sourceChecksum) {
+                log.info("Tokenized corpus " + file + " is from another source text.");
+                return Optional.empty();
+            }
+            return Optional.of(corpus);
+        } catch (final IOException e) {
+            log.info("Can't use tokenized corpus " + file + ": " + e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    public int sentences() {
+        return sentences;
+    }
+
+    public long tokens() {
+        return tokens;
+    }
+
+    /** Adds each document as a {@link NestedTree} of its sentences. */
+    public GraphWriter writeTo(final GraphWriter writer) {
+        final Iterator<NestedTree<String, String>> documents = documents();
+        while (documents.hasNext()) {
+            writer.add(documents.next());
+        }
+        return writer;
+    }
+
+    /** The documents in order. Each one's sentences have to be gone through before the next document. */
+    public Iterator<NestedTree<String, String>> documents() {
+        final ByteBuffer in = mapped.duplicate();
+        in.position(2 * Integer.BYTES);
+        return new Iterator<NestedTree<String, String>>() {
+            private int document;
+
+            @Override
+            public boolean hasNext() {
+                return document < documentNames.length;
+            }
+
+            @Override
+            public NestedTree<String, String> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                final int d = document++;
+                return new NestedTree<String, String>() {
+                    @Override
+                    public Value<String> getRoot() {
+                        return () -> documentNames[d];
+                    }
+
+                    @Override
+                    public Dimension getParentDimension() {
+                        return () -> documentDimension;
+                    }
+
+                    @Override
+                    public Dimension getChildDimension() {
+                        return () -> sentenceDimension;
+                    }
+
+                    @Override
+                    public Iterator<? extends Tree<String>> getSubtrees() {
+                        return sentences(in, documentStarts[d], documentStarts[d + 1]);
+                    }
+                };
+            }
+        };
+    }
+
+    private Iterator<StringSequenceTree> sentences(final ByteBuffer in, final int first, final int end) {
+        return new Iterator<StringSequenceTree>() {
+            private int sentence = first;
+
+            @Override
+            public boolean hasNext() {
+                return sentence < end;
+            }
+
+            @Override
+            public StringSequenceTree next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                final String[] sentenceTokens = new String[varint(in)];
+                for (int t = 0; t < sentenceTokens.length; t++) {
+                    sentenceTokens[t] = dictionary[varint(in)];
+                }
+                return new StringSequenceTree(valueOf(++sentence), sentenceDimension, tokenDimension, sentenceTokens);
+            }
+        };
+    }
+
+    private static int varint(final ByteBuffer in) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    private static String string(final ByteBuffer in) {
+        final byte[] bytes = new byte[varint(in)];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
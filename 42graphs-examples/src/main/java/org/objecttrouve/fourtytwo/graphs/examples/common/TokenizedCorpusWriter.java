@@ -0,0 +1,170 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 objecttrouve.org <un.object.trouve@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.objecttrouve.fourtytwo.graphs.examples.common;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the sentences of documents as they are tokenized, in the format read by {@link TokenizedCorpus}.
+ * The file only shows up once the writer is {@link #finish() finished}.
+ * Closing it before that throws away what was written, so a run that breaks off doesn't leave half a corpus behind.
+ */
+public class TokenizedCorpusWriter implements Closeable {
+
+    private final Path file;
+    private final Path partial;
+    private final OutputStream out;
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> dictionary = new ArrayList<>();
+    private final List<String> documentNames = new ArrayList<>();
+    /* First sentence of each document. */
+    private final List<Integer> documentStarts = new ArrayList<>();
+    private final String[] dimensions;
+    private final long sourceChecksum;
+    private long position;
+    private int sentences;
+    private long tokenCount;
+    private boolean finished;
+
+    /**
+     * @param sourceChecksum of the text the tokens come from, so that the corpus can tell when it's outdated
+     * @param dimensions of documents, sentences and tokens, in that order
+     */
+    public TokenizedCorpusWriter(final Path file, final long sourceChecksum, final String... dimensions) throws IOException {
+        if (dimensions.length != 3) {
+            throw new IllegalArgumentException("Need the dimensions of documents, sentences and tokens.");
+        }
+        this.file = file;
+        this.partial = file.resolveSibling(file.getFileName() + ".partial");
+        this.out = new BufferedOutputStream(Files.newOutputStream(partial), 1 << 16);
+        this.dimensions = dimensions;
+        this.sourceChecksum = sourceChecksum;
+        writeInt(TokenizedCorpus.magic);
+        writeInt(TokenizedCorpus.version);
+    }
+
+    /** Starts a document, which all following sentences belong to. */
+    public void document(final String name) {
+        documentNames.add(name);
+        documentStarts.add(sentences);
+    }
+
+    public void sentence(final String[] tokens) throws IOException {
+        if (documentNames.isEmpty()) {
+            throw new IllegalStateException("Sentence outside of a document.");
+        }
+        writeVarint(tokens.length);
+        for (final String token : tokens) {
+            Integer id = ids.get(token);
+            if (id == null) {
+                id = dictionary.size();
+                ids.put(token, id);
+                dictionary.add(token);
+            }
+            writeVarint(id);
+        }
+        sentences++;
+        tokenCount += tokens.length;
+    }
+
+    /** Writes the dictionary, the document index and the footer after the token stream, and moves the file into place. */
+    public void finish() throws IOException {
+        final long dictionaryStart = position;
+        writeVarint(dictionary.size());
+        for (final String token : dictionary) {
+            writeString(token);
+        }
+        final long indexStart = position;
+        for (final String dimension : dimensions) {
+            writeString(dimension);
+        }
+        writeVarint(documentNames.size());
+        for (int d = 0; d < documentNames.size(); d++) {
+            writeString(documentNames.get(d));
+            writeVarint(documentStarts.get(d));
+        }
+        writeLong(sourceChecksum);
+        writeLong(dictionaryStart);
+        writeLong(indexStart);
+        writeInt(sentences);
+        writeLong(tokenCount);
+        out.close();
+        Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING);
+        finished = true;
+    }
+
+    /** Deletes the partial file, unless the writer was finished. */
+    @Override
+    public void close() throws IOException {
+        if (finished) {
+            return;
+        }
+        try {
+            out.close();
+        } finally {
+            Files.deleteIfExists(partial);
+        }
+    }
+
+    private void writeString(final String string) throws IOException {
+        final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        writeVarint(bytes.length);
+        out.write(bytes);
+        position += bytes.length;
+    }
+
+    private void writeVarint(int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            position++;
+            value >>>= 7;
+        }
+        out.write(value);
+        position++;
+    }
+
+    private void writeInt(final int value) throws IOException {
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            out.write(value >>> shift);
+        }
+        position += 4;
+    }
+
+    private void writeLong(final long value) throws IOException {
+        writeInt((int) (value >>> 32));
+        writeInt((int) value);
+    }
+}
@@ -28,24 +28,27 @@ import opennlp.tools.tokenize.TokenizerME;
 import opennlp.tools.tokenize.TokenizerModel;
 import java.io.IOException;
 
+/**
+ * Thread-safe: each thread gets its own {@link TokenizerME}, which isn't, and they all share the loaded model.
+ */
 public class Tokenizer {
 
-    private final TokenizerME tokenizerME;
+    private final ThreadLocal<TokenizerME> tokenizerME;
 
     public static Tokenizer load(final String modelName){
         try {
-          return  new Tokenizer(new TokenizerME(new TokenizerModel(ResourceFile.file(modelName).inputStream())));
+          return  new Tokenizer(new TokenizerModel(ResourceFile.file(modelName).inputStream()));
         } catch (final IOException e) {
             throw new RuntimeException("Could not load tokenizer model.", e);
         }
     }
 
-    private Tokenizer(final TokenizerME tokenizerME) {
-        this.tokenizerME = tokenizerME;
+    private Tokenizer(final TokenizerModel model) {
+        this.tokenizerME = ThreadLocal.withInitial(() -> new TokenizerME(model));
     }
 
     public String[] process(final String text){
-        return tokenizerME.tokenize(text);
+        return tokenizerME.get().tokenize(text);
     }
 
 }
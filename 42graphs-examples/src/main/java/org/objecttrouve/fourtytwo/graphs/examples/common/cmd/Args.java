@@ -37,6 +37,9 @@ public class Args {
     @Parameter(names = {"--clean", "-c"}, description="Clean storage directory upfront.")
     private boolean clean;
 
+    @Parameter(names = {"--threads", "-t"}, description="Threads for preprocessing the text.")
+    private int threads = Runtime.getRuntime().availableProcessors();
+
     public Path outputDirectory(){
         return Paths.get(outputDirectory);
     }
@@ -44,4 +47,8 @@ public class Args {
     public boolean isClean() {
         return clean;
     }
+
+    public int threads() {
+        return threads;
+    }
 }
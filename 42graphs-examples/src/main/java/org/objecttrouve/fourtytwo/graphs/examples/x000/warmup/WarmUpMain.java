@@ -24,16 +24,20 @@
 
 package org.objecttrouve.fourtytwo.graphs.examples.x000.warmup;
 
-import com.google.common.collect.Lists;
-import org.neo4j.graphdb.GraphDatabaseService;
+import com.google.common.collect.Iterators;
 import org.neo4j.unsafe.batchinsert.BatchInserters;
-import org.objecttrouve.fourtytwo.graphs.api.Graph;
 import org.objecttrouve.fourtytwo.graphs.api.GraphWriter;
-import org.objecttrouve.fourtytwo.graphs.api.SequenceTree;
+import org.objecttrouve.fourtytwo.graphs.backend.init.BackendSettings;
 import org.objecttrouve.fourtytwo.graphs.backend.init.EmbeddedBackend;
+import org.objecttrouve.fourtytwo.graphs.examples.common.OrderedPipeline;
+import org.objecttrouve.fourtytwo.graphs.examples.common.ResourceFile;
 import org.objecttrouve.fourtytwo.graphs.examples.common.SentenceDetector;
+import org.objecttrouve.fourtytwo.graphs.examples.common.SentenceStream;
+import org.objecttrouve.fourtytwo.graphs.examples.common.StringNestedTree;
 import org.objecttrouve.fourtytwo.graphs.examples.common.StringSequenceTree;
 import org.objecttrouve.fourtytwo.graphs.examples.common.Tokenizer;
+import org.objecttrouve.fourtytwo.graphs.examples.common.TokenizedCorpus;
+import org.objecttrouve.fourtytwo.graphs.examples.common.TokenizedCorpusWriter;
 import org.objecttrouve.fourtytwo.graphs.examples.common.cmd.Args;
 import org.objecttrouve.fourtytwo.graphs.examples.common.cmd.CmdLine;
 import org.objecttrouve.fourtytwo.graphs.matchers.NeoDbMatcher;
@@ -41,9 +45,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static java.lang.String.valueOf;
 import static org.hamcrest.CoreMatchers.is;
@@ -56,6 +62,7 @@ public class WarmUpMain {
 
     private static final Logger log = LoggerFactory.getLogger(WarmUpMain.class);
     public static final String warmUpDbDir = "x000.graphdb";
+    public static final String tokenizedCorpusFile = "x000.corpus";
 
     public static void main(final String[] args) {
         try {
@@ -67,64 +74,83 @@ public class WarmUpMain {
 
     public static void run(final Args args) throws IOException {
         log.info("Running example " + WarmUpMain.class.getSimpleName() + "...");
-        log.info("Loading NLP components...");
-        final SentenceDetector sentenceDetector = SentenceDetector.load("doc/x000/de-sent.bin");
-        final Tokenizer tokenizer = Tokenizer.load("doc/x000/de-token.bin");
-
         log.info("Setting up storage directory.");
         final Path outputDirectory = args.outputDirectory();
+        final Path store = outputDirectory.resolve(warmUpDbDir);
         if (args.isClean()){
-            clean(outputDirectory);
+            /* Only the store, the tokenized corpus next to it is still good. */
+            clean(store);
         }
-        final Path store = outputDirectory.resolve(warmUpDbDir);
         Files.createDirectories(store);
         log.info("Using DB store " + store.toAbsolutePath() + ".");
 
         log.info("Set up graph access...");
-        final GraphDatabaseService db = dbService(store);
-        final Graph backend = new EmbeddedBackend(()-> db, () -> {
+        final EmbeddedBackend backend = new EmbeddedBackend(() -> dbService(store), () -> {
             try {
                 return BatchInserters.inserter(store.toFile());
             } catch (final IOException e) {
                 e.printStackTrace();
                 throw new RuntimeException(e);
             }
-        });
+        }, BackendSettings.settings().withIngestAggregates(true).withReopenAfterBatch(true));
         final GraphWriter graphWriter = backend.writer(true);
 
-        log.info("Slurping text...");
-        final String text = file("doc/x000/Martin_Luther_Uebersetzung_1912.cleanText.txt").read();
-        final String[] sentences = sentenceDetector.process(text);
-        int i = 0;
-        final List<String> sentenceIds = Lists.newLinkedList();
-        for (final String s : sentences) {
-            final String sentence = s.replaceAll("\"", "").replaceAll("'", "");
-            i++;
-            final String[] tokens = tokenizer.process(sentence);
-            final String sentenceId = valueOf(i);
-            sentenceIds.add(sentenceId);
-            final SequenceTree sequenceTree = new StringSequenceTree(sentenceId,
-                "Sentence", "Token", tokens);
-            //noinspection unchecked
-            graphWriter.add(sequenceTree);
+        final ResourceFile text = file("doc/x000/Martin_Luther_Uebersetzung_1912.cleanText.txt");
+        final Path corpusFile = outputDirectory.resolve(tokenizedCorpusFile);
+        final Optional<TokenizedCorpus> corpus = TokenizedCorpus.open(corpusFile, text.checksum());
+        try {
+            if (corpus.isPresent()) {
+                log.info("Reading " + corpus.get().sentences() + " pre-tokenized sentences from " + corpusFile.toAbsolutePath() + "...");
+                corpus.get().writeTo(graphWriter);
+            } else {
+                tokenize(text, corpusFile, args.threads(), graphWriter);
+            }
+        } catch (final RuntimeException | IOException e) {
+            /* Releases the store. */
+            graphWriter.abort();
+            throw e;
         }
-        graphWriter.add(new StringSequenceTree(
-            "Bibel",
-            "Document",
-            "Sentence",
-            sentenceIds.toArray(new String[0])
-        ));
         graphWriter.commit();
 
         log.info("Doing sanity check...");
-        /* The GraphWriter closes the DB, so we have to reopen it again here. */
-        final GraphDatabaseService reopenedDb = dbService(store);
+        /* The backend has started the DB again after the batch writer closed it. */
         /* Let's double-check that the graph has the expected number of nodes. */
-        assertThat(reopenedDb, is(NeoDbMatcher.aGraph().ofSize(845770L)));
+        assertThat(backend.service(), is(NeoDbMatcher.aGraph().ofSize(845770L)));
 
         log.info("Shutting down...");
-        reopenedDb.shutdown();
+        backend.shutdown();
         log.info("Done.");
     }
 
+    /** Adds the text to the graph while it's tokenized, and keeps the tokens in the corpus file for the next run. */
+    private static void tokenize(final ResourceFile text, final Path corpusFile, final int threads, final GraphWriter graphWriter) throws IOException {
+        log.info("Loading NLP components...");
+        final SentenceDetector sentenceDetector = SentenceDetector.load("doc/x000/de-sent.bin");
+        final Tokenizer tokenizer = Tokenizer.load("doc/x000/de-token.bin");
+
+        log.info("Streaming text, tokenizing on " + threads + " threads...");
+        final AtomicInteger i = new AtomicInteger();
+        final OrderedPipeline<String, String[]> tokenization = new OrderedPipeline<>(
+            s -> tokenizer.process(s.replaceAll("\"", "").replaceAll("'", "")), threads);
+        try (final SentenceStream sentences = sentenceDetector.sentences(text.reader());
+             final TokenizedCorpusWriter corpus = new TokenizedCorpusWriter(corpusFile, text.checksum(), "Document", "Sentence", "Token")) {
+            corpus.document("Bibel");
+            /* Document, sentences and tokens in one pass, each sentence is related to the document as it comes. */
+            graphWriter.add(new StringNestedTree("Bibel", "Document", "Sentence", Iterators.transform(
+                tokenization.map(sentences),
+                tokens -> {
+                    try {
+                        corpus.sentence(tokens);
+                    } catch (final IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    return new StringSequenceTree(valueOf(i.incrementAndGet()), "Sentence", "Token", tokens);
+                }
+            )));
+            /* Only once all sentences made it, otherwise closing throws the corpus away. */
+            corpus.finish();
+        }
+        log.info("Wrote tokenized corpus " + corpusFile.toAbsolutePath() + ".");
+    }
+
 }
@@ -34,15 +34,12 @@ import org.objecttrouve.fourtytwo.graphs.examples.common.GraphDatabaseServiceFac
 import org.objecttrouve.fourtytwo.graphs.examples.common.cmd.Args;
 import org.objecttrouve.fourtytwo.graphs.examples.common.cmd.CmdLine;
 import org.objecttrouve.fourtytwo.graphs.examples.x000.warmup.WarmUpMain;
-import org.objecttrouve.fourtytwo.graphs.procedures.aggregating.AggregatingProcedures;
 import org.objecttrouve.fourtytwo.graphs.procedures.quantities.QuantityProcedures;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.nio.file.Path;
-import java.time.Duration;
-import java.time.Instant;
 import java.util.Arrays;
 import java.util.Map;
 import java.util.Optional;
@@ -74,26 +71,7 @@ public class RetrieveAggregatedStuffMain {
         final Procedures procedures = ((GraphDatabaseAPI) db).getDependencyResolver()
             .resolveDependency(Procedures.class, DependencyResolver.SelectionStrategy.ONLY);
         procedures.registerProcedure(QuantityProcedures.class);
-        procedures.registerProcedure(AggregatingProcedures.class);
-        if (args.isClean()) {
-            log.info("Aggregating neighbour counts. This may take a while...");
-            final Instant startAggr = Instant.now();
-            db.execute("CALL org.objecttrouve.fourtytwo.aggregateDirectNeighbourCounts('Sentence','Token')");
-            final Duration aggrDuration = Duration.between(startAggr, Instant.now());
-            log.info("Aggregation actually had a duration of " + aggrDuration);
-
-            log.info("Aggregating sentence lengths. This may take a while...");
-            final Instant startLength = Instant.now();
-            db.execute("CALL org.objecttrouve.fourtytwo.aggregateLength('Sentence','Token')");
-            final Duration aggrLengthDuration = Duration.between(startLength, Instant.now());
-            log.info("Aggregation actually had a duration of " + aggrLengthDuration);
-
-            log.info("Aggregating position counts. This may take a while...");
-            final Instant startPosCount = Instant.now();
-            db.execute("CALL org.objecttrouve.fourtytwo.aggregatePositionCounts('Sentence','Token','Document')");
-            final Duration aggrCountPosDuration = Duration.between(startPosCount, Instant.now());
-            log.info("Aggregation actually had a duration of " + aggrCountPosDuration);
-        }
+        /* The neighbour counts, lengths and position counts were aggregated while the warm-up wrote the graph. */
         log.info("Retrieve tokens sorted by their number of neighbours. (Descending)...");
         final Result tokensWithNeighbourCounts = db.execute("MATCH (t:Token)-->(:Sentence) RETURN DISTINCT t.identifier, t.directNeighbourCount_Token ORDER BY t.directNeighbourCount_Token DESC");
         final long totalNeighbourCount = tokensWithNeighbourCounts.stream()
@@ -0,0 +1,106 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 objecttrouve.org <un.object.trouve@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.objecttrouve.fourtytwo.graphs.examples;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.objecttrouve.fourtytwo.graphs.backend.init.CachingNodeDictionary;
+import org.objecttrouve.fourtytwo.graphs.backend.init.NodeDictionary;
+import org.objecttrouve.fourtytwo.graphs.backend.init.PrimitiveNodeDictionary;
+import org.objecttrouve.fourtytwo.graphs.categories.Snore;
+import org.objecttrouve.fourtytwo.graphs.examples.common.SentenceDetector;
+import org.objecttrouve.fourtytwo.graphs.examples.common.Tokenizer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static java.lang.String.valueOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.objecttrouve.fourtytwo.graphs.examples.common.ResourceFile.file;
+
+/**
+ * Compares the heap retained by the node dictionaries after a pass over the warm-up corpus.
+ */
+@Category(Snore.class)
+public class NodeDictionaryFootprintTest {
+
+    private static final Logger log = LoggerFactory.getLogger(NodeDictionaryFootprintTest.class);
+
+    private static Object retained;
+
+    @Test
+    public void primitive_dictionary_retains_less_than_the_cache() {
+        final long cache = retainedBytes(CachingNodeDictionary::new);
+        final long primitive = retainedBytes(PrimitiveNodeDictionary::new);
+
+        log.info("Retained heap for the Luther corpus: cache " + cache / 1024 + " KiB, primitive " + primitive / 1024 + " KiB.");
+        assertThat(primitive < cache, is(true));
+    }
+
+    private static long retainedBytes(final Supplier<NodeDictionary> dictionaries) {
+        List<String[]> sentences = tokenizedCorpus();
+        NodeDictionary dictionary = dictionaries.get();
+        final long[] nodeIds = {0L};
+        final NodeDictionary.NodeFactory factory = (dimension, identifier) -> nodeIds[0]++;
+        for (int i = 0; i < sentences.size(); i++) {
+            dictionary.computeIfAbsent("Sentence", valueOf(i + 1), factory);
+            for (final String token : sentences.get(i)) {
+                dictionary.computeIfAbsent("Token", token, factory);
+            }
+        }
+        /* Only the dictionary may keep the identifiers alive. */
+        //noinspection UnusedAssignment
+        sentences = null;
+        retained = dictionary;
+        //noinspection UnusedAssignment
+        dictionary = null;
+        final long withDictionary = usedHeap();
+        retained = null;
+        return withDictionary - usedHeap();
+    }
+
+    private static List<String[]> tokenizedCorpus() {
+        final SentenceDetector sentenceDetector = SentenceDetector.load("doc/x000/de-sent.bin");
+        final Tokenizer tokenizer = Tokenizer.load("doc/x000/de-token.bin");
+        final String text = file("doc/x000/Martin_Luther_Uebersetzung_1912.cleanText.txt").read();
+        final List<String[]> sentences = new ArrayList<>();
+        for (final String s : sentenceDetector.process(text)) {
+            sentences.add(tokenizer.process(s.replaceAll("\"", "").replaceAll("'", "")));
+        }
+        return sentences;
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        final Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 objecttrouve.org <un.object.trouve@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.objecttrouve.fourtytwo.graphs.examples.common;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class OrderedPipelineTest {
+
+    @Test
+    public void output_in_input_order() {
+        final List<Integer> input = IntStream.range(0, 5000).boxed().collect(Collectors.toList());
+        final List<Integer> output = new ArrayList<>();
+
+        /* Random delays finish the batches out of order. */
+        new OrderedPipeline<Integer, Integer>(n -> {
+            LockSupport.parkNanos(ThreadLocalRandom.current().nextInt(2000));
+            return n;
+        }, 4).run(input.iterator(), output::add);
+
+        assertThat(output, is(input));
+    }
+
+    @Test
+    public void output_pulled_in_input_order() {
+        final List<Integer> input = IntStream.range(0, 5000).boxed().collect(Collectors.toList());
+        final List<Integer> output = new ArrayList<>();
+
+        new OrderedPipeline<Integer, Integer>(n -> {
+            LockSupport.parkNanos(ThreadLocalRandom.current().nextInt(2000));
+            return n;
+        }, 4).map(input.iterator()).forEachRemaining(output::add);
+
+        assertThat(output, is(input));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void failures_reach_the_caller() {
+        new OrderedPipeline<Integer, Integer>(n -> 1 / (n - 1000), 4).run(IntStream.range(0, 5000).iterator(), n -> {
+        });
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 objecttrouve.org <un.object.trouve@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.objecttrouve.fourtytwo.graphs.examples.common;
+
+import opennlp.tools.sentdetect.SentenceDetectorME;
+import opennlp.tools.sentdetect.SentenceModel;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.objecttrouve.fourtytwo.graphs.categories.Snore;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.objecttrouve.fourtytwo.graphs.examples.common.ResourceFile.file;
+
+@Category(Snore.class)
+public class SentenceStreamTest {
+
+    private static final String corpus = "doc/x000/Martin_Luther_Uebersetzung_1912.cleanText.txt";
+
+    @Test
+    public void same_sentences_as_with_all_of_the_text() throws IOException {
+        final SentenceDetectorME detector = new SentenceDetectorME(new SentenceModel(file("doc/x000/de-sent.bin").inputStream()));
+        final List<String> expected = asList(detector.sentDetect(file(corpus).read()));
+
+        /* Odd chunk sizes cut the text at all sorts of places. */
+        for (final int chunkChars : new int[]{1100, 4999, SentenceStream.defaultChunkChars}) {
+            final List<String> sentences = new ArrayList<>();
+            try (final SentenceStream stream = new SentenceStream(detector, file(corpus).reader(), chunkChars)) {
+                stream.forEachRemaining(sentences::add);
+            }
+            assertThat(sentences, is(expected));
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 objecttrouve.org <un.object.trouve@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.objecttrouve.fourtytwo.graphs.examples.common;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.objecttrouve.fourtytwo.graphs.api.NestedTree;
+import org.objecttrouve.fourtytwo.graphs.api.SequenceTree;
+import org.objecttrouve.fourtytwo.graphs.api.Tree;
+import org.objecttrouve.fourtytwo.graphs.api.Value;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class TokenizedCorpusTest {
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    @Test
+    public void round_trip() throws IOException {
+        final Path file = written(42L);
+
+        final TokenizedCorpus corpus = TokenizedCorpus.open(file, 42L).orElseThrow(AssertionError::new);
+
+        assertThat(corpus.sentences(), is(3));
+        assertThat(corpus.tokens(), is(9L));
+        final List<String> read = new ArrayList<>();
+        final Iterator<NestedTree<String, String>> documents = corpus.documents();
+        while (documents.hasNext()) {
+            final NestedTree<String, String> document = documents.next();
+            read.add(document.getParentDimension().getName() + ":" + document.getRoot().getIdentifier());
+            final Iterator<? extends Tree<String>> sentences = document.getSubtrees();
+            while (sentences.hasNext()) {
+                final SequenceTree<?, ?> sentence = (SequenceTree<?, ?>) sentences.next();
+                read.add(sentence.getParentDimension().getName() + ":" + sentence.getRoot().getIdentifier() + " "
+                    + sentence.getValues().stream().map(v -> sentence.getChildDimension().getName() + ":" + v.getIdentifier()).collect(Collectors.joining(" ")));
+            }
+        }
+
+        /* Sentences are numbered across documents. */
+        assertThat(read.toString(), is("[" +
+            "Document:a, " +
+            "Sentence:1 Token:Im Token:Anfang Token:war Token:das Token:Wort Token:., " +
+            "Sentence:2 Token:Wort Token:., " +
+            "Document:b, " +
+            "Sentence:3 Token:Ätsch" +
+            "]"));
+    }
+
+    @Test
+    public void not_opened_with_another_checksum() throws IOException {
+        final Path file = written(42L);
+
+        assertThat(TokenizedCorpus.open(file, 43L).isPresent(), is(false));
+    }
+
+    @Test
+    public void not_opened_if_missing_or_broken() throws IOException {
+        final Path file = tmpFolder.getRoot().toPath().resolve("missing.corpus");
+        assertThat(TokenizedCorpus.open(file, 42L).isPresent(), is(false));
+
+        Files.write(file, new byte[]{1, 2, 3});
+        assertThat(TokenizedCorpus.open(file, 42L).isPresent(), is(false));
+    }
+
+    @Test
+    public void nothing_left_if_not_finished() throws IOException {
+        final Path file = tmpFolder.getRoot().toPath().resolve("test.corpus");
+        try (final TokenizedCorpusWriter writer = new TokenizedCorpusWriter(file, 42L, "Document", "Sentence", "Token")) {
+            writer.document("a");
+            writer.sentence(new String[]{"Im", "Anfang"});
+        }
+
+        assertThat(TokenizedCorpus.open(file, 42L).isPresent(), is(false));
+        assertThat(tmpFolder.getRoot().list().length, is(0));
+    }
+
+    private Path written(final long checksum) throws IOException {
+        final Path file = tmpFolder.getRoot().toPath().resolve("test.corpus");
+        try (final TokenizedCorpusWriter writer = new TokenizedCorpusWriter(file, checksum, "Document", "Sentence", "Token")) {
+            writer.document("a");
+            writer.sentence(new String[]{"Im", "Anfang", "war", "das", "Wort", "."});
+            writer.sentence(new String[]{"Wort", "."});
+            writer.document("b");
+            writer.sentence(new String[]{"Ätsch"});
+            writer.finish();
+        }
+        return file;
+    }
+}
@@ -0,0 +1,354 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 objecttrouve.org <un.object.trouve@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.objecttrouve.fourtytwo.graphs.backend.init;
+
+import java.io.File;
+import java.util.function.Supplier;
+
+/**
+ * Tuning knobs for the writers handed out by {@link EmbeddedBackend}.
+ * The defaults give the same graph as a plain {@link TransactionalWriter} would.
+ */
+public class BackendSettings {
+
+    private Supplier<NodeDictionary> nodeDictionary = PrimitiveNodeDictionary::new;
+    private boolean duplicateDetection = true;
+    private int queueCapacity;
+    private Backpressure backpressure = Backpressure.block;
+    private int unwindBatchSize;
+    private int treesPerChunk;
+    private long bytesPerChunk;
+    private boolean identifierConstraints = true;
+    private File importStore;
+    private int importShards = 1;
+    private File symbolStore;
+    private boolean incrementalBatches;
+    private boolean ingestMetrics;
+    private boolean ingestAggregates;
+    private boolean appendOnly;
+    private long expectedIdentifiers;
+    private double falsePositives;
+    private int nodeIdCacheCapacity;
+    private boolean reopenAfterBatch;
+    private boolean pageCacheWarmUp;
+    private ChunkListener chunkListener = committedTrees -> {
+    };
+
+    public static BackendSettings settings() {
+        return new BackendSettings();
+    }
+
+    private BackendSettings() {
+    }
+
+    /** Dictionary used by each batch writer to map identifiers to node ids. */
+    public BackendSettings withNodeDictionary(final Supplier<NodeDictionary> nodeDictionary) {
+        this.nodeDictionary = nodeDictionary;
+        return this;
+    }
+
+    /**
+     * Whether the batch writer checks for relationships that already exist when a tree's root is known already.
+     * Switch it off only if no tree is ever added twice, e.g. when every root is new.
+     */
+    public BackendSettings withDuplicateDetection(final boolean duplicateDetection) {
+        this.duplicateDetection = duplicateDetection;
+        return this;
+    }
+
+    /**
+     * Hands out {@link ConcurrentGraphWriter}s, which many threads can add to at once.
+     * Trees are queued for a single inserter thread, up to the given capacity.
+     */
+    public BackendSettings withConcurrentIngest(final int queueCapacity, final Backpressure backpressure) {
+        this.queueCapacity = queueCapacity;
+        this.backpressure = backpressure;
+        return this;
+    }
+
+    /**
+     * Lets the transactional writer buffer the given number of trees and write them with one {@code UNWIND}
+     * statement per dimension pair instead of one statement per node and relationship.
+     */
+    public BackendSettings withUnwindBatches(final int treesPerBatch) {
+        this.unwindBatchSize = treesPerBatch;
+        return this;
+    }
+
+    /**
+     * Lets the transactional writer commit every so many trees or every so many (estimated) bytes of
+     * transaction state, whichever comes first, and carry on in a new transaction.
+     * A value of {@code 0} means no limit.
+     * Note that {@link org.objecttrouve.fourtytwo.graphs.api.GraphWriter#abort()} only rolls back the current chunk then.
+     */
+    public BackendSettings withChunkedTransactions(final int treesPerChunk, final long bytesPerChunk) {
+        this.treesPerChunk = treesPerChunk;
+        this.bytesPerChunk = bytesPerChunk;
+        return this;
+    }
+
+    /** Gets told after every committed transaction how many trees are committed so far. */
+    public BackendSettings withChunkListener(final ChunkListener chunkListener) {
+        this.chunkListener = chunkListener;
+        return this;
+    }
+
+    /**
+     * Whether the writers create a uniqueness constraint on the identifier of each dimension they write.
+     * The batch writer defers them, so their indexes get populated in one go when the batch inserter shuts down.
+     * That's also when an identifier that's in the store twice shows up, so for a store with nodes in it, the backend
+     * loads the node dictionary from the store first, as with {@link #withIncrementalBatches(boolean) incremental batches}.
+     */
+    public BackendSettings withIdentifierConstraints(final boolean identifierConstraints) {
+        this.identifierConstraints = identifierConstraints;
+        return this;
+    }
+
+    /**
+     * Hands out an {@link OfflineImportWriter} in batch mode, which imports into the given (empty) store directory
+     * instead of using the batch inserter.
+     */
+    public BackendSettings withOfflineImport(final File storeDir) {
+        this.importStore = storeDir;
+        return this;
+    }
+
+    /**
+     * Splits the offline import (see {@link #withOfflineImport(File)}) into the given number of shards,
+     * which are written in parallel and merged on commit (see {@link ShardedImportWriter}).
+     * Each shard has its own thread and node dictionary, so it takes as many cores and more heap.
+     * With {@link #withConcurrentIngest(int, Backpressure)}, each shard gets a queue of the given capacity.
+     * Symbols (see {@link #withSymbolTable(File)}) stay dense, but aren't in order of first appearance anymore.
+     */
+    public BackendSettings withImportShards(final int shards) {
+        this.importShards = shards;
+        return this;
+    }
+
+    /**
+     * Lets the writers give each string identifier a dense {@code int} id per dimension (see {@link SymbolTable})
+     * and store it as an indexed property of its node.
+     * The table is kept in the given directory, usually the store's own.
+     */
+    public BackendSettings withSymbolTable(final File storeDir) {
+        this.symbolStore = storeDir;
+        return this;
+    }
+
+    /**
+     * Lets the batch writer add to a store that has data already, by loading the node dictionary from the store first.
+     * Without it, nodes already in the store get created again,
+     * unless there are identifier constraints (see {@link #withIdentifierConstraints(boolean)}), which turn it on for stores with nodes.
+     * Doesn't apply to offline imports, which need an empty store anyway.
+     */
+    public BackendSettings withIncrementalBatches(final boolean incrementalBatches) {
+        this.incrementalBatches = incrementalBatches;
+        return this;
+    }
+
+    /**
+     * Whether each writer registers its {@link IngestMetrics} as an MBean while it is open,
+     * so throughput and dictionary statistics can be watched over JMX during a load.
+     * The writers count either way and return the counts from {@code commit()}.
+     */
+    public BackendSettings withIngestMetrics(final boolean exposed) {
+        this.ingestMetrics = exposed;
+        return this;
+    }
+
+    /**
+     * Lets the batch writer compute the {@code length_}, {@code directNeighbourCount_} and {@code positionCounts_}
+     * properties of the aggregating procedures while it adds trees, and write them on commit,
+     * so they needn't be aggregated over the whole graph after the load.
+     * The store has to be empty before the load, so it can't be combined with incremental batches.
+     * Doesn't apply to the transactional writer and offline imports.
+     */
+    public BackendSettings withIngestAggregates(final boolean ingestAggregates) {
+        this.ingestAggregates = ingestAggregates;
+        return this;
+    }
+
+    /**
+     * Lets the transactional writer create each tree's root and relationships right away instead of with {@code MERGE},
+     * for loads where no root is in the store yet, such as freshly ingested documents.
+     * Children are looked up in a node dictionary of the writer (see {@link #withNodeDictionary(Supplier)}),
+     * and only those it doesn't know yet are merged, once per batch (see {@link #withUnwindBatches(int)}, at least one tree).
+     * A root that is in the store already ends up twice, or fails on the identifier constraint.
+     */
+    public BackendSettings withAppendOnly(final boolean appendOnly) {
+        this.appendOnly = appendOnly;
+        return this;
+    }
+
+    /**
+     * Lets the transactional writers check a Bloom filter per dimension before they look an identifier up,
+     * and create the node right away if the filter says it's certainly not in the store.
+     * That's per node without {@code UNWIND} batches, and per new child in append-only mode (see {@link #withAppendOnly(boolean)}).
+     * The backend fills the filters from the store whenever it starts the database service,
+     * and the writers add what they wrote when they commit.
+     * Writers running at the same time may both create the same new identifier then,
+     * and one of them fails on the identifier constraint.
+     * @param expectedIdentifiers per dimension, beyond which the false positive rate goes up
+     * @param falsePositives probability that an identifier not in the store needs a lookup all the same
+     */
+    public BackendSettings withExistenceFilter(final long expectedIdentifiers, final double falsePositives) {
+        this.expectedIdentifiers = expectedIdentifiers;
+        this.falsePositives = falsePositives;
+        return this;
+    }
+
+    /**
+     * Lets the transactional writers share the node ids of the identifiers they come across most often,
+     * like function words and punctuation, and get those nodes by id instead of looking them up.
+     * That's per node without {@code UNWIND} batches, and per new child in append-only mode (see {@link #withAppendOnly(boolean)}).
+     * The writers add the node ids they looked up when they commit.
+     * @param capacity number of node ids the backend keeps, 0 for none
+     */
+    public BackendSettings withNodeIdCache(final int capacity) {
+        this.nodeIdCacheCapacity = capacity;
+        return this;
+    }
+
+    /**
+     * Lets the backend start the database service again as soon as a batch writer or import committed or aborted,
+     * instead of when it's next needed, so that {@link EmbeddedBackend#service()} is ready right away.
+     * The service comes from the backend's factory, which has to give a new one each time.
+     */
+    public BackendSettings withReopenAfterBatch(final boolean reopenAfterBatch) {
+        this.reopenAfterBatch = reopenAfterBatch;
+        return this;
+    }
+
+    /**
+     * Lets the backend read all nodes and relationships whenever it starts the database service,
+     * so that they're in the page cache before the first query or transactional writer needs them,
+     * e.g. after a batch load (see {@link #withReopenAfterBatch(boolean)}).
+     * Only pays off if the page cache is large enough for the store.
+     */
+    public BackendSettings withPageCacheWarmUp(final boolean pageCacheWarmUp) {
+        this.pageCacheWarmUp = pageCacheWarmUp;
+        return this;
+    }
+
+    NodeDictionary nodeDictionary() {
+        return nodeDictionary.get();
+    }
+
+    boolean isDetectingDuplicates() {
+        return duplicateDetection;
+    }
+
+    boolean isConcurrent() {
+        return queueCapacity > 0;
+    }
+
+    int queueCapacity() {
+        return queueCapacity;
+    }
+
+    Backpressure backpressure() {
+        return backpressure;
+    }
+
+    int unwindBatchSize() {
+        return unwindBatchSize;
+    }
+
+    int treesPerChunk() {
+        return treesPerChunk;
+    }
+
+    long bytesPerChunk() {
+        return bytesPerChunk;
+    }
+
+    ChunkListener chunkListener() {
+        return chunkListener;
+    }
+
+    boolean isConstrainingIdentifiers() {
+        return identifierConstraints;
+    }
+
+    boolean isImportingOffline() {
+        return importStore != null;
+    }
+
+    File importStore() {
+        return importStore;
+    }
+
+    int importShards() {
+        return importShards;
+    }
+
+    boolean isEncodingSymbols() {
+        return symbolStore != null;
+    }
+
+    File symbolStore() {
+        return symbolStore;
+    }
+
+    boolean isIncremental() {
+        return incrementalBatches;
+    }
+
+    boolean isExposingIngestMetrics() {
+        return ingestMetrics;
+    }
+
+    boolean isAggregatingAtIngest() {
+        return ingestAggregates;
+    }
+
+    boolean isAppendingOnly() {
+        return appendOnly;
+    }
+
+    boolean isCachingNodeIds() {
+        return nodeIdCacheCapacity > 0;
+    }
+
+    NodeIdCache nodeIdCache() {
+        return new NodeIdCache(nodeIdCacheCapacity);
+    }
+
+    boolean isFilteringExistence() {
+        return expectedIdentifiers > 0;
+    }
+
+    ExistenceFilter existenceFilter() {
+        return new ExistenceFilter(expectedIdentifiers, falsePositives);
+    }
+
+    boolean isReopeningAfterBatch() {
+        return reopenAfterBatch;
+    }
+
+    boolean isWarmingUpPageCache() {
+        return pageCacheWarmUp;
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 objecttrouve.org <un.object.trouve@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.objecttrouve.fourtytwo.graphs.backend.init;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash table from byte strings to {@code long}s with linear probing.
+ * Keys are copied into paged byte arenas (length-prefixed), slots are plain arrays.
+ * Pages start small and grow with the arena up to 1 MiB.
+ * An entry therefore costs about 20 bytes of slot arrays plus its key bytes, and no objects.
+ * Not thread-safe.
+ */
+class BytesToLongTable {
+
+    private static final int minPageSize = 1 << 12;
+    private static final int maxPageSize = 1 << 20;
+    private static final float maxLoad = 0.7f;
+
+    private int[] hashes;
+    private long[] addresses;
+    private long[] values;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    private byte[][] pages = new byte[4][];
+    private int pageCount;
+    private int pageOffset;
+    private int currentPageSize;
+    private long arenaBytes;
+
+    BytesToLongTable() {
+        this(1024);
+    }
+
+    BytesToLongTable(final int expectedSize) {
+        allocate(Integer.highestOneBit(Math.max(16, (int) (expectedSize / maxLoad)) - 1) << 1);
+    }
+
+    long get(final byte[] key, final int length, final int hash) {
+        final int h = nonZero(hash);
+        for (int slot = h & mask; ; slot = (slot + 1) & mask) {
+            final int found = hashes[slot];
+            if (found == 0) {
+                return NodeDictionary.absent;
+            }
+            if (found == h && keyEquals(addresses[slot], key, length)) {
+                return values[slot];
+            }
+        }
+    }
+
+    /** Inserts or replaces. */
+    void put(final byte[] key, final int length, final int hash, final long value) {
+        final int h = nonZero(hash);
+        int slot = h & mask;
+        for (; ; slot = (slot + 1) & mask) {
+            final int found = hashes[slot];
+            if (found == 0) {
+                break;
+            }
+            if (found == h && keyEquals(addresses[slot], key, length)) {
+                values[slot] = value;
+                return;
+            }
+        }
+        hashes[slot] = h;
+        addresses[slot] = append(key, length);
+        values[slot] = value;
+        if (++size >= resizeAt) {
+            grow();
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    long estimatedBytes() {
+        return (long) hashes.length * (4 + 8 + 8) + arenaBytes + 8L * pages.length;
+    }
+
+    private static int nonZero(final int hash) {
+        return hash == 0 ? 1 : hash;
+    }
+
+    private void allocate(final int capacity) {
+        hashes = new int[capacity];
+        addresses = new long[capacity];
+        values = new long[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * maxLoad);
+    }
+
+    private void grow() {
+        final int[] oldHashes = hashes;
+        final long[] oldAddresses = addresses;
+        final long[] oldValues = values;
+        allocate(oldHashes.length << 1);
+        for (int i = 0; i < oldHashes.length; i++) {
+            final int h = oldHashes[i];
+            if (h != 0) {
+                int slot = h & mask;
+                while (hashes[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                hashes[slot] = h;
+                addresses[slot] = oldAddresses[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private boolean keyEquals(final long address, final byte[] key, final int length) {
+        final byte[] page = pages[(int) (address >>> 32)];
+        int offset = (int) address;
+        final int storedLength = readLength(page, offset);
+        if (storedLength != length) {
+            return false;
+        }
+        offset += lengthBytes(length);
+        for (int i = 0; i < length; i++) {
+            if (page[offset + i] != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long append(final byte[] key, final int length) {
+        final int needed = lengthBytes(length) + length;
+        if (needed > maxPageSize) {
+            /* Oversized keys get a page of their own. */
+            final int page = addPage(new byte[needed]);
+            pageOffset = currentPageSize;
+            return write(page, 0, key, length);
+        }
+        if (pageOffset + needed > currentPageSize) {
+            currentPageSize = (int) Math.min(maxPageSize, Math.max(minPageSize, Math.max(needed, arenaBytes)));
+            addPage(new byte[currentPageSize]);
+            pageOffset = 0;
+        }
+        final long address = write(pageCount - 1, pageOffset, key, length);
+        pageOffset += needed;
+        return address;
+    }
+
+    private int addPage(final byte[] page) {
+        if (pageCount == pages.length) {
+            pages = Arrays.copyOf(pages, pageCount * 2);
+        }
+        pages[pageCount] = page;
+        arenaBytes += page.length;
+        return pageCount++;
+    }
+
+    private long write(final int pageIndex, final int offset, final byte[] key, final int length) {
+        final byte[] page = pages[pageIndex];
+        int pos = offset;
+        int remaining = length;
+        while (remaining >= 0x80) {
+            page[pos++] = (byte) (remaining | 0x80);
+            remaining >>>= 7;
+        }
+        page[pos++] = (byte) remaining;
+        System.arraycopy(key, 0, page, pos, length);
+        return ((long) pageIndex << 32) | offset;
+    }
+
+    private static int readLength(final byte[] page, final int offset) {
+        int length = 0;
+        int shift = 0;
+        int pos = offset;
+        byte b;
+        do {
+            b = page[pos++];
+            length |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return length;
+    }
+
+    private static int lengthBytes(final int length) {
+        int n = 1;
+        for (int remaining = length; remaining >= 0x80; remaining >>>= 7) {
+            n++;
+        }
+        return n;
+    }
+}
@@ -24,22 +24,31 @@
 
 package org.objecttrouve.fourtytwo.graphs.backend.init;
 
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
+import org.neo4j.graphdb.ConstraintViolationException;
 import org.neo4j.graphdb.Label;
 import org.neo4j.graphdb.RelationshipType;
 import org.neo4j.unsafe.batchinsert.BatchInserter;
+import org.neo4j.unsafe.batchinsert.BatchRelationship;
 import org.objecttrouve.fourtytwo.graphs.api.Dimension;
 import org.objecttrouve.fourtytwo.graphs.api.GraphWriter;
+import org.objecttrouve.fourtytwo.graphs.api.IngestSummary;
+import org.objecttrouve.fourtytwo.graphs.api.IntSequenceTree;
+import org.objecttrouve.fourtytwo.graphs.api.LongSequenceTree;
+import org.objecttrouve.fourtytwo.graphs.api.NestedTree;
 import org.objecttrouve.fourtytwo.graphs.api.SequenceTree;
+import org.objecttrouve.fourtytwo.graphs.api.Tree;
 import org.objecttrouve.fourtytwo.graphs.api.Value;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+
+import static java.util.Collections.emptySet;
 
 public class CachingBatchInitializer implements GraphWriter {
 
@@ -47,62 +56,299 @@ public class CachingBatchInitializer implements GraphWriter {
 
   private final BatchInserter init;
 
-  private final LoadingCache<NodeKey, Long> nodes = CacheBuilder.newBuilder()
-      .build(
-          new CacheLoader<NodeKey, Long>() {
-            public Long load(final NodeKey key){
-              final Object id = key.getId();
-              final Map<String, Object> props = new HashMap<>();
-              props.put(Value.idKey, id);
-              return init.createNode(props, Label.label(key.getDimension()));
-            }
-          });
-  private final LoadingCache<RelationKey, Long> relations = CacheBuilder.newBuilder()
-      .build(
-          new CacheLoader<RelationKey, Long>() {
-            public Long load(final RelationKey key){
-              final long childNode = key.getChildNode();
-              final long parentNode = key.getParentNode();
-              final String type = key.getDimension();
-              final int position = key.getPosition();
-              final Map<String, Object> props = new HashMap<>();
-              props.put(Dimension.positionKey, position);
-              return init.createRelationship(childNode, parentNode, RelationshipType.withName(type), props);
-            }
-          });
+  /* What all trees with the same parent and child dimension have in common. */
+  private class DimensionPair {
+    final String parentDimension;
+    final String childDimension;
+    final Label parentLabel;
+    final RelationshipType type;
+    final NodeDictionary.NodeFactory childFactory;
+    final IngestAggregates.Pair aggregates;
+
+    DimensionPair(final String parentDimension, final String childDimension) {
+      this.parentDimension = parentDimension;
+      this.childDimension = childDimension;
+      this.parentLabel = Label.label(parentDimension);
+      this.type = RelationshipType.withName(childDimension);
+      final Label childLabel = Label.label(childDimension);
+      this.childFactory = (dimension, id) -> createNode(childLabel, id);
+      this.aggregates = CachingBatchInitializer.this.aggregates == null ? null : CachingBatchInitializer.this.aggregates.pair(parentDimension, childDimension);
+      dimensions.add(parentDimension);
+      dimensions.add(childDimension);
+    }
+  }
+
+  /* The root of a tree being added, with what it takes to relate its children. */
+  private final class Parent {
+    final DimensionPair pair;
+    final long id;
+    final Set<RelationKey> duplicates;
+    final IngestAggregates.Pair.Sequence sequence;
+    int length;
+    int created;
+
+    Parent(final DimensionPair pair, final Object rootId) {
+      this.pair = pair;
+      long parentId = nodes.get(pair.parentDimension, rootId);
+      final boolean knownRoot = parentId != NodeDictionary.absent;
+      if (!knownRoot) {
+        parentId = createNode(pair.parentLabel, rootId);
+        nodes.put(pair.parentDimension, rootId, parentId);
+      }
+      this.id = parentId;
+      /* Only a root that was there before can already have children. */
+      final Set<RelationKey> existing = knownRoot && (detectDuplicates || pair.aggregates != null) ? existingRelations(parentId, pair.childDimension) : emptySet();
+      this.duplicates = detectDuplicates ? existing : emptySet();
+      this.sequence = pair.aggregates != null ? pair.aggregates.sequence(parentId, existing) : null;
+    }
+
+    void child(final long childId) {
+      if (duplicates.isEmpty() || !duplicates.contains(RelationKey.key(childId, id, pair.childDimension, length))) {
+        relationProps.put(Dimension.positionKey, length);
+        init.createRelationship(childId, id, pair.type, relationProps);
+        createdRelationships++;
+        created++;
+      }
+      if (sequence != null) {
+        sequence.child(childId);
+      }
+      length++;
+    }
+
+    /** @return the node id of the root */
+    long end() {
+      return end(length + 1);
+    }
+
+    /**
+     * Ends a tree whose children are the roots of subtrees. Those were looked up with their subtrees,
+     * so only this root's lookup counts here.
+     *
+     * @return the node id of the root
+     */
+    long endOfSubtrees() {
+      return end(1);
+    }
+
+    private long end(final int lookups) {
+      if (sequence != null) {
+        sequence.end(created);
+      }
+      count(length, lookups);
+      return id;
+    }
+  }
+
+  private final NodeDictionary nodes;
+  private final boolean detectDuplicates;
+  private final Map<String, Object> nodeProps = new HashMap<>();
+  private final Map<String, Object> relationProps = new HashMap<>();
+  private final boolean constrainIdentifiers;
+  private final Set<String> dimensions = new HashSet<>();
+  private final Map<String, Map<String, DimensionPair>> pairs = new HashMap<>();
+  private DimensionPair lastPair;
+  private final SymbolTable symbols;
+  private final IngestMetrics metrics;
+  private final IngestAggregates aggregates;
+  private long createdNodes;
+  private long createdRelationships;
 
 
   CachingBatchInitializer(final BatchInserter init) {
+    this(init, BackendSettings.settings());
+  }
+
+  CachingBatchInitializer(final BatchInserter init, final BackendSettings settings) {
+    this(init, settings, settings.nodeDictionary(), settings.isEncodingSymbols() ? SymbolTable.open(settings.symbolStore()) : null);
+  }
+
+  /** @param nodes possibly filled with the nodes already in the store */
+  CachingBatchInitializer(final BatchInserter init, final BackendSettings settings, final NodeDictionary nodes, final SymbolTable symbols) {
     this.init = init;
+    this.symbols = symbols;
+    this.nodes = nodes;
+    this.detectDuplicates = settings.isDetectingDuplicates();
+    this.constrainIdentifiers = settings.isConstrainingIdentifiers();
+    this.metrics = new IngestMetrics(CachingBatchInitializer.class, settings.isExposingIngestMetrics());
+    this.aggregates = settings.isAggregatingAtIngest() ? new IngestAggregates() : null;
   }
 
 
 
   @Override
   public <T, U> GraphWriter add(final SequenceTree<T, U> sequenceTree) {
+    final long entered = metrics.enter();
     logger.trace("Adding {} {}...", SequenceTree.class.getName(), sequenceTree.toString());
-    final Dimension parentDimension = sequenceTree.getParentDimension();
-    final Long parentId = nodes.getUnchecked(NodeKey.key(sequenceTree.getRoot().getIdentifier(), parentDimension.getName()));
-    final List<Value<U>> values = sequenceTree.getValues();
-    final Dimension childDimension = sequenceTree.getChildDimension();
-    for (int i = 0; i < values.size(); i++) {
-      final Value<U> child = values.get(i);
-      final Long childId = nodes.getUnchecked(NodeKey.key(child.getIdentifier(), childDimension.getName()));
-      relations.getUnchecked(RelationKey.key(childId, parentId, childDimension.getName(), i));
+    add(sequenceTree, pair(sequenceTree.getParentDimension().getName(), sequenceTree.getChildDimension().getName()));
+    metrics.exit(entered);
+    return this;
+  }
+
+  /** Resolves the dimensions once per run of trees sharing them, and skips the per-tree trace. */
+  @Override
+  public GraphWriter addAll(final Iterable<? extends SequenceTree<?, ?>> sequenceTrees) {
+    final long entered = metrics.enter();
+    logger.trace("Adding {}s...", SequenceTree.class.getName());
+    for (final SequenceTree<?, ?> sequenceTree : sequenceTrees) {
+      add(sequenceTree, pair(sequenceTree.getParentDimension().getName(), sequenceTree.getChildDimension().getName()));
+    }
+    metrics.exit(entered);
+    return this;
+  }
+
+  /** @return the node id of the root */
+  private <T, U> long add(final SequenceTree<T, U> sequenceTree, final DimensionPair pair) {
+    final Parent parent = new Parent(pair, sequenceTree.getRoot().getIdentifier());
+    if (sequenceTree instanceof IntSequenceTree) {
+      for (final int identifier : ((IntSequenceTree<?>) sequenceTree).getIdentifiers()) {
+        parent.child(nodes.computeIfAbsent(pair.childDimension, identifier, pair.childFactory));
+      }
+    } else if (sequenceTree instanceof LongSequenceTree) {
+      for (final long identifier : ((LongSequenceTree<?>) sequenceTree).getIdentifiers()) {
+        parent.child(nodes.computeIfAbsent(pair.childDimension, identifier, pair.childFactory));
+      }
+    } else {
+      final List<Value<U>> values = sequenceTree.getValues();
+      for (int i = 0; i < values.size(); i++) {
+        parent.child(nodes.computeIfAbsent(pair.childDimension, values.get(i).getIdentifier(), pair.childFactory));
+      }
     }
+    return parent.end();
+  }
+
+  /**
+   * Goes through the hierarchy in one pass.
+   * The root of each subtree is resolved once, as the subtree's parent, and related to this tree's root right away,
+   * so the children's node ids aren't held.
+   */
+  @Override
+  public <T, U> GraphWriter add(final NestedTree<T, U> nestedTree) {
+    final long entered = metrics.enter();
+    logger.trace("Adding {} {}...", NestedTree.class.getName(), nestedTree.toString());
+    add(nestedTree, pair(nestedTree.getParentDimension().getName(), nestedTree.getChildDimension().getName()));
+    metrics.exit(entered);
     return this;
   }
 
+  /** @return the node id of the root */
+  private <T, U> long add(final NestedTree<T, U> nestedTree, final DimensionPair pair) {
+    final Parent parent = new Parent(pair, nestedTree.getRoot().getIdentifier());
+    final Iterator<? extends Tree<U>> subtrees = nestedTree.getSubtrees();
+    while (subtrees.hasNext()) {
+      final Tree<U> subtree = subtrees.next();
+      final String dimension = subtree.getParentDimension().getName();
+      if (!dimension.equals(pair.childDimension)) {
+        throw new IllegalArgumentException("Subtree in dimension " + dimension + " below " + pair.childDimension + " children.");
+      }
+      final DimensionPair subtreePair = pair(dimension, subtree.getChildDimension().getName());
+      parent.child(subtree instanceof NestedTree ? add((NestedTree<U, ?>) subtree, subtreePair) : add((SequenceTree<U, ?>) subtree, subtreePair));
+    }
+    return parent.endOfSubtrees();
+  }
+
+  private void count(final int length, final int lookups) {
+    metrics.tree(length, lookups);
+    metrics.created(createdNodes, createdRelationships);
+    createdNodes = 0;
+    createdRelationships = 0;
+    if ((metrics.getTrees() & IngestMetrics.samplingMask) == 0) {
+      metrics.dictionaryBytes(nodes.estimatedBytes());
+    }
+  }
+
+  private DimensionPair pair(final String parentDimension, final String childDimension) {
+    if (lastPair == null || !lastPair.parentDimension.equals(parentDimension) || !lastPair.childDimension.equals(childDimension)) {
+      lastPair = pairs.computeIfAbsent(parentDimension, p -> new HashMap<>())
+        .computeIfAbsent(childDimension, c -> new DimensionPair(parentDimension, childDimension));
+    }
+    return lastPair;
+  }
+
+  private Set<RelationKey> existingRelations(final long parentId, final String childDimension) {
+    final Set<RelationKey> existing = new HashSet<>();
+    for (final BatchRelationship relation : init.getRelationships(parentId)) {
+      if (relation.getEndNode() == parentId && relation.getType().name().equals(childDimension)) {
+        final Object position = init.getRelationshipProperties(relation.getId()).get(Dimension.positionKey);
+        if (position instanceof Number) {
+          existing.add(RelationKey.key(relation.getStartNode(), parentId, childDimension, ((Number) position).intValue()));
+        }
+      }
+    }
+    return existing;
+  }
+
+  private long createNode(final Label label, final Object id) {
+    nodeProps.put(Value.idKey, id);
+    if (symbols != null && id instanceof String) {
+      nodeProps.put(Value.symbolKey, symbols.encode(label.name(), (String) id));
+    } else {
+      nodeProps.remove(Value.symbolKey);
+    }
+    createdNodes++;
+    return init.createNode(nodeProps, label);
+  }
+
+  private void constrainIdentifiers() {
+    for (final String dimension : dimensions) {
+      try {
+        init.createDeferredConstraint(Label.label(dimension)).assertPropertyIsUnique(Value.idKey).create();
+      } catch (final ConstraintViolationException e) {
+        logger.debug("Constraint on {}.{} exists already.", dimension, Value.idKey);
+      }
+    }
+  }
+
+  private void indexSymbols() {
+    for (final String dimension : dimensions) {
+      try {
+        init.createDeferredSchemaIndex(Label.label(dimension)).on(Value.symbolKey).create();
+      } catch (final ConstraintViolationException e) {
+        logger.debug("Index on {}.{} exists already.", dimension, Value.symbolKey);
+      }
+    }
+  }
+
+  /**
+   * Shuts the inserter down, which releases the store, but skips the aggregates, constraints and indexes.
+   * A batch inserter can't roll back, so what was added so far stays in the store.
+   */
   @Override
   public void abort() {
-    // TODO: What's happening with pending changes? Handle this more gently!!
-    throw new UnsupportedOperationException("Cancellation is not supported.");
+    logger.warn("Aborting {}. What was added so far stays in the store.", CachingBatchInitializer.class.getName());
+    nodes.close();
+    /* The nodes in the store have their symbols. */
+    if (symbols != null) {
+      symbols.save();
+    }
+    init.shutdown();
+    metrics.finish();
   }
 
   @Override
-  public void commit() {
+  public IngestSummary commit() {
+    final long entered = metrics.enter();
     logger.info("Commit and shutdown {}...", CachingBatchInitializer.class.getName());
+    logger.debug("Node dictionary holds {} values in about {} bytes.", nodes.size(), nodes.estimatedBytes());
+    metrics.dictionaryBytes(nodes.estimatedBytes());
+    nodes.close();
+    if (aggregates != null) {
+      logger.debug("Writing aggregates collected in about {} bytes...", aggregates.estimatedBytes());
+      aggregates.write(init);
+    }
+    if (constrainIdentifiers) {
+      constrainIdentifiers();
+    }
+    if (symbols != null) {
+      indexSymbols();
+      symbols.save();
+    }
+    /* Populates the indexes of deferred constraints and indexes. */
     init.shutdown();
+    metrics.exit(entered);
+    metrics.finish();
+    final IngestSummary summary = metrics.summary();
+    logger.info("Wrote {}.", summary);
+    return summary;
   }
 
 }
@@ -0,0 +1,72 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 objecttrouve.org <un.object.trouve@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.objecttrouve.fourtytwo.graphs.backend.init;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * {@link NodeDictionary} on top of a Guava {@link Cache} with {@link NodeKey}s.
+ * This used to be the only dictionary of the {@link CachingBatchInitializer}.
+ * It costs a key, a boxed id and a cache entry per value.
+ */
+public class CachingNodeDictionary implements NodeDictionary {
+
+    /* NodeKey, Long, cache entry and table slot on a 64 bit JVM with compressed oops. Identifiers not included. */
+    static final long bytesPerEntry = 24 + 16 + 64 + 8;
+
+    private final Cache<NodeKey, Long> nodes = CacheBuilder.newBuilder().build();
+
+    @Override
+    public long get(final String dimension, final Object identifier) {
+        final Long nodeId = nodes.getIfPresent(NodeKey.key(identifier, dimension));
+        return nodeId != null ? nodeId : absent;
+    }
+
+    @Override
+    public void put(final String dimension, final Object identifier, final long nodeId) {
+        nodes.put(NodeKey.key(identifier, dimension), nodeId);
+    }
+
+    @Override
+    public long computeIfAbsent(final String dimension, final Object identifier, final NodeFactory factory) {
+        return nodes.asMap().computeIfAbsent(NodeKey.key(identifier, dimension), key -> factory.create(dimension, identifier));
+    }
+
+    @Override
+    public long size() {
+        return nodes.size();
+    }
+
+    @Override
+    public long estimatedBytes() {
+        long identifierBytes = 0;
+        for (final NodeKey<?> key : nodes.asMap().keySet()) {
+            final Object id = key.getId();
+            identifierBytes += id instanceof String ? 40 + 2 * ((String) id).length() : 16;
+        }
+        return nodes.size() * bytesPerEntry + identifierBytes;
+    }
+}
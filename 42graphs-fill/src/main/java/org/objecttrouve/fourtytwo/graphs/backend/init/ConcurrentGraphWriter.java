@@ -0,0 +1,193 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 objecttrouve.org <un.object.trouve@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.objecttrouve.fourtytwo.graphs.backend.init;
+
+import org.objecttrouve.fourtytwo.graphs.api.GraphWriter;
+import org.objecttrouve.fourtytwo.graphs.api.IngestSummary;
+import org.objecttrouve.fourtytwo.graphs.api.NestedTree;
+import org.objecttrouve.fourtytwo.graphs.api.SequenceTree;
+import org.objecttrouve.fourtytwo.graphs.api.Tree;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * {@link GraphWriter} that any number of threads may {@link #add(SequenceTree)} to at the same time.
+ * Nested trees travel whole, so the actual writer gets to add them its own way.
+ * The trees travel through a bounded {@link MpscRingBuffer} to a single inserter thread, which owns the actual writer.
+ * The actual writer is created on the inserter thread, so thread-bound resources like Neo4j transactions work.
+ * {@link #commit()} and {@link #abort()} are to be called once all producers are done.
+ * The summary returned by {@link #commit()} is the actual writer's, so its caller time is the time the inserter
+ * waited for the queue.
+ */
+@ThreadSafe
+public class ConcurrentGraphWriter implements GraphWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConcurrentGraphWriter.class);
+    private static final long idleParkNanos = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long fullParkNanos = TimeUnit.MICROSECONDS.toNanos(20);
+
+    private enum Ending {none, commit, abort}
+
+    private final MpscRingBuffer<Tree<?>> queue;
+    private final Backpressure backpressure;
+    private final Thread inserter;
+
+    private volatile Ending ending = Ending.none;
+    private volatile boolean idle;
+    private volatile Throwable failure;
+    private volatile IngestSummary summary;
+
+    ConcurrentGraphWriter(final Supplier<GraphWriter> writerFactory, final int capacity, final Backpressure backpressure) {
+        this.queue = new MpscRingBuffer<>(capacity);
+        this.backpressure = backpressure;
+        this.inserter = new Thread(() -> insert(writerFactory), "42graphs-inserter");
+        this.inserter.setDaemon(true);
+        this.inserter.start();
+        logger.debug("Created {} with a queue of {} trees.", ConcurrentGraphWriter.class.getName(), queue.capacity());
+    }
+
+    @Override
+    public <T, U> GraphWriter add(final SequenceTree<T, U> sequenceTree) {
+        return enqueue(sequenceTree);
+    }
+
+    @Override
+    public <T, U> GraphWriter add(final NestedTree<T, U> nestedTree) {
+        return enqueue(nestedTree);
+    }
+
+    private GraphWriter enqueue(final Tree<?> tree) {
+        while (!queue.offer(tree)) {
+            checkOpen();
+            if (backpressure == Backpressure.fail) {
+                throw new IllegalStateException("Ingest queue is full.");
+            }
+            LockSupport.parkNanos(fullParkNanos);
+        }
+        checkOpen();
+        if (idle) {
+            LockSupport.unpark(inserter);
+        }
+        return this;
+    }
+
+    @Override
+    public IngestSummary commit() {
+        end(Ending.commit);
+        return summary;
+    }
+
+    @Override
+    public void abort() {
+        end(Ending.abort);
+    }
+
+    private void end(final Ending how) {
+        if (ending != Ending.none) {
+            throw new IllegalStateException("Writer has already been closed.");
+        }
+        ending = how;
+        LockSupport.unpark(inserter);
+        try {
+            inserter.join();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the inserter.", e);
+        }
+        if (failure != null) {
+            throw new IllegalStateException("Inserter failed.", failure);
+        }
+    }
+
+    private void checkOpen() {
+        if (failure != null) {
+            throw new IllegalStateException("Inserter failed.", failure);
+        }
+        if (ending != Ending.none) {
+            throw new IllegalStateException("Writer has already been closed.");
+        }
+    }
+
+    private void insert(final Supplier<GraphWriter> writerFactory) {
+        GraphWriter writer = null;
+        boolean committing = false;
+        try {
+            writer = writerFactory.get();
+            while (true) {
+                final Tree<?> tree = queue.poll();
+                if (tree != null) {
+                    if (ending != Ending.abort) {
+                        add(writer, tree);
+                    }
+                    continue;
+                }
+                if (ending != Ending.none) {
+                    /* Producers are done by contract, so an empty queue stays empty now. */
+                    break;
+                }
+                idle = true;
+                final Tree<?> raced = queue.poll();
+                if (raced == null) {
+                    LockSupport.parkNanos(this, idleParkNanos);
+                    idle = false;
+                } else {
+                    idle = false;
+                    if (ending != Ending.abort) {
+                        add(writer, raced);
+                    }
+                }
+            }
+            if (ending == Ending.commit) {
+                committing = true;
+                summary = writer.commit();
+            } else {
+                writer.abort();
+            }
+        } catch (final Throwable t) {
+            logger.error("Inserter failed.", t);
+            failure = t;
+            if (writer != null && !committing) {
+                try {
+                    writer.abort();
+                } catch (final RuntimeException e) {
+                    logger.warn("Could not abort after failure.", e);
+                }
+            }
+        }
+    }
+
+    private static void add(final GraphWriter writer, final Tree<?> tree) {
+        if (tree instanceof NestedTree) {
+            writer.add((NestedTree<?, ?>) tree);
+        } else {
+            writer.add((SequenceTree<?, ?>) tree);
+        }
+    }
+}
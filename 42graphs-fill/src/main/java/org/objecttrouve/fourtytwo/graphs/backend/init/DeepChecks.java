@@ -0,0 +1,199 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 objecttrouve.org <un.object.trouve@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.objecttrouve.fourtytwo.graphs.backend.init;
+
+import org.objecttrouve.fourtytwo.graphs.api.IntSequenceTree;
+import org.objecttrouve.fourtytwo.graphs.api.LongSequenceTree;
+import org.objecttrouve.fourtytwo.graphs.api.SequenceTree;
+import org.objecttrouve.fourtytwo.graphs.api.Tree;
+import org.objecttrouve.fourtytwo.graphs.api.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Checks of a {@link ValidatingWriter} that need to know all trees of a load, on a thread of their own,
+ * so that the writer doesn't wait for them:
+ * no root is added twice, each parent dimension has children in one dimension only,
+ * and the identifiers of a dimension are all of one type.
+ * The trees travel through a bounded {@link MpscRingBuffer}, so they mustn't change once they're added.
+ * Every root is kept, which takes about as much memory as a node dictionary.
+ */
+@ThreadSafe
+class DeepChecks {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeepChecks.class);
+    private static final int capacity = 4096;
+    private static final long idleParkNanos = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long fullParkNanos = TimeUnit.MICROSECONDS.toNanos(20);
+
+    private final MpscRingBuffer<Tree<?>> queue = new MpscRingBuffer<>(capacity);
+    private final Thread checker;
+    /* Checker thread only. */
+    private final Set<NodeKey<?>> roots = new HashSet<>();
+    private final Map<String, String> childDimensions = new HashMap<>();
+    private final Map<String, Class<?>> identifierTypes = new HashMap<>();
+    private long checked;
+
+    private volatile boolean ending;
+    private volatile boolean idle;
+    private volatile String problem;
+
+    DeepChecks() {
+        this.checker = new Thread(this::run, "42graphs-validator");
+        this.checker.setDaemon(true);
+        this.checker.start();
+    }
+
+    /** Queues the tree, and waits only if the checks are that far behind. */
+    void check(final Tree<?> tree) {
+        while (!queue.offer(tree)) {
+            if (problem != null || ending) {
+                return;
+            }
+            LockSupport.parkNanos(fullParkNanos);
+        }
+        if (idle) {
+            LockSupport.unpark(checker);
+        }
+    }
+
+    /** @return the first problem found so far, or {@code null} */
+    String problem() {
+        return problem;
+    }
+
+    /**
+     * Waits until the trees queued so far are checked, to be called once all producers are done.
+     * @return the first problem found, or {@code null}
+     */
+    String finish() {
+        ending = true;
+        LockSupport.unpark(checker);
+        try {
+            checker.join();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the deep checks.", e);
+        }
+        return problem;
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                final Tree<?> tree = queue.poll();
+                if (tree != null) {
+                    inspect(tree);
+                    continue;
+                }
+                if (ending) {
+                    /* Producers are done by contract, so an empty queue stays empty now. */
+                    break;
+                }
+                idle = true;
+                final Tree<?> raced = queue.poll();
+                if (raced == null) {
+                    LockSupport.parkNanos(this, idleParkNanos);
+                    idle = false;
+                } else {
+                    idle = false;
+                    inspect(raced);
+                }
+            }
+            logger.debug("Checked {} trees with {} roots.", checked, roots.size());
+        } catch (final RuntimeException e) {
+            logger.error("Deep checks failed.", e);
+            problem = "Deep checks failed: " + e;
+        }
+    }
+
+    private void inspect(final Tree<?> tree) {
+        if (problem != null) {
+            return;
+        }
+        checked++;
+        final String parentDimension = tree.getParentDimension().getName();
+        final String childDimension = tree.getChildDimension().getName();
+        final Object root = asStored(tree.getRoot().getIdentifier());
+        if (!roots.add(new NodeKey<>(root, parentDimension))) {
+            problem = "Root " + root + " in dimension " + parentDimension + " was added twice.";
+            return;
+        }
+        final String knownChildDimension = childDimensions.putIfAbsent(parentDimension, childDimension);
+        if (knownChildDimension != null && !knownChildDimension.equals(childDimension)) {
+            problem = "Dimension " + parentDimension + " has children in both " + knownChildDimension + " and " + childDimension + ".";
+            return;
+        }
+        typed(parentDimension, root);
+        /* Primitive identifiers can't be null and are all stored as longs, so there's nothing to box. */
+        if (tree instanceof IntSequenceTree) {
+            if (((IntSequenceTree<?>) tree).getIdentifiers().length > 0) {
+                typedAs(childDimension, Long.class);
+            }
+        } else if (tree instanceof LongSequenceTree) {
+            if (((LongSequenceTree<?>) tree).getIdentifiers().length > 0) {
+                typedAs(childDimension, Long.class);
+            }
+        } else if (tree instanceof SequenceTree) {
+            for (final Value<?> value : ((SequenceTree<?, ?>) tree).getValues()) {
+                typed(childDimension, asStored(value.getIdentifier()));
+            }
+        }
+    }
+
+    private void typed(final String dimension, final Object identifier) {
+        if (problem != null) {
+            return;
+        }
+        if (identifier == null) {
+            problem = "Identifier in dimension " + dimension + " is null.";
+            return;
+        }
+        typedAs(dimension, identifier.getClass());
+    }
+
+    private void typedAs(final String dimension, final Class<?> type) {
+        if (problem != null) {
+            return;
+        }
+        final Class<?> knownType = identifierTypes.putIfAbsent(dimension, type);
+        if (knownType != null && knownType != type) {
+            problem = "Dimension " + dimension + " has identifiers of both " + knownType.getSimpleName() + " and " + type.getSimpleName() + ".";
+        }
+    }
+
+    /* Integral numbers end up as longs in the store, whatever they went in as. */
+    private static Object asStored(final Object identifier) {
+        return identifier instanceof Integer || identifier instanceof Short || identifier instanceof Byte ? ((Number) identifier).longValue() : identifier;
+    }
+}
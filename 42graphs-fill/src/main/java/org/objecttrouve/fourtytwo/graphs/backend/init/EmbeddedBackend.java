@@ -25,10 +25,15 @@
 package org.objecttrouve.fourtytwo.graphs.backend.init;
 
 import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.ResourceIterator;
 import org.neo4j.graphdb.Transaction;
 import org.neo4j.unsafe.batchinsert.BatchInserter;
 import org.objecttrouve.fourtytwo.graphs.api.Graph;
 import org.objecttrouve.fourtytwo.graphs.api.GraphWriter;
+import org.objecttrouve.fourtytwo.graphs.api.IngestSummary;
+import org.objecttrouve.fourtytwo.graphs.api.NestedTree;
+import org.objecttrouve.fourtytwo.graphs.api.SequenceTree;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -40,38 +45,169 @@ public class EmbeddedBackend implements Graph {
 
   private static final Logger logger = LoggerFactory.getLogger(CachingBatchInitializer.class);
   private GraphDatabaseService db;
+  /* Shut down for a batch writer, which doesn't wait for availability like a service that's still starting. */
+  private boolean stopped;
   private final Supplier<GraphDatabaseService> serviceFactory;
   private final Supplier<BatchInserter> batchFactory;
+  private final BackendSettings settings;
+  private final IdentifierConstraints constraints;
+  private final SymbolTable symbols;
+  private final ExistenceFilter existence;
+  private final NodeIdCache nodeIds;
 
 
   public EmbeddedBackend(final Supplier<GraphDatabaseService> serviceFactory, final Supplier<BatchInserter> batchFactory) {
+    this(serviceFactory, batchFactory, BackendSettings.settings());
+  }
+
+  public EmbeddedBackend(final Supplier<GraphDatabaseService> serviceFactory, final Supplier<BatchInserter> batchFactory, final BackendSettings settings) {
     this.serviceFactory = serviceFactory;
     this.batchFactory = batchFactory;
-    this.db = serviceFactory.get();
+    this.settings = settings;
+    this.constraints = settings.isConstrainingIdentifiers() || settings.isEncodingSymbols() ? new IdentifierConstraints(settings) : null;
+    this.symbols = settings.isEncodingSymbols() ? SymbolTable.open(settings.symbolStore()) : null;
+    this.existence = settings.isFilteringExistence() ? settings.existenceFilter() : null;
+    this.nodeIds = settings.isCachingNodeIds() ? settings.nodeIdCache() : null;
+    this.db = start();
     logger.debug("Created {}.", EmbeddedBackend.class.getName());
   }
 
   @Override
   public GraphWriter writer(final boolean init) {
+    if (settings.isConcurrent() && !(init && settings.isImportingOffline() && settings.importShards() > 1)) {
+      return new ConcurrentGraphWriter(() -> newWriter(init), settings.queueCapacity(), settings.backpressure());
+    }
+    return newWriter(init);
+  }
+
+  private GraphWriter newWriter(final boolean init) {
     if (!init) {
       final GraphDatabaseService dbs = getDb();
       final Transaction transaction = dbs.beginTx();
-      return new TransactionalWriter(db, transaction);
+      return new TransactionalWriter(db, transaction, settings, constraints, symbols, existence, nodeIds);
+    } else if (settings.isImportingOffline()) {
+      stop();
+      if (settings.importShards() > 1) {
+        return reopening(new ShardedImportWriter(settings.importStore(), settings, batchFactory, symbols));
+      }
+      return reopening(new OfflineImportWriter(settings.importStore(), settings, batchFactory, symbols));
     } else {
-      db.shutdown();
-      return new CachingBatchInitializer(batchFactory.get());
+      if (settings.isAggregatingAtIngest() && settings.isIncremental()) {
+        throw new IllegalStateException("Ingest aggregates only cover what is added in one load, they can't be combined with incremental batches.");
+      }
+      final NodeDictionary nodes = settings.nodeDictionary();
+      /* With identifier constraints, nodes created again would fail them when the batch inserter shuts down. */
+      if (settings.isIncremental() || (settings.isConstrainingIdentifiers() && !isEmpty(getDb()))) {
+        NodeDictionaryWarmUp.warmUp(getDb(), nodes);
+      }
+      stop();
+      return reopening(new CachingBatchInitializer(batchFactory.get(), settings, nodes, symbols));
     }
   }
 
+  private static boolean isEmpty(final GraphDatabaseService db) {
+    try (final Transaction tx = db.beginTx(); final ResourceIterator<Node> nodes = db.getAllNodes().iterator()) {
+      final boolean empty = !nodes.hasNext();
+      tx.success();
+      return empty;
+    }
+  }
+
+  /* The batch writers need the store to themselves. */
+  private void stop() {
+    db.shutdown();
+    stopped = true;
+  }
+
+  private GraphWriter reopening(final GraphWriter batchWriter) {
+    return settings.isReopeningAfterBatch() ? new ReopeningWriter(batchWriter) : batchWriter;
+  }
+
+  /** Starts the database service again once the batch writer is done with the store. */
+  private class ReopeningWriter implements GraphWriter {
+
+    private final GraphWriter batchWriter;
+
+    private ReopeningWriter(final GraphWriter batchWriter) {
+      this.batchWriter = batchWriter;
+    }
+
+    @Override
+    public <T, U> GraphWriter add(final SequenceTree<T, U> sequenceTree) {
+      batchWriter.add(sequenceTree);
+      return this;
+    }
+
+    @Override
+    public <T, U> GraphWriter add(final NestedTree<T, U> nestedTree) {
+      batchWriter.add(nestedTree);
+      return this;
+    }
+
+    @Override
+    public GraphWriter addAll(final Iterable<? extends SequenceTree<?, ?>> sequenceTrees) {
+      batchWriter.addAll(sequenceTrees);
+      return this;
+    }
+
+    @Override
+    public IngestSummary commit() {
+      final IngestSummary summary = batchWriter.commit();
+      getDb();
+      return summary;
+    }
+
+    @Override
+    public void abort() {
+      batchWriter.abort();
+      getDb();
+    }
+  }
+
+  /** The symbols of the string identifiers, if {@link BackendSettings#withSymbolTable(java.io.File)} is set, otherwise {@code null}. */
+  public SymbolTable symbols() {
+    return symbols;
+  }
+
+  /**
+   * The database service, started again if a batch writer stopped it.
+   * A batch writer from {@link #writer(boolean)} stops it again, so it's better not kept across batch loads.
+   */
+  public GraphDatabaseService service() {
+    return getDb();
+  }
+
   GraphDatabaseService getDb() {
-    if (!db.isAvailable(10000)) {
-      db = serviceFactory.get();
+    if (stopped || !db.isAvailable(10000)) {
+      db = start();
+      stopped = false;
     }
     return db;
   }
 
+  /* Also after a batch writer or import, which don't update the existence filter, and may have replaced the store. */
+  private GraphDatabaseService start() {
+    final GraphDatabaseService service = serviceFactory.get();
+    if (!service.isAvailable(10000)) {
+      throw new IllegalStateException("Database service isn't available. Does the service factory start a new one each time?");
+    }
+    if (settings.isWarmingUpPageCache()) {
+      PageCacheWarmUp.warmUp(service);
+    }
+    if (nodeIds != null) {
+      nodeIds.clear();
+    }
+    if (existence != null) {
+      existence.rebuild(service);
+    }
+    return service;
+  }
+
   @Override
   public void shutdown() {
+    if (nodeIds != null) {
+      logger.debug("Node id cache had {} hits and {} misses.", nodeIds.hits(), nodeIds.misses());
+    }
     db.shutdown();
   }
 
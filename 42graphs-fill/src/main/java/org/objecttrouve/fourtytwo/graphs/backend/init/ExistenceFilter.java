@@ -0,0 +1,110 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 objecttrouve.org <un.object.trouve@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.objecttrouve.fourtytwo.graphs.backend.init;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnel;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
+import org.objecttrouve.fourtytwo.graphs.api.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One Bloom filter per dimension over the identifiers in the store.
+ * If it doesn't know an identifier, the identifier is certainly not in the store, so its node can be created without a lookup.
+ * If it does, the identifier is probably in the store, and has to be looked up.
+ * Identifiers are only ever added, so deleted ones just count as probably there.
+ */
+@ThreadSafe
+class ExistenceFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExistenceFilter.class);
+
+    /* Integral numbers go in as longs, which is how the store gives them back. */
+    private static final Funnel<Object> identifiers = (identifier, sink) -> {
+        if (identifier instanceof Integer || identifier instanceof Long || identifier instanceof Short || identifier instanceof Byte) {
+            sink.putByte((byte) 1).putLong(((Number) identifier).longValue());
+        } else if (identifier instanceof String) {
+            sink.putByte((byte) 2).putString((String) identifier, StandardCharsets.UTF_8);
+        } else {
+            sink.putByte((byte) 3).putString(String.valueOf(identifier), StandardCharsets.UTF_8);
+        }
+    };
+
+    private final long expectedIdentifiers;
+    private final double falsePositives;
+    private volatile Map<String, BloomFilter<Object>> filters = new ConcurrentHashMap<>();
+
+    /**
+     * @param expectedIdentifiers per dimension, beyond which the false positive rate goes up
+     * @param falsePositives probability that an identifier not in the store is taken for one that is
+     */
+    ExistenceFilter(final long expectedIdentifiers, final double falsePositives) {
+        this.expectedIdentifiers = expectedIdentifiers;
+        this.falsePositives = falsePositives;
+    }
+
+    boolean mightContain(final String dimension, final Object identifier) {
+        final BloomFilter<Object> filter = filters.get(dimension);
+        return filter != null && filter.mightContain(identifier);
+    }
+
+    void put(final String dimension, final Object identifier) {
+        filter(filters, dimension).put(identifier);
+    }
+
+    private BloomFilter<Object> filter(final Map<String, BloomFilter<Object>> filters, final String dimension) {
+        return filters.computeIfAbsent(dimension, d -> BloomFilter.create(identifiers, expectedIdentifiers, falsePositives));
+    }
+
+    /** Replaces what the filter knows with the identifiers in the store, e.g. after a batch writer wrote to it. */
+    void rebuild(final GraphDatabaseService db) {
+        final long start = System.nanoTime();
+        final Map<String, BloomFilter<Object>> rebuilt = new ConcurrentHashMap<>();
+        long count = 0;
+        try (final Transaction tx = db.beginTx()) {
+            for (final Node node : db.getAllNodes()) {
+                final Object identifier = node.getProperty(Value.idKey, null);
+                if (identifier != null) {
+                    for (final Label label : node.getLabels()) {
+                        filter(rebuilt, label.name()).put(identifier);
+                        count++;
+                    }
+                }
+            }
+            tx.success();
+        }
+        filters = rebuilt;
+        logger.info("Rebuilt existence filters of {} dimensions with {} identifiers in {} ms.", rebuilt.size(), count, (System.nanoTime() - start) / 1_000_000);
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 objecttrouve.org <un.object.trouve@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.objecttrouve.fourtytwo.graphs.backend.init;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.schema.ConstraintDefinition;
+import org.neo4j.graphdb.schema.ConstraintType;
+import org.neo4j.graphdb.schema.IndexDefinition;
+import org.objecttrouve.fourtytwo.graphs.api.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.util.concurrent.TimeUnit.MINUTES;
+
+/**
+ * Keeps track of the uniqueness constraints (and thus indexes) on the identifier of the dimensions written
+ * by transactional writers, and of the indexes on their symbols, if any.
+ * Neo4j refuses to commit a transaction if constraints changed after it began, so they must be created
+ * while the writing thread has no transaction open.
+ */
+@ThreadSafe
+class IdentifierConstraints {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdentifierConstraints.class);
+
+    private final Set<String> known = ConcurrentHashMap.newKeySet();
+    private final boolean unique;
+    private final boolean symbols;
+
+    IdentifierConstraints(final BackendSettings settings) {
+        this.unique = settings.isConstrainingIdentifiers();
+        this.symbols = settings.isEncodingSymbols();
+    }
+
+    boolean isKnown(final String dimension) {
+        return known.contains(dimension);
+    }
+
+    /** Must not be called within a transaction. */
+    synchronized void create(final GraphDatabaseService db, final Collection<String> dimensions) {
+        try (final Transaction tx = db.beginTx()) {
+            for (final String dimension : dimensions) {
+                final Label label = Label.label(dimension);
+                if (unique && !isConstrained(db, label)) {
+                    logger.debug("Creating constraint on {}.{}...", dimension, Value.idKey);
+                    db.schema().constraintFor(label).assertPropertyIsUnique(Value.idKey).create();
+                }
+                if (symbols && !isIndexed(db, label, Value.symbolKey)) {
+                    logger.debug("Creating index on {}.{}...", dimension, Value.symbolKey);
+                    db.schema().indexFor(label).on(Value.symbolKey).create();
+                }
+            }
+            tx.success();
+        } catch (final RuntimeException e) {
+            /* E.g. existing duplicates. Writing still works, just without an index. */
+            logger.warn("Couldn't create constraints on {}.", dimensions, e);
+        }
+        try (final Transaction tx = db.beginTx()) {
+            db.schema().awaitIndexesOnline(10, MINUTES);
+            tx.success();
+        }
+        known.addAll(dimensions);
+    }
+
+    private static boolean isIndexed(final GraphDatabaseService db, final Label label, final String key) {
+        for (final IndexDefinition index : db.schema().getIndexes(label)) {
+            for (final String indexed : index.getPropertyKeys()) {
+                if (key.equals(indexed)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean isConstrained(final GraphDatabaseService db, final Label label) {
+        for (final ConstraintDefinition constraint : db.schema().getConstraints(label)) {
+            if (constraint.isConstraintType(ConstraintType.UNIQUENESS)) {
+                for (final String key : constraint.getPropertyKeys()) {
+                    if (Value.idKey.equals(key)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+}
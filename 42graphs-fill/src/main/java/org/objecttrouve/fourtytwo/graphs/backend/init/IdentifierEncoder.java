@@ -0,0 +1,144 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 objecttrouve.org <un.object.trouve@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.objecttrouve.fourtytwo.graphs.backend.init;
+
+import java.util.Arrays;
+
+/**
+ * Encodes identifiers into a reusable byte buffer.
+ * The first byte tags the type so that, as with {@link Object#equals(Object)}, {@code 1} and {@code 1L} stay distinct.
+ * Strings are written as UTF-8 without going through an intermediate {@code byte[]}.
+ */
+class IdentifierEncoder {
+
+    static final int notEncodable = -1;
+
+    private static final byte tagString = 1;
+    private static final byte tagInteger = 2;
+    private static final byte tagLong = 3;
+    private static final byte tagShort = 4;
+    private static final byte tagByte = 5;
+    private static final byte tagCharacter = 6;
+    private static final byte tagBoolean = 7;
+    private static final byte tagDouble = 8;
+    private static final byte tagFloat = 9;
+
+    private byte[] buffer = new byte[64];
+
+    byte[] buffer() {
+        return buffer;
+    }
+
+    /** @return the number of bytes written to {@link #buffer()} or {@link #notEncodable}. */
+    int encode(final Object identifier) {
+        if (identifier instanceof String) {
+            return encodeString((String) identifier);
+        } else if (identifier instanceof Integer) {
+            return encodeInt((Integer) identifier);
+        } else if (identifier instanceof Long) {
+            return encodeLong((Long) identifier);
+        } else if (identifier instanceof Short) {
+            return fixed(tagShort, (Short) identifier, 2);
+        } else if (identifier instanceof Byte) {
+            return fixed(tagByte, (Byte) identifier, 1);
+        } else if (identifier instanceof Character) {
+            return fixed(tagCharacter, (Character) identifier, 2);
+        } else if (identifier instanceof Boolean) {
+            return fixed(tagBoolean, (Boolean) identifier ? 1 : 0, 1);
+        } else if (identifier instanceof Double) {
+            return fixed(tagDouble, Double.doubleToLongBits((Double) identifier), 8);
+        } else if (identifier instanceof Float) {
+            return fixed(tagFloat, Float.floatToIntBits((Float) identifier), 4);
+        }
+        return notEncodable;
+    }
+
+    int encodeInt(final int identifier) {
+        return fixed(tagInteger, identifier, 4);
+    }
+
+    int encodeLong(final long identifier) {
+        return fixed(tagLong, identifier, 8);
+    }
+
+    private int fixed(final byte tag, final long bits, final int width) {
+        ensure(width + 1);
+        buffer[0] = tag;
+        for (int i = 0; i < width; i++) {
+            buffer[i + 1] = (byte) (bits >>> (8 * (width - 1 - i)));
+        }
+        return width + 1;
+    }
+
+    private int encodeString(final String s) {
+        final int chars = s.length();
+        ensure(chars * 3 + 1);
+        final byte[] b = buffer;
+        b[0] = tagString;
+        int pos = 1;
+        for (int i = 0; i < chars; i++) {
+            final char c = s.charAt(i);
+            if (c < 0x80) {
+                b[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                b[pos++] = (byte) (0xC0 | (c >> 6));
+                b[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < chars && Character.isLowSurrogate(s.charAt(i + 1))) {
+                final int cp = Character.toCodePoint(c, s.charAt(++i));
+                b[pos++] = (byte) (0xF0 | (cp >> 18));
+                b[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                b[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                b[pos++] = (byte) (0x80 | (cp & 0x3F));
+            } else {
+                /* Lone surrogates are kept as they are (CESU-style) so that distinct strings stay distinct. */
+                b[pos++] = (byte) (0xE0 | (c >> 12));
+                b[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                b[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return pos;
+    }
+
+    private void ensure(final int capacity) {
+        if (buffer.length < capacity) {
+            buffer = Arrays.copyOf(buffer, Math.max(capacity, buffer.length * 2));
+        }
+    }
+
+    static int hash(final byte[] bytes, final int length) {
+        int h = 0x9747b28c;
+        for (int i = 0; i < length; i++) {
+            h = 31 * h + bytes[i];
+        }
+        h ^= length;
+        /* Murmur3 finalizer, so that the low bits are usable as a table index. */
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
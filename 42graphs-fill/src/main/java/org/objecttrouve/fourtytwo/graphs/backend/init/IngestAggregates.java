@@ -0,0 +1,179 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 objecttrouve.org <un.object.trouve@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.objecttrouve.fourtytwo.graphs.backend.init;
+
+import org.neo4j.unsafe.batchinsert.BatchInserter;
+import org.neo4j.unsafe.batchinsert.BatchRelationship;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Collects the aggregates of the {@code org.objecttrouve.fourtytwo.aggregate*} procedures
+ * while the batch writer adds trees, and writes them as the same node properties on commit:
+ * <ul>
+ * <li>{@code length_<child>} on parents, as {@code aggregateLength} does,</li>
+ * <li>{@code directNeighbourCount_<child>} on children, as {@code aggregateDirectNeighbourCount} does,</li>
+ * <li>{@code positionCounts_<parent>_<child>} on grandparents, as {@code aggregatePositionCounts} does,
+ * for each grandparent dimension that was written in the same load.</li>
+ * </ul>
+ * Only what passes through the writer is covered, so the store has to be empty before the load.
+ * Not thread-safe.
+ */
+class IngestAggregates {
+
+    static final String lengthPrefix = "length_";
+    static final String neighbourCountPrefix = "directNeighbourCount_";
+    static final String positionCountsPrefix = "positionCounts_";
+
+    /** What is collected for one parent and child dimension. */
+    static class Pair {
+        private final String parentDimension;
+        private final String childDimension;
+        /* Parent node id to the number of its relationships. */
+        private final LongToIntTable lengths = new LongToIntTable();
+        /* Child node ids next to each other under some parent, in both directions. */
+        private final LongPairSet neighbours = new LongPairSet();
+
+        private Pair(final String parentDimension, final String childDimension) {
+            this.parentDimension = parentDimension;
+            this.childDimension = childDimension;
+        }
+
+        /**
+         * Starts a tree, whose children are then handed in one by one in sequence order, so they needn't be held.
+         * @param existing the relationships the parent had before, empty for a new parent
+         */
+        Sequence sequence(final long parentId, final Set<RelationKey> existing) {
+            return new Sequence(parentId, existing);
+        }
+
+        /** A tree of the pair, collected child by child. Children at neighbouring positions that the parent had before count as neighbours, too. */
+        final class Sequence {
+            private final long parentId;
+            /* The child node ids the parent had before, by position. */
+            private final Map<Integer, List<Long>> existing;
+            private long previous;
+            private int length;
+
+            private Sequence(final long parentId, final Set<RelationKey> existing) {
+                this.parentId = parentId;
+                this.existing = existing.isEmpty() ? Collections.emptyMap() : new HashMap<>();
+                for (final RelationKey relation : existing) {
+                    this.existing.computeIfAbsent(relation.getPosition(), p -> new ArrayList<>()).add(relation.getChildNode());
+                }
+            }
+
+            void child(final long childId) {
+                if (length > 0) {
+                    neighbours(previous, childId);
+                }
+                if (!existing.isEmpty()) {
+                    for (final long before : existing.getOrDefault(length - 1, Collections.emptyList())) {
+                        neighbours(before, childId);
+                    }
+                    for (final long after : existing.getOrDefault(length + 1, Collections.emptyList())) {
+                        neighbours(after, childId);
+                    }
+                }
+                previous = childId;
+                length++;
+            }
+
+            /** @param created how many of the tree's relationships were new */
+            void end(final int created) {
+                if (created > 0) {
+                    lengths.add(parentId, created);
+                }
+            }
+        }
+
+        private void neighbours(final long one, final long other) {
+            neighbours.add(one, other);
+            neighbours.add(other, one);
+        }
+
+        long estimatedBytes() {
+            return lengths.estimatedBytes() + neighbours.estimatedBytes();
+        }
+    }
+
+    private final List<Pair> pairs = new ArrayList<>();
+
+    Pair pair(final String parentDimension, final String childDimension) {
+        final Pair pair = new Pair(parentDimension, childDimension);
+        pairs.add(pair);
+        return pair;
+    }
+
+    long estimatedBytes() {
+        return pairs.stream().mapToLong(Pair::estimatedBytes).sum();
+    }
+
+    void write(final BatchInserter init) {
+        for (final Pair pair : pairs) {
+            final String lengthKey = lengthPrefix + pair.childDimension;
+            pair.lengths.forEach((parentId, length) -> init.setNodeProperty(parentId, lengthKey, (long) length));
+            final LongToIntTable neighbourCounts = new LongToIntTable();
+            pair.neighbours.forEach((childId, neighbourId) -> neighbourCounts.add(childId, 1));
+            final String neighbourKey = neighbourCountPrefix + pair.childDimension;
+            neighbourCounts.forEach((childId, count) -> init.setNodeProperty(childId, neighbourKey, (long) count));
+        }
+        for (final Pair upper : pairs) {
+            for (final Pair lower : pairs) {
+                if (upper.childDimension.equals(lower.parentDimension)) {
+                    writePositionCounts(init, upper, lower);
+                }
+            }
+        }
+    }
+
+    /* Reads the relationships of the grandparents back rather than keeping them all in memory. */
+    private static void writePositionCounts(final BatchInserter init, final Pair upper, final Pair lower) {
+        final String key = positionCountsPrefix + lower.parentDimension + "_" + lower.childDimension;
+        upper.lengths.forEach((grandParentId, ignored) -> {
+            int[] counts = new int[16];
+            int longest = 0;
+            for (final BatchRelationship relation : init.getRelationships(grandParentId)) {
+                if (relation.getEndNode() == grandParentId && relation.getType().name().equals(upper.childDimension)) {
+                    final int length = lower.lengths.get(relation.getStartNode());
+                    if (length > counts.length) {
+                        counts = Arrays.copyOf(counts, Math.max(length, counts.length << 1));
+                    }
+                    for (int i = 0; i < length; i++) {
+                        counts[i]++;
+                    }
+                    longest = Math.max(longest, length);
+                }
+            }
+            init.setNodeProperty(grandParentId, key, Arrays.copyOf(counts, longest));
+        });
+    }
+}
@@ -0,0 +1,340 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 objecttrouve.org <un.object.trouve@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.objecttrouve.fourtytwo.graphs.backend.init;
+
+import org.objecttrouve.fourtytwo.graphs.api.IngestSummary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.concurrent.ThreadSafe;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts what a writer does, to be read from any thread, e.g. over JMX while a load is running.
+ * Only the writer's own thread updates the counters, so plain writes to volatile fields do.
+ * Writers wrap each call in {@link #enter()} and {@link #exit(long)}, which splits the wall-clock time into
+ * time spent in the store (the writer) and time spent in the caller (producing the next trees).
+ */
+@ThreadSafe
+public class IngestMetrics implements IngestMetricsMBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(IngestMetrics.class);
+    private static final String domain = "org.objecttrouve.fourtytwo";
+    private static final AtomicInteger sequence = new AtomicInteger();
+    private static final int buckets = Integer.SIZE + 1;
+    /** Writers sample the size of their dictionary whenever the tree count has these bits clear. */
+    static final long samplingMask = (1 << 16) - 1;
+
+    private final long created = System.nanoTime();
+    private final ObjectName name;
+    private final AtomicLongArray treeLengths = new AtomicLongArray(buckets);
+    private volatile long trees;
+    private volatile long nodes;
+    private volatile long relationships;
+    private volatile long lookups;
+    private volatile long misses;
+    private volatile long dictionaryBytes;
+    private volatile long storeNanos;
+    private volatile long callerNanos;
+    private volatile long finished;
+    private long lastExit;
+
+    /**
+     * @param writer  type of the writer, which becomes part of the MBean's name
+     * @param exposed whether to register as an MBean until {@link #finish()}
+     */
+    IngestMetrics(final Class<?> writer, final boolean exposed) {
+        this.name = exposed ? register(writer) : null;
+    }
+
+    private ObjectName register(final Class<?> writer) {
+        try {
+            final ObjectName objectName = new ObjectName(domain + ":type=Ingest,name=" + writer.getSimpleName() + "-" + sequence.incrementAndGet());
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            logger.debug("Registered {}.", objectName);
+            return objectName;
+        } catch (final JMException e) {
+            logger.warn("Couldn't register ingest metrics.", e);
+            return null;
+        }
+    }
+
+    /** @return the current time, to be handed to {@link #exit(long)} */
+    long enter() {
+        final long now = System.nanoTime();
+        if (lastExit != 0) {
+            callerNanos = callerNanos + (now - lastExit);
+        }
+        return now;
+    }
+
+    void exit(final long entered) {
+        lastExit = System.nanoTime();
+        storeNanos = storeNanos + (lastExit - entered);
+    }
+
+    /** One tree with the given number of children, which took one lookup per child plus one for the root. */
+    void tree(final int length) {
+        tree(length, length + 1);
+    }
+
+    /** One tree with the given number of children, which took the given number of lookups. */
+    void tree(final int length, final int lookups) {
+        trees = trees + 1;
+        this.lookups = this.lookups + lookups;
+        final int bucket = buckets - 1 - Integer.numberOfLeadingZeros(length);
+        treeLengths.lazySet(bucket, treeLengths.get(bucket) + 1);
+    }
+
+    /** Nodes created on a dictionary miss, and relationships. */
+    void created(final long createdNodes, final long createdRelationships) {
+        nodes = nodes + createdNodes;
+        misses = misses + createdNodes;
+        relationships = relationships + createdRelationships;
+    }
+
+    /**
+     * Adds the trees, lookups, misses and relationships of a part of the load, like a shard, but not its nodes.
+     * A node the parts share is a miss in each of them, but is only counted once by {@link #merged(long)}.
+     */
+    void include(final IngestSummary part) {
+        trees = trees + part.getTrees();
+        lookups = lookups + part.getDictionaryLookups();
+        misses = misses + part.getDictionaryMisses();
+        relationships = relationships + part.getRelationships();
+        final long[] histogram = part.getTreeLengthHistogram();
+        for (int i = 0; i < histogram.length && i < buckets; i++) {
+            treeLengths.lazySet(i, treeLengths.get(i) + histogram[i]);
+        }
+    }
+
+    /** Nodes created when merging the parts, which aren't dictionary misses of the load. */
+    void merged(final long mergedNodes) {
+        nodes = nodes + mergedNodes;
+    }
+
+    void dictionaryBytes(final long bytes) {
+        dictionaryBytes = bytes;
+    }
+
+    /** Stops the clock and unregisters the MBean. */
+    void finish() {
+        finished = System.nanoTime();
+        if (name == null) {
+            return;
+        }
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (final JMException e) {
+            logger.warn("Couldn't unregister {}.", name, e);
+        }
+    }
+
+    /** A snapshot of the counters, which doesn't change anymore. */
+    public IngestSummary summary() {
+        return new Summary(trees, nodes, relationships, lookups, misses, dictionaryBytes, getTreeLengthHistogram(), storeNanos, callerNanos, elapsedNanos());
+    }
+
+    @Override
+    public long getTrees() {
+        return trees;
+    }
+
+    @Override
+    public long getNodes() {
+        return nodes;
+    }
+
+    @Override
+    public long getRelationships() {
+        return relationships;
+    }
+
+    @Override
+    public double getTreesPerSecond() {
+        return perSecond(trees);
+    }
+
+    @Override
+    public double getNodesPerSecond() {
+        return perSecond(nodes);
+    }
+
+    @Override
+    public double getRelationshipsPerSecond() {
+        return perSecond(relationships);
+    }
+
+    @Override
+    public long getDictionaryHits() {
+        return lookups - misses;
+    }
+
+    @Override
+    public long getDictionaryMisses() {
+        return misses;
+    }
+
+    @Override
+    public double getDictionaryHitRatio() {
+        final long l = lookups;
+        return l == 0 ? 0 : (double) (l - misses) / l;
+    }
+
+    @Override
+    public long getDictionaryBytes() {
+        return dictionaryBytes;
+    }
+
+    @Override
+    public long[] getTreeLengthHistogram() {
+        final long[] histogram = new long[buckets];
+        for (int i = 0; i < buckets; i++) {
+            histogram[i] = treeLengths.get(i);
+        }
+        return histogram;
+    }
+
+    @Override
+    public long getStoreMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(storeNanos);
+    }
+
+    @Override
+    public long getCallerMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(callerNanos);
+    }
+
+    @Override
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(elapsedNanos());
+    }
+
+    private long elapsedNanos() {
+        final long end = finished;
+        return (end == 0 ? System.nanoTime() : end) - created;
+    }
+
+    private double perSecond(final long count) {
+        final long elapsed = elapsedNanos();
+        return elapsed == 0 ? 0 : count * 1e9 / elapsed;
+    }
+
+    private static class Summary implements IngestSummary {
+
+        private final long trees;
+        private final long nodes;
+        private final long relationships;
+        private final long lookups;
+        private final long misses;
+        private final long dictionaryBytes;
+        private final long[] treeLengthHistogram;
+        private final long storeNanos;
+        private final long callerNanos;
+        private final long elapsedNanos;
+
+        Summary(final long trees, final long nodes, final long relationships, final long lookups, final long misses, final long dictionaryBytes, //
+                final long[] treeLengthHistogram, final long storeNanos, final long callerNanos, final long elapsedNanos) {
+            this.trees = trees;
+            this.nodes = nodes;
+            this.relationships = relationships;
+            this.lookups = lookups;
+            this.misses = misses;
+            this.dictionaryBytes = dictionaryBytes;
+            this.treeLengthHistogram = treeLengthHistogram;
+            this.storeNanos = storeNanos;
+            this.callerNanos = callerNanos;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        @Override
+        public long getTrees() {
+            return trees;
+        }
+
+        @Override
+        public long getNodes() {
+            return nodes;
+        }
+
+        @Override
+        public long getRelationships() {
+            return relationships;
+        }
+
+        @Override
+        public long getDictionaryLookups() {
+            return lookups;
+        }
+
+        @Override
+        public long getDictionaryMisses() {
+            return misses;
+        }
+
+        @Override
+        public long getDictionaryBytes() {
+            return dictionaryBytes;
+        }
+
+        @Override
+        public long[] getTreeLengthHistogram() {
+            return treeLengthHistogram.clone();
+        }
+
+        @Override
+        public long getStoreNanos() {
+            return storeNanos;
+        }
+
+        @Override
+        public long getCallerNanos() {
+            return callerNanos;
+        }
+
+        @Override
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return trees + " trees, " + nodes + " nodes, " + relationships + " relationships in "
+                + TimeUnit.NANOSECONDS.toMillis(elapsedNanos) + " ms ("
+                + TimeUnit.NANOSECONDS.toMillis(storeNanos) + " ms in the store, "
+                + TimeUnit.NANOSECONDS.toMillis(callerNanos) + " ms in the caller), "
+                + (lookups - misses) + " dictionary hits and " + misses + " misses, " + dictionaryBytes + " dictionary bytes";
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 objecttrouve.org <un.object.trouve@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.objecttrouve.fourtytwo.graphs.backend.init;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash set of ordered pairs of node ids (non-negative {@code long}s) with linear probing.
+ * A pair costs about 23 bytes of slot arrays and no objects.
+ * Not thread-safe.
+ */
+class LongPairSet {
+
+    interface Visitor {
+        void visit(long first, long second);
+    }
+
+    private static final long free = -1;
+    private static final float maxLoad = 0.7f;
+
+    private long[] firsts;
+    private long[] seconds;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    LongPairSet() {
+        allocate(1 << 10);
+    }
+
+    /** @return whether the pair is new */
+    boolean add(final long first, final long second) {
+        int slot = slot(first, second);
+        for (; firsts[slot] != free; slot = (slot + 1) & mask) {
+            if (firsts[slot] == first && seconds[slot] == second) {
+                return false;
+            }
+        }
+        firsts[slot] = first;
+        seconds[slot] = second;
+        if (++size >= resizeAt) {
+            grow();
+        }
+        return true;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long estimatedBytes() {
+        return (long) firsts.length * (8 + 8);
+    }
+
+    void forEach(final Visitor visitor) {
+        for (int slot = 0; slot < firsts.length; slot++) {
+            if (firsts[slot] != free) {
+                visitor.visit(firsts[slot], seconds[slot]);
+            }
+        }
+    }
+
+    private int slot(final long first, final long second) {
+        final long h = (first * 0x9E3779B97F4A7C15L + second) * 0xC2B2AE3D27D4EB4FL;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private void allocate(final int capacity) {
+        firsts = new long[capacity];
+        Arrays.fill(firsts, free);
+        seconds = new long[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * maxLoad);
+    }
+
+    private void grow() {
+        final long[] oldFirsts = firsts;
+        final long[] oldSeconds = seconds;
+        allocate(oldFirsts.length << 1);
+        for (int i = 0; i < oldFirsts.length; i++) {
+            if (oldFirsts[i] != free) {
+                int slot = slot(oldFirsts[i], oldSeconds[i]);
+                while (firsts[slot] != free) {
+                    slot = (slot + 1) & mask;
+                }
+                firsts[slot] = oldFirsts[i];
+                seconds[slot] = oldSeconds[i];
+            }
+        }
+    }
+}
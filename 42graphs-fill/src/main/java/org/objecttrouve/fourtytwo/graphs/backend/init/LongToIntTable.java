@@ -0,0 +1,123 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 objecttrouve.org <un.object.trouve@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.objecttrouve.fourtytwo.graphs.backend.init;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash table from node ids (non-negative {@code long}s) to {@code int}s with linear probing.
+ * An entry costs about 17 bytes of slot arrays and no objects.
+ * Not thread-safe.
+ */
+class LongToIntTable {
+
+    interface Visitor {
+        void visit(long key, int value);
+    }
+
+    private static final long free = -1;
+    private static final float maxLoad = 0.7f;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    LongToIntTable() {
+        allocate(1 << 10);
+    }
+
+    /** Adds to the value of the key, which starts out at {@code 0}. */
+    void add(final long key, final int delta) {
+        int slot = slot(key);
+        for (; keys[slot] != free; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                values[slot] += delta;
+                return;
+            }
+        }
+        keys[slot] = key;
+        values[slot] = delta;
+        if (++size >= resizeAt) {
+            grow();
+        }
+    }
+
+    /** @return the value of the key, {@code 0} if there is none */
+    int get(final long key) {
+        for (int slot = slot(key); keys[slot] != free; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+        }
+        return 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long estimatedBytes() {
+        return (long) keys.length * (8 + 4);
+    }
+
+    void forEach(final Visitor visitor) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != free) {
+                visitor.visit(keys[slot], values[slot]);
+            }
+        }
+    }
+
+    private int slot(final long key) {
+        final long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private void allocate(final int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, free);
+        values = new int[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * maxLoad);
+    }
+
+    private void grow() {
+        final long[] oldKeys = keys;
+        final int[] oldValues = values;
+        allocate(oldKeys.length << 1);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != free) {
+                int slot = slot(oldKeys[i]);
+                while (keys[slot] != free) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 objecttrouve.org <un.object.trouve@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.objecttrouve.fourtytwo.graphs.backend.init;
+
+import java.io.Closeable;
+import java.nio.file.Path;
+
+/**
+ * Open-addressing hash table from byte strings to {@code long}s with linear probing, like {@link BytesToLongTable},
+ * but with slots and keys in {@link MappedRegion}s instead of the heap.
+ * A slot holds the hash and the address of its entry, an entry holds the value, the key length and the key.
+ * The operating system pages the regions in and out, so the table may grow far beyond the heap.
+ * Not thread-safe.
+ */
+class MappedBytesToLongTable implements Closeable {
+
+    private static final int defaultSegmentShift = 28;
+    private static final float maxLoad = 0.7f;
+    private static final int slotBytes = 16;
+    private static final int entryHeaderBytes = 8 + 4;
+    private static final long maxCapacity = 1L << 32;
+
+    private final Path directory;
+    private final int segmentShift;
+    private final MappedRegion arena;
+    private long arenaEnd;
+    private MappedRegion slots;
+    private long mask;
+    private long size;
+    private long resizeAt;
+
+    MappedBytesToLongTable(final Path directory) {
+        this(directory, defaultSegmentShift);
+    }
+
+    /** @param segmentShift log2 of the mapped segment size, which also caps the key length */
+    MappedBytesToLongTable(final Path directory, final int segmentShift) {
+        this.directory = directory;
+        this.segmentShift = segmentShift;
+        this.arena = new MappedRegion(directory, "keys", segmentShift);
+        this.slots = allocate(1 << 10);
+    }
+
+    long get(final byte[] key, final int length, final int hash) {
+        final int h = nonZero(hash);
+        for (long slot = h & mask; ; slot = (slot + 1) & mask) {
+            final long position = slot * slotBytes;
+            final int found = slots.getInt(position);
+            if (found == 0) {
+                return NodeDictionary.absent;
+            }
+            if (found == h) {
+                final long address = slots.getLong(position + 8);
+                if (keyEquals(address, key, length)) {
+                    return arena.getLong(address);
+                }
+            }
+        }
+    }
+
+    /** Inserts or replaces. */
+    void put(final byte[] key, final int length, final int hash, final long value) {
+        final int h = nonZero(hash);
+        long slot = h & mask;
+        for (; ; slot = (slot + 1) & mask) {
+            final long position = slot * slotBytes;
+            final int found = slots.getInt(position);
+            if (found == 0) {
+                break;
+            }
+            if (found == h) {
+                final long address = slots.getLong(position + 8);
+                if (keyEquals(address, key, length)) {
+                    arena.putLong(address, value);
+                    return;
+                }
+            }
+        }
+        final long position = slot * slotBytes;
+        slots.putInt(position, h);
+        slots.putLong(position + 8, append(key, length, value));
+        if (++size >= resizeAt) {
+            grow();
+        }
+    }
+
+    long size() {
+        return size;
+    }
+
+    /** Bytes of the mapped files in use. */
+    long mappedBytes() {
+        return arenaEnd + (mask + 1) * slotBytes;
+    }
+
+    @Override
+    public void close() {
+        slots.close();
+        arena.close();
+    }
+
+    private static int nonZero(final int hash) {
+        return hash == 0 ? 1 : hash;
+    }
+
+    private MappedRegion allocate(final long capacity) {
+        final MappedRegion region = new MappedRegion(directory, "slots", segmentShift);
+        region.ensure(capacity * slotBytes);
+        mask = capacity - 1;
+        resizeAt = (long) (capacity * maxLoad);
+        return region;
+    }
+
+    private void grow() {
+        final long oldCapacity = mask + 1;
+        if (oldCapacity >= maxCapacity) {
+            throw new IllegalStateException("Mapped table is full at " + size + " entries.");
+        }
+        final MappedRegion old = slots;
+        slots = allocate(oldCapacity << 1);
+        for (long i = 0; i < oldCapacity; i++) {
+            final int h = old.getInt(i * slotBytes);
+            if (h != 0) {
+                long slot = h & mask;
+                while (slots.getInt(slot * slotBytes) != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                slots.putInt(slot * slotBytes, h);
+                slots.putLong(slot * slotBytes + 8, old.getLong(i * slotBytes + 8));
+            }
+        }
+        old.close();
+    }
+
+    private boolean keyEquals(final long address, final byte[] key, final int length) {
+        if (arena.getInt(address + 8) != length) {
+            return false;
+        }
+        final long start = address + entryHeaderBytes;
+        for (int i = 0; i < length; i++) {
+            if (arena.get(start + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long append(final byte[] key, final int length, final long value) {
+        final long needed = entryHeaderBytes + length;
+        final long segmentSize = arena.segmentSize();
+        if (needed > segmentSize) {
+            throw new IllegalArgumentException("Key of " + length + " bytes exceeds the segment size of " + segmentSize + " bytes.");
+        }
+        /* Entries don't straddle segments, and values stay 8-byte aligned. */
+        long address = (arenaEnd + 7) & ~7L;
+        if ((address & (segmentSize - 1)) + needed > segmentSize) {
+            address = (address + segmentSize) & ~(segmentSize - 1);
+        }
+        arena.ensure(address + needed);
+        arena.putLong(address, value);
+        arena.putInt(address + 8, length);
+        arena.put(address + entryHeaderBytes, key, length);
+        arenaEnd = address + needed;
+        return address;
+    }
+}
@@ -0,0 +1,298 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 objecttrouve.org <un.object.trouve@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.objecttrouve.fourtytwo.graphs.backend.init;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import static java.util.Collections.emptyMap;
+
+/**
+ * {@link NodeDictionary} for vocabularies that don't fit the heap.
+ * All entries live in a {@link MappedBytesToLongTable} on disk (the cold tier). Frequent ones are also kept in
+ * a fixed-size heap cache (the hot tier), which admits a key only over a victim that hasn't been hit since
+ * it was last challenged, so with Zipf-distributed values the head of the distribution stays on the heap.
+ * The heap budget covers the hot tier. Keys longer than {@link #maxHotKeyBytes} only go to disk.
+ * Identifiers that {@link IdentifierEncoder} can't encode go to a plain map, as with {@link PrimitiveNodeDictionary}.
+ * Not thread-safe.
+ */
+public class MappedNodeDictionary implements NodeDictionary {
+
+    static final int maxHotKeyBytes = 48;
+    /* Slot arrays, key array with header and some slack for the dimension prefix. */
+    private static final int hotBytesPerEntry = 4 + 8 + 1 + 8 + 16 + maxHotKeyBytes + 11;
+
+    private final IdentifierEncoder encoder = new IdentifierEncoder();
+    private final Map<String, Integer> dimensions = new HashMap<>();
+    private final Map<String, Map<Object, Long>> others = new HashMap<>();
+    private final MappedBytesToLongTable cold;
+    private final HotTier hot;
+    private byte[] key = new byte[64];
+    private long hotHits;
+    private long coldHits;
+
+    private String lastDimension;
+    private int lastDimensionIndex;
+
+    /** Keeps the files in the temp directory and about 64 MiB of hot entries on the heap. */
+    public MappedNodeDictionary() {
+        this(new File(System.getProperty("java.io.tmpdir")), 64L << 20);
+    }
+
+    /**
+     * @param directory where to put the (anonymous) table files
+     * @param hotBytes  heap budget of the hot tier
+     */
+    public MappedNodeDictionary(final File directory, final long hotBytes) {
+        this.cold = new MappedBytesToLongTable(directory.toPath());
+        this.hot = new HotTier(hotBytes / hotBytesPerEntry);
+    }
+
+    MappedNodeDictionary(final Path directory, final long hotBytes, final int segmentShift) {
+        this.cold = new MappedBytesToLongTable(directory, segmentShift);
+        this.hot = new HotTier(hotBytes / hotBytesPerEntry);
+    }
+
+    @Override
+    public long get(final String dimension, final Object identifier) {
+        final int length = key(dimension, encoder.encode(identifier));
+        if (length == IdentifierEncoder.notEncodable) {
+            return others.getOrDefault(dimension, emptyMap()).getOrDefault(identifier, absent);
+        }
+        return get(length, IdentifierEncoder.hash(key, length));
+    }
+
+    @Override
+    public void put(final String dimension, final Object identifier, final long nodeId) {
+        final int length = key(dimension, encoder.encode(identifier));
+        if (length == IdentifierEncoder.notEncodable) {
+            others.computeIfAbsent(dimension, d -> new HashMap<>()).put(identifier, nodeId);
+            return;
+        }
+        final int hash = IdentifierEncoder.hash(key, length);
+        cold.put(key, length, hash, nodeId);
+        hot.update(key, length, hash, nodeId);
+    }
+
+    @Override
+    public long computeIfAbsent(final String dimension, final Object identifier, final NodeFactory factory) {
+        final int length = key(dimension, encoder.encode(identifier));
+        if (length == IdentifierEncoder.notEncodable) {
+            return others.computeIfAbsent(dimension, d -> new HashMap<>())
+                .computeIfAbsent(identifier, id -> factory.create(dimension, id));
+        }
+        return computeIfAbsent(length, dimension, identifier, factory);
+    }
+
+    @Override
+    public long computeIfAbsent(final String dimension, final int identifier, final NodeFactory factory) {
+        return computeIfAbsent(key(dimension, encoder.encodeInt(identifier)), dimension, identifier, factory);
+    }
+
+    @Override
+    public long computeIfAbsent(final String dimension, final long identifier, final NodeFactory factory) {
+        return computeIfAbsent(key(dimension, encoder.encodeLong(identifier)), dimension, identifier, factory);
+    }
+
+    private long computeIfAbsent(final int length, final String dimension, final Object identifier, final NodeFactory factory) {
+        final int hash = IdentifierEncoder.hash(key, length);
+        final long known = get(length, hash);
+        if (known != absent) {
+            return known;
+        }
+        final long created = factory.create(dimension, identifier);
+        /* The factory must not use this dictionary, the key buffer is still holding the key. */
+        cold.put(key, length, hash, created);
+        hot.admit(key, length, hash, created);
+        return created;
+    }
+
+    private long get(final int length, final int hash) {
+        final long hotId = hot.get(key, length, hash);
+        if (hotId != absent) {
+            hotHits++;
+            return hotId;
+        }
+        final long coldId = cold.get(key, length, hash);
+        if (coldId != absent) {
+            coldHits++;
+            hot.admit(key, length, hash, coldId);
+        }
+        return coldId;
+    }
+
+    /** Prefixes the encoded identifier with the dimension's index. @return the key length */
+    private int key(final String dimension, final int encoded) {
+        if (encoded == IdentifierEncoder.notEncodable) {
+            return encoded;
+        }
+        if (!dimension.equals(lastDimension)) {
+            lastDimensionIndex = dimensions.computeIfAbsent(dimension, d -> dimensions.size());
+            lastDimension = dimension;
+        }
+        if (key.length < encoded + 2) {
+            key = new byte[Math.max(encoded + 2, key.length * 2)];
+        }
+        key[0] = (byte) (lastDimensionIndex >>> 8);
+        key[1] = (byte) lastDimensionIndex;
+        System.arraycopy(encoder.buffer(), 0, key, 2, encoded);
+        return encoded + 2;
+    }
+
+    @Override
+    public long size() {
+        long size = cold.size();
+        for (final Map<Object, Long> other : others.values()) {
+            size += other.size();
+        }
+        return size;
+    }
+
+    @Override
+    public long estimatedBytes() {
+        long bytes = hot.estimatedBytes();
+        for (final Map<Object, Long> other : others.values()) {
+            bytes += other.size() * CachingNodeDictionary.bytesPerEntry;
+        }
+        return bytes;
+    }
+
+    /** Bytes of the memory-mapped table files. */
+    public long mappedBytes() {
+        return cold.mappedBytes();
+    }
+
+    /** Share of lookups of known identifiers answered from the heap. */
+    public double hotHitRatio() {
+        final long hits = hotHits + coldHits;
+        return hits == 0 ? 0 : (double) hotHits / hits;
+    }
+
+    @Override
+    public void close() {
+        cold.close();
+    }
+
+    /*
+     * Two-way set-associative cache with a small frequency counter per slot.
+     * A newcomer takes the weaker of the two slots only if that slot's counter is down to zero,
+     * otherwise the counter is decremented, so a key must keep coming back to push out a frequent one.
+     */
+    private static class HotTier {
+
+        private static final int maxCount = 15;
+
+        private final int[] hashes;
+        private final long[] values;
+        private final byte[] counts;
+        private final byte[][] keys;
+        private final int mask;
+        private long keyBytes;
+
+        HotTier(final long capacity) {
+            final int slots = capacity < 2 ? 2 : Integer.highestOneBit((int) Math.min(capacity, 1 << 30));
+            this.hashes = new int[slots];
+            this.values = new long[slots];
+            this.counts = new byte[slots];
+            this.keys = new byte[slots][];
+            this.mask = slots - 1;
+        }
+
+        long get(final byte[] key, final int length, final int hash) {
+            final int first = hash & mask;
+            if (matches(first, key, length, hash)) {
+                return hit(first);
+            }
+            final int second = first ^ 1;
+            if (matches(second, key, length, hash)) {
+                return hit(second);
+            }
+            return absent;
+        }
+
+        void update(final byte[] key, final int length, final int hash, final long value) {
+            final int first = hash & mask;
+            if (matches(first, key, length, hash)) {
+                values[first] = value;
+            } else if (matches(first ^ 1, key, length, hash)) {
+                values[first ^ 1] = value;
+            } else {
+                admit(key, length, hash, value);
+            }
+        }
+
+        void admit(final byte[] key, final int length, final int hash, final long value) {
+            if (length > maxHotKeyBytes) {
+                return;
+            }
+            final int first = hash & mask;
+            final int second = first ^ 1;
+            final int victim = counts[first] <= counts[second] ? first : second;
+            if (keys[victim] != null && counts[victim] > 0) {
+                counts[victim]--;
+                return;
+            }
+            byte[] slotKey = keys[victim];
+            if (slotKey == null || slotKey.length != length) {
+                keyBytes += length - (slotKey == null ? 0 : slotKey.length);
+                slotKey = new byte[length];
+                keys[victim] = slotKey;
+            }
+            System.arraycopy(key, 0, slotKey, 0, length);
+            hashes[victim] = hash;
+            values[victim] = value;
+            counts[victim] = 1;
+        }
+
+        long estimatedBytes() {
+            return (long) hashes.length * (4 + 8 + 1 + 8 + 16) + keyBytes;
+        }
+
+        private boolean matches(final int slot, final byte[] key, final int length, final int hash) {
+            if (hashes[slot] != hash) {
+                return false;
+            }
+            final byte[] slotKey = keys[slot];
+            if (slotKey == null || slotKey.length != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (slotKey[i] != key[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private long hit(final int slot) {
+            if (counts[slot] < maxCount) {
+                counts[slot]++;
+            }
+            return values[slot];
+        }
+    }
+}
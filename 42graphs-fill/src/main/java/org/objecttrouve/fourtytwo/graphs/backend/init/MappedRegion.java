@@ -0,0 +1,137 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 objecttrouve.org <un.object.trouve@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.objecttrouve.fourtytwo.graphs.backend.init;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Growable memory-mapped scratch file, addressed by {@code long} offsets and mapped in segments of equal size.
+ * Callers must not let a value straddle two segments.
+ * The file is deleted right after it is opened where the platform allows it, so it goes away with the process.
+ * Not thread-safe.
+ */
+class MappedRegion implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(MappedRegion.class);
+
+    private final FileChannel channel;
+    private final int segmentShift;
+    private final int segmentMask;
+    private MappedByteBuffer[] segments = new MappedByteBuffer[4];
+    private int segmentCount;
+
+    MappedRegion(final Path directory, final String prefix, final int segmentShift) {
+        this.segmentShift = segmentShift;
+        this.segmentMask = (1 << segmentShift) - 1;
+        try {
+            Files.createDirectories(directory);
+            final Path file = Files.createTempFile(directory, prefix, ".map");
+            this.channel = FileChannel.open(file, READ, WRITE);
+            try {
+                Files.delete(file);
+            } catch (final IOException e) {
+                file.toFile().deleteOnExit();
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    long segmentSize() {
+        return 1L << segmentShift;
+    }
+
+    /** Maps segments until the first {@code bytes} bytes are addressable. New space reads as zeros. */
+    void ensure(final long bytes) {
+        while (((long) segmentCount << segmentShift) < bytes) {
+            if (segmentCount == segments.length) {
+                segments = Arrays.copyOf(segments, segmentCount * 2);
+            }
+            try {
+                segments[segmentCount] = channel.map(FileChannel.MapMode.READ_WRITE, (long) segmentCount << segmentShift, segmentSize());
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            segmentCount++;
+        }
+    }
+
+    int getInt(final long position) {
+        return segment(position).getInt((int) position & segmentMask);
+    }
+
+    void putInt(final long position, final int value) {
+        segment(position).putInt((int) position & segmentMask, value);
+    }
+
+    long getLong(final long position) {
+        return segment(position).getLong((int) position & segmentMask);
+    }
+
+    void putLong(final long position, final long value) {
+        segment(position).putLong((int) position & segmentMask, value);
+    }
+
+    byte get(final long position) {
+        return segment(position).get((int) position & segmentMask);
+    }
+
+    void put(final long position, final byte[] bytes, final int length) {
+        final MappedByteBuffer segment = segment(position);
+        final int offset = (int) position & segmentMask;
+        for (int i = 0; i < length; i++) {
+            segment.put(offset + i, bytes[i]);
+        }
+    }
+
+    private MappedByteBuffer segment(final long position) {
+        return segments[(int) (position >>> segmentShift)];
+    }
+
+    /** The mappings stay valid until they are garbage collected, but must not be used anymore. */
+    @Override
+    public void close() {
+        segments = new MappedByteBuffer[0];
+        segmentCount = 0;
+        try {
+            channel.close();
+        } catch (final IOException e) {
+            logger.warn("Couldn't close mapped file.", e);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 objecttrouve.org <un.object.trouve@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.objecttrouve.fourtytwo.graphs.backend.init;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free queue for many producers and a single consumer.
+ * Each slot carries a sequence number that tells producers and the consumer whose turn it is
+ * (the bounded queue design by Dmitry Vyukov), so producers only contend on one CAS.
+ */
+class MpscRingBuffer<E> {
+
+    private final int mask;
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    /* Only ever touched by the consumer. */
+    private long head;
+
+    MpscRingBuffer(final int capacity) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("Capacity must be at least 2.");
+        }
+        final int size = Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = size - 1;
+        this.elements = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /** @return {@code false} if the queue is full. */
+    boolean offer(final E element) {
+        while (true) {
+            final long t = tail.get();
+            final int slot = (int) t & mask;
+            final long diff = sequences.get(slot) - t;
+            if (diff == 0) {
+                if (tail.compareAndSet(t, t + 1)) {
+                    elements.lazySet(slot, element);
+                    sequences.lazySet(slot, t + 1);
+                    return true;
+                }
+            } else if (diff < 0) {
+                return false;
+            }
+        }
+    }
+
+    /** Consumer only. @return {@code null} if the queue is empty. */
+    E poll() {
+        final long h = head;
+        final int slot = (int) h & mask;
+        if (sequences.get(slot) != h + 1) {
+            return null;
+        }
+        final E element = elements.get(slot);
+        elements.lazySet(slot, null);
+        sequences.lazySet(slot, h + mask + 1);
+        head = h + 1;
+        return element;
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+}
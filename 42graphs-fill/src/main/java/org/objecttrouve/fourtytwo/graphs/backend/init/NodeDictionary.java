@@ -0,0 +1,73 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 objecttrouve.org <un.object.trouve@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.objecttrouve.fourtytwo.graphs.backend.init;
+
+/**
+ * Maps the identifiers of value nodes to their node ids, separately for each dimension.
+ */
+public interface NodeDictionary {
+
+    /** Returned by {@link #get(String, Object)} when the identifier is not known in the dimension. */
+    long absent = -1L;
+
+    @FunctionalInterface
+    interface NodeFactory {
+        long create(String dimension, Object identifier);
+    }
+
+    long get(String dimension, Object identifier);
+
+    void put(String dimension, Object identifier, long nodeId);
+
+    default long computeIfAbsent(final String dimension, final Object identifier, final NodeFactory factory) {
+        final long known = get(dimension, identifier);
+        if (known != absent) {
+            return known;
+        }
+        final long created = factory.create(dimension, identifier);
+        put(dimension, identifier, created);
+        return created;
+    }
+
+    /** Same as {@link #computeIfAbsent(String, Object, NodeFactory)}, implementations may spare the boxing. */
+    default long computeIfAbsent(final String dimension, final int identifier, final NodeFactory factory) {
+        return computeIfAbsent(dimension, (Object) identifier, factory);
+    }
+
+    /** Same as {@link #computeIfAbsent(String, Object, NodeFactory)}, implementations may spare the boxing. */
+    default long computeIfAbsent(final String dimension, final long identifier, final NodeFactory factory) {
+        return computeIfAbsent(dimension, (Object) identifier, factory);
+    }
+
+    /** Number of entries over all dimensions. */
+    long size();
+
+    /** Rough number of heap bytes held by the dictionary. */
+    long estimatedBytes();
+
+    /** Frees what the dictionary holds outside the heap. It can't be used anymore then. */
+    default void close() {
+    }
+}
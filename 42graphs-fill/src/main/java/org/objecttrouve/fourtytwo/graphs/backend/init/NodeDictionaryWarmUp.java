@@ -0,0 +1,72 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 objecttrouve.org <un.object.trouve@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.objecttrouve.fourtytwo.graphs.backend.init;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.ResourceIterator;
+import org.neo4j.graphdb.Transaction;
+import org.objecttrouve.fourtytwo.graphs.api.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Fills a {@link NodeDictionary} with the nodes already in a store, so that a batch writer can add to the store
+ * without duplicating them.
+ * Takes one label scan per dimension through the core API, which beats a Cypher index scan of the identifiers
+ * by about four times.
+ */
+final class NodeDictionaryWarmUp {
+
+    private static final Logger logger = LoggerFactory.getLogger(NodeDictionaryWarmUp.class);
+
+    private NodeDictionaryWarmUp() {
+    }
+
+    /** @return the number of nodes put into the dictionary */
+    static long warmUp(final GraphDatabaseService db, final NodeDictionary nodes) {
+        final long start = System.nanoTime();
+        long count = 0;
+        try (final Transaction tx = db.beginTx()) {
+            for (final Label label : db.getAllLabelsInUse()) {
+                final String dimension = label.name();
+                try (final ResourceIterator<Node> found = db.findNodes(label)) {
+                    while (found.hasNext()) {
+                        final Node node = found.next();
+                        final Object identifier = node.getProperty(Value.idKey, null);
+                        if (identifier != null) {
+                            nodes.put(dimension, identifier, node.getId());
+                            count++;
+                        }
+                    }
+                }
+            }
+            tx.success();
+        }
+        logger.info("Warmed up node dictionary with {} nodes in {} ms.", count, (System.nanoTime() - start) / 1_000_000);
+        return count;
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 objecttrouve.org <un.object.trouve@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.objecttrouve.fourtytwo.graphs.backend.init;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Node ids of value nodes by dimension and identifier, shared by the transactional writers of a backend.
+ * It keeps the identifiers that are asked for most often, like function words and punctuation.
+ * When it's full, it drops the least frequently asked for tenth of its entries.
+ * The counts are halved after as many puts as fit in, so that what was frequent long ago gives way eventually.
+ * Node ids are reused after deletes, so a hit only tells where to look, and the node has to be checked.
+ */
+@ThreadSafe
+class NodeIdCache {
+
+    private static final class Entry {
+        private final long nodeId;
+        private int frequency = 1;
+
+        private Entry(final long nodeId) {
+            this.nodeId = nodeId;
+        }
+    }
+
+    private final int capacity;
+    private final Map<NodeKey<?>, Entry> entries = new HashMap<>();
+    private long hits;
+    private long misses;
+    private int sinceAging;
+
+    NodeIdCache(final int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive.");
+        }
+        this.capacity = capacity;
+    }
+
+    /** @return the node id or {@link NodeDictionary#absent} */
+    synchronized long get(final String dimension, final Object identifier) {
+        final Entry entry = entries.get(key(dimension, identifier));
+        if (entry == null) {
+            misses++;
+            return NodeDictionary.absent;
+        }
+        hits++;
+        entry.frequency++;
+        return entry.nodeId;
+    }
+
+    synchronized void put(final String dimension, final Object identifier, final long nodeId) {
+        final NodeKey<?> key = key(dimension, identifier);
+        final Entry known = entries.get(key);
+        if (known != null && known.nodeId == nodeId) {
+            return;
+        }
+        if (known == null && entries.size() >= capacity) {
+            evict();
+        }
+        entries.put(key, new Entry(nodeId));
+        if (++sinceAging >= capacity) {
+            age();
+        }
+    }
+
+    synchronized void invalidate(final String dimension, final Object identifier) {
+        entries.remove(key(dimension, identifier));
+    }
+
+    /** E.g. when the store may have been replaced, like after a batch load. */
+    synchronized void clear() {
+        entries.clear();
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized long hits() {
+        return hits;
+    }
+
+    synchronized long misses() {
+        return misses;
+    }
+
+    private void evict() {
+        final List<Map.Entry<NodeKey<?>, Entry>> byFrequency = new ArrayList<>(entries.entrySet());
+        byFrequency.sort((a, b) -> Integer.compare(a.getValue().frequency, b.getValue().frequency));
+        final int evicted = Math.max(1, byFrequency.size() / 10);
+        for (int i = 0; i < evicted; i++) {
+            entries.remove(byFrequency.get(i).getKey());
+        }
+    }
+
+    private void age() {
+        sinceAging = 0;
+        for (final Entry entry : entries.values()) {
+            entry.frequency = (entry.frequency + 1) / 2;
+        }
+    }
+
+    /* Integral numbers come back from the store as longs, whatever they went in as. */
+    private static NodeKey<?> key(final String dimension, final Object identifier) {
+        final Object id = identifier instanceof Integer || identifier instanceof Short || identifier instanceof Byte ? ((Number) identifier).longValue() : identifier;
+        return new NodeKey<>(id, dimension);
+    }
+}
@@ -0,0 +1,490 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 objecttrouve.org <un.object.trouve@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.objecttrouve.fourtytwo.graphs.backend.init;
+
+import org.neo4j.graphdb.ConstraintViolationException;
+import org.neo4j.graphdb.Label;
+import org.neo4j.tooling.ImportTool;
+import org.neo4j.unsafe.batchinsert.BatchInserter;
+import org.objecttrouve.fourtytwo.graphs.api.Dimension;
+import org.objecttrouve.fourtytwo.graphs.api.GraphWriter;
+import org.objecttrouve.fourtytwo.graphs.api.IngestSummary;
+import org.objecttrouve.fourtytwo.graphs.api.IntSequenceTree;
+import org.objecttrouve.fourtytwo.graphs.api.LongSequenceTree;
+import org.objecttrouve.fourtytwo.graphs.api.NestedTree;
+import org.objecttrouve.fourtytwo.graphs.api.SequenceTree;
+import org.objecttrouve.fourtytwo.graphs.api.Tree;
+import org.objecttrouve.fourtytwo.graphs.api.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.stream.Collectors.joining;
+
+/**
+ * Writes trees into CSV files as expected by the offline importer ({@code neo4j-admin import}),
+ * one node file per dimension and one relationship file per relationship type, and runs the import on commit.
+ * The target store must not exist yet or be empty.
+ * Nodes are deduplicated with the {@link NodeDictionary}, relationships of roots that were added more than once
+ * are deduplicated on commit.
+ * Node ids are handed out densely from {@code 0} and imported as actual node ids, which saves the importer's id mapping.
+ * The identifier type of a dimension is taken from its first identifier.
+ * Its {@link IngestMetrics} count relationships as written to the files, before duplicates are dropped.
+ */
+@NotThreadSafe
+public class OfflineImportWriter implements GraphWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(OfflineImportWriter.class);
+    private static final int bufferSize = 1 << 20;
+
+    static class CsvFile {
+        final Path data;
+        final Writer writer;
+        final String header;
+
+        CsvFile(final Path data, final String header) throws IOException {
+            this.data = data;
+            this.writer = new BufferedWriter(Files.newBufferedWriter(data, UTF_8), bufferSize);
+            this.header = header;
+        }
+
+        /** Writes the header next to the data. @return the header file */
+        Path writeHeader() throws IOException {
+            final Path headerFile = data.resolveSibling(data.getFileName().toString().replace(".csv", "-header.csv"));
+            Files.write(headerFile, (header + "\n").getBytes(UTF_8));
+            return headerFile;
+        }
+    }
+
+    private final File storeDir;
+    private final Path importDir;
+    private final Supplier<BatchInserter> batchFactory;
+    private final NodeDictionary nodes;
+    private final NodeDictionary.NodeFactory nodeFactory = this::createNode;
+    private final boolean detectDuplicates;
+    private final boolean constrainIdentifiers;
+    private final Map<String, CsvFile> nodeFiles = new LinkedHashMap<>();
+    private final Map<String, CsvFile> relationFiles = new LinkedHashMap<>();
+    private final Set<Long> repeatedRoots = new HashSet<>();
+    private final StringBuilder line = new StringBuilder();
+    private long nextNodeId;
+    private final SymbolTable symbols;
+    private final IngestMetrics metrics;
+    private long createdNodes;
+    private long createdRelationships;
+
+    OfflineImportWriter(final File storeDir, final BackendSettings settings, final Supplier<BatchInserter> batchFactory) {
+        this(storeDir, settings, batchFactory, settings.isEncodingSymbols() ? SymbolTable.open(settings.symbolStore()) : null);
+    }
+
+    /** @param storeDir where to import on commit, or {@code null} to only write the files (for a {@link ShardedImportWriter}) */
+    OfflineImportWriter(final File storeDir, final BackendSettings settings, final Supplier<BatchInserter> batchFactory, final SymbolTable symbols) {
+        this.storeDir = storeDir;
+        this.symbols = symbols;
+        this.batchFactory = batchFactory;
+        this.nodes = settings.nodeDictionary();
+        this.detectDuplicates = settings.isDetectingDuplicates();
+        this.constrainIdentifiers = settings.isConstrainingIdentifiers();
+        this.metrics = new IngestMetrics(OfflineImportWriter.class, settings.isExposingIngestMetrics());
+        try {
+            this.importDir = Files.createTempDirectory("42graphs-import");
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        logger.debug("Writing import files to {}.", importDir);
+    }
+
+    @Override
+    public <T, U> GraphWriter add(final SequenceTree<T, U> sequenceTree) {
+        final long entered = metrics.enter();
+        logger.trace("Adding {} {}...", SequenceTree.class.getName(), sequenceTree.toString());
+        write(sequenceTree);
+        metrics.exit(entered);
+        return this;
+    }
+
+    /**
+     * Goes through the hierarchy in one pass, like the {@link CachingBatchInitializer}.
+     * The relationship of each subtree's root to this tree's root is written as soon as the subtree is,
+     * so the roots aren't held.
+     */
+    @Override
+    public <T, U> GraphWriter add(final NestedTree<T, U> nestedTree) {
+        final long entered = metrics.enter();
+        logger.trace("Adding {} {}...", NestedTree.class.getName(), nestedTree.toString());
+        write(nestedTree);
+        metrics.exit(entered);
+        return this;
+    }
+
+    /** @return the node id of the root */
+    private <T, U> long write(final NestedTree<T, U> nestedTree) {
+        final long parentId = root(nestedTree);
+        final String childDimension = nestedTree.getChildDimension().getName();
+        int position = 0;
+        final Iterator<? extends Tree<U>> subtrees = nestedTree.getSubtrees();
+        while (subtrees.hasNext()) {
+            final Tree<U> subtree = subtrees.next();
+            final String dimension = subtree.getParentDimension().getName();
+            if (!dimension.equals(childDimension)) {
+                throw new IllegalArgumentException("Subtree in dimension " + dimension + " below " + childDimension + " children.");
+            }
+            final long childId = subtree instanceof NestedTree ? write((NestedTree<U, ?>) subtree) : write((SequenceTree<U, ?>) subtree);
+            try {
+                relate(relationFile(childDimension).writer, childId, parentId, position++);
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        /* The subtrees looked up their roots. */
+        count(position, 1);
+        return parentId;
+    }
+
+    /** @return the node id of the root, which is created if it's new */
+    private long root(final Tree<?> tree) {
+        final String parentDimension = tree.getParentDimension().getName();
+        final Object rootId = tree.getRoot().getIdentifier();
+        long parentId = nodes.get(parentDimension, rootId);
+        if (parentId == NodeDictionary.absent) {
+            parentId = createNode(parentDimension, rootId);
+            nodes.put(parentDimension, rootId, parentId);
+        } else if (detectDuplicates) {
+            repeatedRoots.add(parentId);
+        }
+        return parentId;
+    }
+
+    /** @return the node id of the root */
+    private <T, U> long write(final SequenceTree<T, U> sequenceTree) {
+        final long parentId = root(sequenceTree);
+        final String childDimension = sequenceTree.getChildDimension().getName();
+        final Writer relations = relationFile(childDimension).writer;
+        final int length;
+        try {
+            if (sequenceTree instanceof IntSequenceTree) {
+                final int[] identifiers = ((IntSequenceTree<?>) sequenceTree).getIdentifiers();
+                for (int i = 0; i < identifiers.length; i++) {
+                    relate(relations, nodes.computeIfAbsent(childDimension, identifiers[i], nodeFactory), parentId, i);
+                }
+                length = identifiers.length;
+            } else if (sequenceTree instanceof LongSequenceTree) {
+                final long[] identifiers = ((LongSequenceTree<?>) sequenceTree).getIdentifiers();
+                for (int i = 0; i < identifiers.length; i++) {
+                    relate(relations, nodes.computeIfAbsent(childDimension, identifiers[i], nodeFactory), parentId, i);
+                }
+                length = identifiers.length;
+            } else {
+                final List<Value<U>> values = sequenceTree.getValues();
+                for (int i = 0; i < values.size(); i++) {
+                    relate(relations, nodes.computeIfAbsent(childDimension, values.get(i).getIdentifier(), nodeFactory), parentId, i);
+                }
+                length = values.size();
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        count(length, length + 1);
+        return parentId;
+    }
+
+    private void count(final int length, final int lookups) {
+        metrics.tree(length, lookups);
+        metrics.created(createdNodes, createdRelationships);
+        createdNodes = 0;
+        createdRelationships = 0;
+        if ((metrics.getTrees() & IngestMetrics.samplingMask) == 0) {
+            metrics.dictionaryBytes(nodes.estimatedBytes());
+        }
+    }
+
+    private void relate(final Writer relations, final long childId, final long parentId, final int position) throws IOException {
+        line.setLength(0);
+        line.append(childId).append(',').append(parentId).append(',').append(position).append('\n');
+        relations.append(line);
+        createdRelationships++;
+    }
+
+    private long createNode(final String dimension, final Object identifier) {
+        final long id = nextNodeId++;
+        createdNodes++;
+        line.setLength(0);
+        line.append(id).append(',');
+        appendValue(identifier);
+        if (symbols != null && identifier instanceof String) {
+            line.append(',').append(symbols.encode(dimension, (String) identifier));
+        }
+        line.append('\n');
+        try {
+            nodeFile(dimension, identifier).writer.append(line);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return id;
+    }
+
+    private void appendValue(final Object identifier) {
+        if (identifier instanceof Number || identifier instanceof Boolean) {
+            line.append(identifier);
+            return;
+        }
+        final String s = String.valueOf(identifier);
+        line.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            final char c = s.charAt(i);
+            if (c == '"') {
+                line.append('"');
+            }
+            line.append(c);
+        }
+        line.append('"');
+    }
+
+    private CsvFile nodeFile(final String dimension, final Object identifier) throws IOException {
+        CsvFile file = nodeFiles.get(dimension);
+        if (file == null) {
+            final String type = csvType(identifier);
+            final String symbol = symbols != null && type.equals("string") ? "," + Value.symbolKey + ":int" : "";
+            file = new CsvFile(importDir.resolve("nodes-" + nodeFiles.size() + ".csv"), ":ID," + Value.idKey + ":" + type + symbol);
+            nodeFiles.put(dimension, file);
+        }
+        return file;
+    }
+
+    private CsvFile relationFile(final String dimension) {
+        return relationFiles.computeIfAbsent(dimension, d -> {
+            try {
+                return new CsvFile(importDir.resolve("relationships-" + relationFiles.size() + ".csv"), ":START_ID,:END_ID," + Dimension.positionKey + ":int");
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private static String csvType(final Object identifier) {
+        if (identifier instanceof Integer) {
+            return "int";
+        } else if (identifier instanceof Long) {
+            return "long";
+        } else if (identifier instanceof Short) {
+            return "short";
+        } else if (identifier instanceof Byte) {
+            return "byte";
+        } else if (identifier instanceof Double) {
+            return "double";
+        } else if (identifier instanceof Float) {
+            return "float";
+        } else if (identifier instanceof Boolean) {
+            return "boolean";
+        } else if (identifier instanceof Character) {
+            return "char";
+        }
+        return "string";
+    }
+
+    @Override
+    public IngestSummary commit() {
+        final long entered = metrics.enter();
+        logger.debug("Node dictionary holds {} values in about {} bytes.", nodes.size(), nodes.estimatedBytes());
+        metrics.dictionaryBytes(nodes.estimatedBytes());
+        nodes.close();
+        try {
+            close();
+            if (!repeatedRoots.isEmpty()) {
+                for (final CsvFile file : relationFiles.values()) {
+                    dropDuplicateRelations(file.data);
+                }
+            }
+            if (storeDir != null) {
+                /* Before the store has them. */
+                if (symbols != null) {
+                    symbols.save();
+                }
+                logger.info("Importing into {}...", storeDir);
+                runImport(storeDir, importDir, groups(nodeFiles), groups(relationFiles));
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Import failed, files are left in " + importDir + ".", e);
+        }
+        if (storeDir != null) {
+            if (constrainIdentifiers || symbols != null) {
+                createSchema(batchFactory, nodeFiles.keySet(), constrainIdentifiers, symbols != null);
+            }
+            delete(importDir);
+        }
+        metrics.exit(entered);
+        metrics.finish();
+        final IngestSummary summary = metrics.summary();
+        logger.info(storeDir != null ? "Imported {}." : "Wrote files for {}.", summary);
+        return summary;
+    }
+
+    private static Map<String, List<Path>> groups(final Map<String, CsvFile> files) throws IOException {
+        final Map<String, List<Path>> groups = new LinkedHashMap<>();
+        for (final Map.Entry<String, CsvFile> file : files.entrySet()) {
+            groups.put(file.getKey(), Arrays.asList(file.getValue().writeHeader(), file.getValue().data));
+        }
+        return groups;
+    }
+
+    /**
+     * Runs the importer.
+     * @param nodeFiles         files by label, each group led by its header file
+     * @param relationshipFiles files by relationship type, each group led by its header file
+     */
+    static void runImport(final File storeDir, final Path reportDir, final Map<String, List<Path>> nodeFiles, final Map<String, List<Path>> relationshipFiles) throws IOException {
+        final List<String> args = new ArrayList<>();
+        args.add("--into");
+        args.add(storeDir.getAbsolutePath());
+        args.add("--id-type");
+        args.add("ACTUAL");
+        args.add("--multiline-fields");
+        args.add("true");
+        args.add("--report-file");
+        args.add(reportDir.resolve("import.report").toString());
+        for (final Map.Entry<String, List<Path>> dimension : nodeFiles.entrySet()) {
+            args.add("--nodes:" + dimension.getKey());
+            args.add(dimension.getValue().stream().map(Path::toString).collect(joining(",")));
+        }
+        for (final Map.Entry<String, List<Path>> dimension : relationshipFiles.entrySet()) {
+            args.add("--relationships:" + dimension.getKey());
+            args.add(dimension.getValue().stream().map(Path::toString).collect(joining(",")));
+        }
+        ImportTool.main(args.toArray(new String[0]), false);
+    }
+
+    private void dropDuplicateRelations(final Path data) throws IOException {
+        final Path deduplicated = data.resolveSibling(data.getFileName() + ".tmp");
+        /* Only relationships of repeated roots can be duplicates. */
+        final Map<String, Set<String>> seen = new HashMap<>();
+        try (final BufferedReader reader = Files.newBufferedReader(data, UTF_8);
+             final Writer writer = new BufferedWriter(Files.newBufferedWriter(deduplicated, UTF_8), bufferSize)) {
+            String relation;
+            while ((relation = reader.readLine()) != null) {
+                final int firstComma = relation.indexOf(',');
+                final int secondComma = relation.indexOf(',', firstComma + 1);
+                final String parent = relation.substring(firstComma + 1, secondComma);
+                if (!repeatedRoots.contains(Long.parseLong(parent))
+                    || seen.computeIfAbsent(parent, p -> new HashSet<>()).add(relation)) {
+                    writer.append(relation).append('\n');
+                }
+            }
+        }
+        Files.move(deduplicated, data, REPLACE_EXISTING);
+    }
+
+    static void createSchema(final Supplier<BatchInserter> batchFactory, final Collection<String> dimensions, final boolean constrainIdentifiers, final boolean indexSymbols) {
+        final BatchInserter inserter = batchFactory.get();
+        for (final String dimension : dimensions) {
+            if (constrainIdentifiers) {
+                try {
+                    inserter.createDeferredConstraint(Label.label(dimension)).assertPropertyIsUnique(Value.idKey).create();
+                } catch (final ConstraintViolationException e) {
+                    logger.debug("Constraint on {}.{} exists already.", dimension, Value.idKey);
+                }
+            }
+            if (indexSymbols) {
+                try {
+                    inserter.createDeferredSchemaIndex(Label.label(dimension)).on(Value.symbolKey).create();
+                } catch (final ConstraintViolationException e) {
+                    logger.debug("Index on {}.{} exists already.", dimension, Value.symbolKey);
+                }
+            }
+        }
+        /* Populates the indexes. */
+        inserter.shutdown();
+    }
+
+    @Override
+    public void abort() {
+        logger.info("Aborting import...");
+        metrics.finish();
+        nodes.close();
+        try {
+            close();
+        } catch (final IOException e) {
+            logger.warn("Couldn't close import files.", e);
+        }
+        delete(importDir);
+    }
+
+    private void close() throws IOException {
+        for (final CsvFile file : nodeFiles.values()) {
+            file.writer.close();
+        }
+        for (final CsvFile file : relationFiles.values()) {
+            file.writer.close();
+        }
+    }
+
+    static void delete(final Path directory) {
+        try (final Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (final IOException e) {
+            logger.warn("Couldn't delete {}.", directory, e);
+        }
+    }
+
+    Path importDir() {
+        return importDir;
+    }
+
+    Map<String, CsvFile> nodeFiles() {
+        return nodeFiles;
+    }
+
+    Map<String, CsvFile> relationFiles() {
+        return relationFiles;
+    }
+
+    /** Number of nodes, which is also the next node id. */
+    long nodeCount() {
+        return nextNodeId;
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 objecttrouve.org <un.object.trouve@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.objecttrouve.fourtytwo.graphs.backend.init;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads every node and relationship with its properties once, so that the store files are in the page cache
+ * before the first query or writer needs them.
+ * Index files aren't read.
+ */
+final class PageCacheWarmUp {
+
+    private static final Logger logger = LoggerFactory.getLogger(PageCacheWarmUp.class);
+
+    private PageCacheWarmUp() {
+    }
+
+    /** @return the number of nodes and relationships read */
+    static long warmUp(final GraphDatabaseService db) {
+        final long start = System.nanoTime();
+        long count = 0;
+        try (final Transaction tx = db.beginTx()) {
+            for (final Node node : db.getAllNodes()) {
+                node.getLabels();
+                node.getAllProperties();
+                count++;
+            }
+            for (final Relationship relationship : db.getAllRelationships()) {
+                relationship.getStartNodeId();
+                relationship.getAllProperties();
+                count++;
+            }
+            tx.success();
+        }
+        logger.info("Warmed up page cache with {} nodes and relationships in {} ms.", count, (System.nanoTime() - start) / 1_000_000);
+        return count;
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 objecttrouve.org <un.object.trouve@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.objecttrouve.fourtytwo.graphs.backend.init;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static java.util.Collections.emptyMap;
+
+/**
+ * {@link NodeDictionary} with one {@link BytesToLongTable} per dimension.
+ * String and primitive wrapper identifiers are kept as encoded bytes, so the dictionary neither retains
+ * the identifier objects nor boxes the node ids.
+ * Other identifier types go to a plain map.
+ * Not thread-safe.
+ */
+public class PrimitiveNodeDictionary implements NodeDictionary {
+
+    private final IdentifierEncoder encoder = new IdentifierEncoder();
+    private final Map<String, BytesToLongTable> tables = new HashMap<>();
+    private final Map<String, Map<Object, Long>> others = new HashMap<>();
+
+    /* Trees mostly alternate between two dimensions, so remembering the last table saves a lot of map lookups. */
+    private String lastDimension;
+    private BytesToLongTable lastTable;
+
+    @Override
+    public long get(final String dimension, final Object identifier) {
+        final int length = encoder.encode(identifier);
+        if (length == IdentifierEncoder.notEncodable) {
+            return others.getOrDefault(dimension, emptyMap()).getOrDefault(identifier, absent);
+        }
+        final byte[] key = encoder.buffer();
+        return table(dimension).get(key, length, IdentifierEncoder.hash(key, length));
+    }
+
+    @Override
+    public void put(final String dimension, final Object identifier, final long nodeId) {
+        final int length = encoder.encode(identifier);
+        if (length == IdentifierEncoder.notEncodable) {
+            others.computeIfAbsent(dimension, d -> new HashMap<>()).put(identifier, nodeId);
+            return;
+        }
+        final byte[] key = encoder.buffer();
+        table(dimension).put(key, length, IdentifierEncoder.hash(key, length), nodeId);
+    }
+
+    @Override
+    public long computeIfAbsent(final String dimension, final Object identifier, final NodeFactory factory) {
+        final int length = encoder.encode(identifier);
+        if (length == IdentifierEncoder.notEncodable) {
+            return others.computeIfAbsent(dimension, d -> new HashMap<>())
+                .computeIfAbsent(identifier, id -> factory.create(dimension, id));
+        }
+        final byte[] key = encoder.buffer();
+        final int hash = IdentifierEncoder.hash(key, length);
+        final BytesToLongTable table = table(dimension);
+        final long known = table.get(key, length, hash);
+        if (known != absent) {
+            return known;
+        }
+        final long created = factory.create(dimension, identifier);
+        /* The factory must not use this dictionary, the encoder buffer is still holding the key. */
+        table.put(key, length, hash, created);
+        return created;
+    }
+
+    @Override
+    public long computeIfAbsent(final String dimension, final int identifier, final NodeFactory factory) {
+        final int length = encoder.encodeInt(identifier);
+        final byte[] key = encoder.buffer();
+        final int hash = IdentifierEncoder.hash(key, length);
+        final BytesToLongTable table = table(dimension);
+        final long known = table.get(key, length, hash);
+        if (known != absent) {
+            return known;
+        }
+        final long created = factory.create(dimension, identifier);
+        table.put(key, length, hash, created);
+        return created;
+    }
+
+    @Override
+    public long computeIfAbsent(final String dimension, final long identifier, final NodeFactory factory) {
+        final int length = encoder.encodeLong(identifier);
+        final byte[] key = encoder.buffer();
+        final int hash = IdentifierEncoder.hash(key, length);
+        final BytesToLongTable table = table(dimension);
+        final long known = table.get(key, length, hash);
+        if (known != absent) {
+            return known;
+        }
+        final long created = factory.create(dimension, identifier);
+        table.put(key, length, hash, created);
+        return created;
+    }
+
+    @Override
+    public long size() {
+        long size = 0;
+        for (final BytesToLongTable table : tables.values()) {
+            size += table.size();
+        }
+        for (final Map<Object, Long> other : others.values()) {
+            size += other.size();
+        }
+        return size;
+    }
+
+    @Override
+    public long estimatedBytes() {
+        long bytes = 0;
+        for (final BytesToLongTable table : tables.values()) {
+            bytes += table.estimatedBytes();
+        }
+        for (final Map<Object, Long> other : others.values()) {
+            bytes += other.size() * CachingNodeDictionary.bytesPerEntry;
+        }
+        return bytes;
+    }
+
+    private BytesToLongTable table(final String dimension) {
+        if (!dimension.equals(lastDimension)) {
+            lastTable = tables.computeIfAbsent(dimension, d -> new BytesToLongTable());
+            lastDimension = dimension;
+        }
+        return lastTable;
+    }
+}
@@ -0,0 +1,322 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 objecttrouve.org <un.object.trouve@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.objecttrouve.fourtytwo.graphs.backend.init;
+
+import org.neo4j.unsafe.batchinsert.BatchInserter;
+import org.objecttrouve.fourtytwo.graphs.api.GraphWriter;
+import org.objecttrouve.fourtytwo.graphs.api.IngestSummary;
+import org.objecttrouve.fourtytwo.graphs.api.NestedTree;
+import org.objecttrouve.fourtytwo.graphs.api.SequenceTree;
+import org.objecttrouve.fourtytwo.graphs.api.Tree;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Offline import ({@link OfflineImportWriter}) split into shards that are written in parallel.
+ * Trees are partitioned by root, so all trees with the same root end up in the same shard and duplicates can still
+ * be dropped per shard. A nested tree goes to the shard of its root as a whole, so its subtrees are only deduplicated
+ * against the trees of that shard. Each shard has its own inserter thread (see {@link ConcurrentGraphWriter}), node dictionary
+ * and import files, with node ids of its own.
+ * On commit, the shards' nodes are unified with one global dictionary, the shards' relationship files are renumbered
+ * to the global node ids in parallel, and the importer, which uses all cores anyway, writes the store.
+ * Each shard's dictionary only holds the nodes the shard has seen, but all of them together hold more than a single one would.
+ */
+@NotThreadSafe
+public class ShardedImportWriter implements GraphWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardedImportWriter.class);
+    private static final int defaultQueueCapacity = 1 << 12;
+    private static final int bufferSize = 1 << 20;
+
+    private final File storeDir;
+    private final BackendSettings settings;
+    private final Supplier<BatchInserter> batchFactory;
+    private final SymbolTable symbols;
+    private final OfflineImportWriter[] shards;
+    private final GraphWriter[] writers;
+    private final IngestMetrics metrics;
+
+    ShardedImportWriter(final File storeDir, final BackendSettings settings, final Supplier<BatchInserter> batchFactory, final SymbolTable symbols) {
+        this.storeDir = storeDir;
+        this.settings = settings;
+        this.batchFactory = batchFactory;
+        this.symbols = symbols;
+        this.metrics = new IngestMetrics(ShardedImportWriter.class, settings.isExposingIngestMetrics());
+        final int capacity = settings.isConcurrent() ? settings.queueCapacity() : defaultQueueCapacity;
+        this.shards = new OfflineImportWriter[settings.importShards()];
+        this.writers = new GraphWriter[shards.length];
+        for (int i = 0; i < shards.length; i++) {
+            final OfflineImportWriter shard = new OfflineImportWriter(null, settings, null, symbols);
+            shards[i] = shard;
+            writers[i] = new ConcurrentGraphWriter(() -> shard, capacity, settings.backpressure());
+        }
+        logger.debug("Created {} with {} shards.", ShardedImportWriter.class.getName(), shards.length);
+    }
+
+    @Override
+    public <T, U> GraphWriter add(final SequenceTree<T, U> sequenceTree) {
+        final long entered = metrics.enter();
+        shard(sequenceTree).add(sequenceTree);
+        metrics.exit(entered);
+        return this;
+    }
+
+    /** The shard writes the relationships of the subtrees' roots as it goes. */
+    @Override
+    public <T, U> GraphWriter add(final NestedTree<T, U> nestedTree) {
+        final long entered = metrics.enter();
+        shard(nestedTree).add(nestedTree);
+        metrics.exit(entered);
+        return this;
+    }
+
+    private GraphWriter shard(final Tree<?> tree) {
+        final int hash = 31 * tree.getParentDimension().getName().hashCode() + Objects.hashCode(tree.getRoot().getIdentifier());
+        return writers[Math.floorMod(hash, writers.length)];
+    }
+
+    @Override
+    public IngestSummary commit() {
+        final long entered = metrics.enter();
+        try {
+            for (int i = 0; i < writers.length; i++) {
+                try {
+                    metrics.include(writers[i].commit());
+                } catch (final RuntimeException e) {
+                    for (int j = i + 1; j < writers.length; j++) {
+                        writers[j].abort();
+                    }
+                    throw e;
+                }
+            }
+            final Path mergeDir = Files.createTempDirectory("42graphs-merge");
+            final long[][] nodeIds = new long[shards.length][];
+            final Map<String, List<Path>> nodeFiles = mergeNodes(mergeDir, nodeIds);
+            final Map<String, List<Path>> relationshipFiles = renumberRelationships(nodeIds);
+            /* Before the store has them. */
+            if (symbols != null) {
+                symbols.save();
+            }
+            logger.info("Importing {} shards into {}...", shards.length, storeDir);
+            OfflineImportWriter.runImport(storeDir, mergeDir, nodeFiles, relationshipFiles);
+            if (settings.isConstrainingIdentifiers() || symbols != null) {
+                OfflineImportWriter.createSchema(batchFactory, nodeFiles.keySet(), settings.isConstrainingIdentifiers(), symbols != null);
+            }
+            OfflineImportWriter.delete(mergeDir);
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Import failed.", e);
+        } finally {
+            for (final OfflineImportWriter shard : shards) {
+                OfflineImportWriter.delete(shard.importDir());
+            }
+        }
+        metrics.exit(entered);
+        metrics.finish();
+        final IngestSummary summary = metrics.summary();
+        logger.info("Imported {}.", summary);
+        return summary;
+    }
+
+    /**
+     * Writes one node file per dimension with each node once, in order of the shards.
+     * A node's identifier and symbol are taken as they are in the shard's file, since they are the same in every shard.
+     * @param nodeIds gets the global node id of each shard's node ids
+     * @return the node files by dimension, each led by its header
+     */
+    private Map<String, List<Path>> mergeNodes(final Path mergeDir, final long[][] nodeIds) throws IOException {
+        final NodeDictionary nodes = settings.nodeDictionary();
+        final Map<String, OfflineImportWriter.CsvFile> merged = new LinkedHashMap<>();
+        final long[] next = {0};
+        final StringBuilder record = new StringBuilder();
+        for (int s = 0; s < shards.length; s++) {
+            final long count = shards[s].nodeCount();
+            if (count > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Shard " + s + " holds " + count + " nodes, use more shards.");
+            }
+            final long[] ids = new long[(int) count];
+            nodeIds[s] = ids;
+            for (final Map.Entry<String, OfflineImportWriter.CsvFile> dimension : shards[s].nodeFiles().entrySet()) {
+                final OfflineImportWriter.CsvFile file = merged.computeIfAbsent(dimension.getKey(), d -> csvFile(mergeDir.resolve("nodes-" + merged.size() + ".csv"), dimension.getValue().header));
+                final NodeDictionary.NodeFactory factory = (d, rest) -> {
+                    final long id = next[0]++;
+                    try {
+                        file.writer.append(Long.toString(id)).append(',').append((String) rest).append('\n');
+                    } catch (final IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    return id;
+                };
+                try (final BufferedReader reader = Files.newBufferedReader(dimension.getValue().data, UTF_8)) {
+                    while (readRecord(reader, record)) {
+                        final int comma = record.indexOf(",");
+                        final int localId = Integer.parseInt(record.substring(0, comma));
+                        ids[localId] = nodes.computeIfAbsent(dimension.getKey(), record.substring(comma + 1), factory);
+                    }
+                }
+            }
+        }
+        logger.debug("Merged {} nodes, the dictionary holds about {} bytes.", next[0], nodes.estimatedBytes());
+        metrics.merged(next[0]);
+        metrics.dictionaryBytes(nodes.estimatedBytes());
+        nodes.close();
+        final Map<String, List<Path>> files = new LinkedHashMap<>();
+        for (final Map.Entry<String, OfflineImportWriter.CsvFile> file : merged.entrySet()) {
+            file.getValue().writer.close();
+            final List<Path> group = new ArrayList<>();
+            group.add(file.getValue().writeHeader());
+            group.add(file.getValue().data);
+            files.put(file.getKey(), group);
+        }
+        return files;
+    }
+
+    /** Rewrites each shard's relationships with the global node ids, one thread per shard. @return the files by type, each led by its header */
+    private Map<String, List<Path>> renumberRelationships(final long[][] nodeIds) throws IOException {
+        final ExecutorService executor = Executors.newFixedThreadPool(shards.length, r -> {
+            final Thread thread = new Thread(r, "42graphs-merge");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final List<Future<Map<String, Path>>> renumbered = new ArrayList<>();
+        try {
+            for (int s = 0; s < shards.length; s++) {
+                final OfflineImportWriter shard = shards[s];
+                final long[] ids = nodeIds[s];
+                renumbered.add(executor.submit(() -> renumberRelationships(shard, ids)));
+            }
+            final Map<String, List<Path>> files = new LinkedHashMap<>();
+            for (int s = 0; s < shards.length; s++) {
+                for (final Map.Entry<String, Path> file : renumbered.get(s).get().entrySet()) {
+                    final String type = file.getKey();
+                    if (!files.containsKey(type)) {
+                        final List<Path> group = new ArrayList<>();
+                        group.add(shards[s].relationFiles().get(type).writeHeader());
+                        files.put(type, group);
+                    }
+                    files.get(type).add(file.getValue());
+                }
+            }
+            return files;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while renumbering relationships.", e);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException("Couldn't renumber relationships.", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Map<String, Path> renumberRelationships(final OfflineImportWriter shard, final long[] ids) throws IOException {
+        final Map<String, Path> files = new LinkedHashMap<>();
+        final StringBuilder line = new StringBuilder();
+        for (final Map.Entry<String, OfflineImportWriter.CsvFile> type : shard.relationFiles().entrySet()) {
+            final Path data = type.getValue().data;
+            final Path renumbered = data.resolveSibling(data.getFileName().toString().replace(".csv", "-merged.csv"));
+            try (final BufferedReader reader = Files.newBufferedReader(data, UTF_8);
+                 final Writer writer = new BufferedWriter(Files.newBufferedWriter(renumbered, UTF_8), bufferSize)) {
+                String relation;
+                while ((relation = reader.readLine()) != null) {
+                    final int firstComma = relation.indexOf(',');
+                    final int secondComma = relation.indexOf(',', firstComma + 1);
+                    line.setLength(0);
+                    line.append(ids[Integer.parseInt(relation.substring(0, firstComma))]).append(',')
+                        .append(ids[Integer.parseInt(relation.substring(firstComma + 1, secondComma))])
+                        .append(relation, secondComma, relation.length()).append('\n');
+                    writer.append(line);
+                }
+            }
+            files.put(type.getKey(), renumbered);
+        }
+        return files;
+    }
+
+    /** Reads up to the next line break that isn't quoted. @return whether there was a record */
+    static boolean readRecord(final BufferedReader reader, final StringBuilder record) throws IOException {
+        record.setLength(0);
+        boolean quoted = false;
+        int c;
+        while ((c = reader.read()) >= 0) {
+            if (c == '\n' && !quoted) {
+                return true;
+            }
+            if (c == '"') {
+                quoted = !quoted;
+            }
+            record.append((char) c);
+        }
+        return record.length() > 0;
+    }
+
+    private static OfflineImportWriter.CsvFile csvFile(final Path data, final String header) {
+        try {
+            return new OfflineImportWriter.CsvFile(data, header);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void abort() {
+        logger.info("Aborting sharded import...");
+        metrics.finish();
+        RuntimeException failure = null;
+        for (final GraphWriter writer : writers) {
+            try {
+                writer.abort();
+            } catch (final RuntimeException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 objecttrouve.org <un.object.trouve@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.objecttrouve.fourtytwo.graphs.backend.init;
+
+import org.objecttrouve.fourtytwo.graphs.api.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Dense {@code int} ids ("symbols") for the string identifiers of each dimension,
+ * handed out from {@code 0} in order of first appearance.
+ * Writers store a node's symbol as its {@link Value#symbolKey} property and index it,
+ * so queries can compare and join numbers instead of strings.
+ * The table lives in a directory next to the store, with one append-only file per dimension,
+ * which is read the first time the dimension is used.
+ */
+@ThreadSafe
+public class SymbolTable {
+
+    private static final Logger logger = LoggerFactory.getLogger(SymbolTable.class);
+
+    public static final int absent = -1;
+    static final String directoryName = "42graphs-symbols";
+
+    private static class Symbols {
+        final Map<String, Integer> symbols = new HashMap<>();
+        final List<String> identifiers = new ArrayList<>();
+        int saved;
+    }
+
+    private final Path directory;
+    private final Map<String, Symbols> dimensions = new HashMap<>();
+
+    /** Opens the table kept next to the given store, or a new one if there is none yet. */
+    public static SymbolTable open(final File storeDir) {
+        return new SymbolTable(storeDir.toPath().resolve(directoryName));
+    }
+
+    private SymbolTable(final Path directory) {
+        this.directory = directory;
+    }
+
+    /** @return the symbol of the identifier, which is added if it is new */
+    public synchronized int encode(final String dimension, final String identifier) {
+        final Symbols s = symbols(dimension);
+        final Integer symbol = s.symbols.get(identifier);
+        if (symbol != null) {
+            return symbol;
+        }
+        final int added = s.identifiers.size();
+        s.identifiers.add(identifier);
+        s.symbols.put(identifier, added);
+        return added;
+    }
+
+    /** @return the symbol of the identifier or {@link #absent} */
+    public synchronized int symbol(final String dimension, final String identifier) {
+        return symbols(dimension).symbols.getOrDefault(identifier, absent);
+    }
+
+    /** @return the identifier with the given symbol or {@code null} */
+    public synchronized String identifier(final String dimension, final int symbol) {
+        final List<String> identifiers = symbols(dimension).identifiers;
+        return symbol >= 0 && symbol < identifiers.size() ? identifiers.get(symbol) : null;
+    }
+
+    /** Number of symbols in the dimension, which is also the next symbol to be handed out. */
+    public synchronized int size(final String dimension) {
+        return symbols(dimension).identifiers.size();
+    }
+
+    /** Appends the symbols added since the last save to the files. */
+    public synchronized void save() {
+        try {
+            Files.createDirectories(directory);
+            for (final Map.Entry<String, Symbols> dimension : dimensions.entrySet()) {
+                final Symbols s = dimension.getValue();
+                if (s.saved == s.identifiers.size()) {
+                    continue;
+                }
+                try (final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file(dimension.getKey()), CREATE, WRITE, APPEND)))) {
+                    for (int i = s.saved; i < s.identifiers.size(); i++) {
+                        final byte[] bytes = s.identifiers.get(i).getBytes(UTF_8);
+                        out.writeInt(bytes.length);
+                        out.write(bytes);
+                    }
+                }
+                logger.debug("Saved {} new symbols of {}.", s.identifiers.size() - s.saved, dimension.getKey());
+                s.saved = s.identifiers.size();
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Couldn't save symbols to " + directory + ".", e);
+        }
+    }
+
+    private Symbols symbols(final String dimension) {
+        Symbols s = dimensions.get(dimension);
+        if (s == null) {
+            s = load(dimension);
+            dimensions.put(dimension, s);
+        }
+        return s;
+    }
+
+    private Symbols load(final String dimension) {
+        final Symbols s = new Symbols();
+        final Path file = file(dimension);
+        if (!Files.exists(file)) {
+            return s;
+        }
+        long valid = 0;
+        try (final InputStream in = Files.newInputStream(file);
+             final DataInputStream data = new DataInputStream(new BufferedInputStream(in))) {
+            while (true) {
+                final int first = data.read();
+                if (first < 0) {
+                    break;
+                }
+                final int length = first << 24 | data.readUnsignedByte() << 16 | data.readUnsignedByte() << 8 | data.readUnsignedByte();
+                final byte[] bytes = new byte[length];
+                data.readFully(bytes);
+                final String identifier = new String(bytes, UTF_8);
+                s.symbols.put(identifier, s.identifiers.size());
+                s.identifiers.add(identifier);
+                valid += Integer.BYTES + length;
+            }
+        } catch (final EOFException e) {
+            /* Left by an interrupted save. */
+            logger.warn("Dropping incomplete symbol at the end of {}.", file);
+            truncate(file, valid);
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Couldn't load symbols from " + file + ".", e);
+        }
+        s.saved = s.identifiers.size();
+        logger.debug("Loaded {} symbols of {}.", s.saved, dimension);
+        return s;
+    }
+
+    private static void truncate(final Path file, final long size) {
+        try (final FileChannel channel = FileChannel.open(file, WRITE)) {
+            channel.truncate(size);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Path file(final String dimension) {
+        return directory.resolve(dimension + ".symbols");
+    }
+}
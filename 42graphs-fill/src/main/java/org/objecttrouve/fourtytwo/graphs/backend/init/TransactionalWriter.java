@@ -26,16 +26,41 @@
 package org.objecttrouve.fourtytwo.graphs.backend.init;
 
 import com.google.common.collect.Maps;
+import com.google.common.primitives.Ints;
+import com.google.common.primitives.Longs;
+import org.neo4j.graphdb.Direction;
 import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.NotFoundException;
+import org.neo4j.graphdb.QueryStatistics;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.RelationshipType;
+import org.neo4j.graphdb.Result;
 import org.objecttrouve.fourtytwo.graphs.api.Dimension;
 import org.objecttrouve.fourtytwo.graphs.api.GraphWriter;
+import org.objecttrouve.fourtytwo.graphs.api.IngestSummary;
+import org.objecttrouve.fourtytwo.graphs.api.IntSequenceTree;
+import org.objecttrouve.fourtytwo.graphs.api.LongSequenceTree;
+import org.objecttrouve.fourtytwo.graphs.api.NestedTree;
 import org.objecttrouve.fourtytwo.graphs.api.SequenceTree;
+import org.objecttrouve.fourtytwo.graphs.api.Tree;
 import org.objecttrouve.fourtytwo.graphs.api.Value;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 import static java.util.stream.Collectors.joining;
 import static org.neo4j.helpers.collection.MapUtil.map;
@@ -43,83 +68,650 @@ import static org.neo4j.helpers.collection.MapUtil.map;
 public class TransactionalWriter implements GraphWriter {
     private static final Logger logger = LoggerFactory.getLogger(TransactionalWriter.class);
 
+    /* Rough heap cost of one created node or relationship in the transaction state. */
+    private static final int bytesPerElement = 128;
+    private static final int bulkBatchSize = 1000;
+
     private final GraphDatabaseService db;
-    private final org.neo4j.graphdb.Transaction t;
+    private org.neo4j.graphdb.Transaction t;
+    private final int batchSize;
+    /* Buffered trees as UNWIND rows, keyed by parent and child dimension. */
+    private final Map<List<String>, List<Map<String, Object>>> batches = new LinkedHashMap<>();
+    /* Roots of buffered subtrees to relate to their parents once the batches are written, in order. */
+    private final List<Subtree> unrelated = new ArrayList<>();
+    private int buffered;
+    private final int treesPerChunk;
+    private final long bytesPerChunk;
+    private final ChunkListener chunkListener;
+    private int chunkTrees;
+    /* Nesting of the nested trees being added, whose subtrees don't end a chunk. */
+    private int depth;
+    private long chunkBytes;
+    private long committedTrees;
+    private final IdentifierConstraints constraints;
+    private final Set<String> unconstrained = new LinkedHashSet<>();
+    private boolean written;
+    private final SymbolTable symbols;
+    /* The store's index is the dictionary here, so a MERGE that matches counts as a hit. */
+    private final IngestMetrics metrics;
+    private long createdNodes;
+    private long createdRelationships;
+    /* Node ids of the children seen so far, in append-only mode. */
+    private NodeDictionary nodes;
+    private final ExistenceFilter existence;
+    /* Identifiers written in the current chunk, for the existence filter once they are committed. */
+    private final Map<String, Set<Object>> uncommitted = new HashMap<>();
+    private final NodeIdCache nodeIds;
+    /* Node ids looked up or created in the current chunk, for the node id cache once they are committed. */
+    private final Map<NodeKey<?>, Long> uncommittedNodeIds = new HashMap<>();
+    /* Nodes added or looked up in the current transaction, so they aren't looked up again. */
+    private final Map<NodeKey<?>, Node> handles = new HashMap<>();
 
     TransactionalWriter(final GraphDatabaseService db, final org.neo4j.graphdb.Transaction t) {
+        this(db, t, BackendSettings.settings());
+    }
+
+    TransactionalWriter(final GraphDatabaseService db, final org.neo4j.graphdb.Transaction t, final BackendSettings settings) {
+        this(db, t, settings, //
+            settings.isConstrainingIdentifiers() || settings.isEncodingSymbols() ? new IdentifierConstraints(settings) : null, //
+            settings.isEncodingSymbols() ? SymbolTable.open(settings.symbolStore()) : null, //
+            null, null);
+    }
+
+    /**
+     * @param existence what's in the store, shared with other writers, or {@code null}
+     * @param nodeIds node ids of frequent identifiers, shared with other writers, or {@code null}
+     */
+    TransactionalWriter(final GraphDatabaseService db, final org.neo4j.graphdb.Transaction t, final BackendSettings settings, final IdentifierConstraints constraints, final SymbolTable symbols, final ExistenceFilter existence, final NodeIdCache nodeIds) {
+        this.constraints = constraints;
+        this.existence = existence;
+        this.nodeIds = nodeIds;
+        this.symbols = symbols;
         this.db = db;
         this.t = t;
+        this.nodes = settings.isAppendingOnly() ? settings.nodeDictionary() : null;
+        this.batchSize = nodes != null ? Math.max(1, settings.unwindBatchSize()) : settings.unwindBatchSize();
+        this.treesPerChunk = settings.treesPerChunk();
+        this.bytesPerChunk = settings.bytesPerChunk();
+        this.chunkListener = settings.chunkListener();
+        this.metrics = new IngestMetrics(TransactionalWriter.class, settings.isExposingIngestMetrics());
     }
 
     @Override
-    public void commit() {
+    public IngestSummary commit() {
+        final long entered = metrics.enter();
         logger.trace("Committing...");
-        t.success();
-        t.close();
+        commitChunk();
+        if (nodes != null) {
+            nodes.close();
+        }
+        metrics.exit(entered);
+        metrics.finish();
+        final IngestSummary summary = metrics.summary();
+        logger.debug("Wrote {}.", summary);
+        return summary;
     }
 
     @Override
     public <T, U> GraphWriter add(final SequenceTree<T, U> sequenceTree) {
+        final long entered = metrics.enter();
+        add(sequenceTree, batchSize);
+        metrics.exit(entered);
+        return this;
+    }
+
+    /** Always goes through {@code UNWIND} batches, at least {@link #bulkBatchSize} trees each. */
+    @Override
+    public GraphWriter addAll(final Iterable<? extends SequenceTree<?, ?>> sequenceTrees) {
+        final long entered = metrics.enter();
+        final int flushAt = Math.max(batchSize, bulkBatchSize);
+        for (final SequenceTree<?, ?> sequenceTree : sequenceTrees) {
+            add(sequenceTree, flushAt);
+        }
+        flush();
+        metrics.exit(entered);
+        return this;
+    }
+
+    private <T, U> void add(final SequenceTree<T, U> sequenceTree, final int flushAt) {
         logger.trace("Adding {} {}...", SequenceTree.class.getName(), sequenceTree.toString());
+        if (constraints != null) {
+            constrain(sequenceTree.getParentDimension().getName());
+            constrain(sequenceTree.getChildDimension().getName());
+        }
+        final long bytes;
+        if (flushAt > 0) {
+            bytes = buffer(sequenceTree);
+            if (buffered >= flushAt) {
+                flush();
+            }
+        } else {
+            final List<Value<U>> values = sequenceTree.getValues();
+            write(sequenceTree, values);
+            metrics.tree(values.size());
+            bytes = stateBytes(sequenceTree.getRoot(), values);
+        }
+        added(bytes);
+    }
+
+    /**
+     * Counts a tree as written, and commits the chunk once it's full.
+     * Subtrees only count towards the bytes, so a chunk never ends within a nested tree and the trees committed are the caller's.
+     */
+    private void added(final long bytes) {
+        metrics.created(createdNodes, createdRelationships);
+        createdNodes = 0;
+        createdRelationships = 0;
+        written = true;
+        chunkBytes += bytes;
+        if (depth > 0) {
+            return;
+        }
+        chunkTrees++;
+        if ((treesPerChunk > 0 && chunkTrees >= treesPerChunk) || (bytesPerChunk > 0 && chunkBytes >= bytesPerChunk)) {
+            commitChunk();
+            t = db.beginTx();
+        }
+    }
+
+    /**
+     * Relates the root of each subtree to the parent right after the subtree, so the roots aren't held.
+     * With {@code UNWIND} batches, the relationships wait for the batch that has the subtrees.
+     * With chunked transactions, the whole nested tree goes into one chunk and counts as one tree.
+     */
+    @Override
+    public <T, U> GraphWriter add(final NestedTree<T, U> nestedTree) {
+        final long entered = metrics.enter();
+        add(nestedTree, batchSize);
+        metrics.exit(entered);
+        return this;
+    }
+
+    private <T, U> void add(final NestedTree<T, U> nestedTree, final int flushAt) {
+        logger.trace("Adding {} {}...", NestedTree.class.getName(), nestedTree.toString());
+        final String parentDimension = nestedTree.getParentDimension().getName();
+        final String childDimension = nestedTree.getChildDimension().getName();
+        if (constraints != null) {
+            constrain(parentDimension);
+            constrain(childDimension);
+        }
+        final Object root = nestedTree.getRoot().getIdentifier();
+        long bytes = bytesPerElement + identifierBytes(root);
+        int position = 0;
+        final Iterator<? extends Tree<U>> subtrees = nestedTree.getSubtrees();
+        depth++;
+        try {
+            while (subtrees.hasNext()) {
+                final Tree<U> subtree = subtrees.next();
+                final String dimension = subtree.getParentDimension().getName();
+                if (!dimension.equals(childDimension)) {
+                    throw new IllegalArgumentException("Subtree in dimension " + dimension + " below " + childDimension + " children.");
+                }
+                if (subtree instanceof NestedTree) {
+                    add((NestedTree<U, ?>) subtree, flushAt);
+                } else {
+                    add((SequenceTree<U, ?>) subtree, flushAt);
+                }
+                relate(new Subtree(parentDimension, root, childDimension, subtree.getRoot().getIdentifier(), position++), flushAt);
+                bytes += bytesPerElement;
+            }
+        } finally {
+            depth--;
+        }
+        if (position == 0) {
+            relate(new Subtree(parentDimension, root, childDimension, null, 0), flushAt);
+        }
+        /* The subtrees looked up their roots. */
+        metrics.tree(position, 1);
+        added(bytes);
+    }
+
+    private void relate(final Subtree subtree, final int flushAt) {
+        if (flushAt > 0) {
+            unrelated.add(subtree);
+        } else {
+            relate(subtree);
+        }
+    }
+
+    private void relate(final Subtree subtree) {
+        final Node parent = addNode(subtree.root, subtree.parentDimension, Collections.emptyMap());
+        if (subtree.child != null) {
+            addRelation(addNode(subtree.child, subtree.childDimension, Collections.emptyMap()), subtree.childDimension, parent, subtree.position);
+        }
+    }
+
+    private void constrain(final String dimension) {
+        if (constraints.isKnown(dimension) || !unconstrained.add(dimension) || written) {
+            return;
+        }
+        /* Nothing written yet, so the constraint can come first. */
+        t.success();
+        t.close();
+        createConstraints();
+        t = db.beginTx();
+    }
+
+    private void createConstraints() {
+        constraints.create(db, unconstrained);
+        unconstrained.clear();
+    }
+
+    private void commitChunk() {
+        flush();
+        metrics.created(createdNodes, createdRelationships);
+        createdNodes = 0;
+        createdRelationships = 0;
+        /* Symbols first, so the store never has symbols that aren't saved. Those of a failed chunk are just left unused. */
+        if (symbols != null) {
+            symbols.save();
+        }
+        t.success();
+        t.close();
+        handles.clear();
+        written = false;
+        if (existence != null) {
+            uncommitted.forEach((dimension, identifiers) -> identifiers.forEach(identifier -> existence.put(dimension, identifier)));
+            uncommitted.clear();
+        }
+        if (nodeIds != null) {
+            uncommittedNodeIds.forEach((key, nodeId) -> nodeIds.put(key.getDimension(), key.getId(), nodeId));
+            uncommittedNodeIds.clear();
+        }
+        if (!unconstrained.isEmpty()) {
+            createConstraints();
+        }
+        committedTrees += chunkTrees;
+        logger.debug("Committed {} trees, {} in total.", chunkTrees, committedTrees);
+        chunkTrees = 0;
+        chunkBytes = 0;
+        chunkListener.committed(committedTrees);
+    }
+
+    private static <T, U> long stateBytes(final Value<T> root, final List<Value<U>> values) {
+        long bytes = bytesPerElement + identifierBytes(root.getIdentifier());
+        for (final Value<U> value : values) {
+            bytes += 2 * bytesPerElement + identifierBytes(value.getIdentifier());
+        }
+        return bytes;
+    }
+
+    private static long identifierBytes(final Object identifier) {
+        return identifier instanceof String ? 2L * ((String) identifier).length() : 8L;
+    }
+
+    private <T, U> void write(final SequenceTree<T, U> sequenceTree, final List<Value<U>> values) {
         final Value<T> parent = sequenceTree.getRoot();
         final Dimension parentDimension = sequenceTree.getParentDimension();
         final String parentDimensionName = parentDimension.getName();
         final Map<String, Object> parentProps = Maps.newHashMap();
         final Dimension childDimension = sequenceTree.getChildDimension();
-        final List<Value<U>> values = sequenceTree.getValues();
-        addNode(parent.getIdentifier(), parentDimensionName, parentProps);
+        final Node parentNode = addNode(parent.getIdentifier(), parentDimensionName, parentProps);
         for (int i = 0; i < values.size(); i++) {
             final Value<U> child = values.get(i);
-            addNode(child.getIdentifier(), childDimension.getName(), Maps.newHashMap());
+            final Node childNode = addNode(child.getIdentifier(), childDimension.getName(), Maps.newHashMap());
             addRelation(//
-                child.getIdentifier(), //
+                childNode, //
                 childDimension.getName(),//
-                parent.getIdentifier(), //
-                parentDimensionName, //
+                parentNode, //
                 i//
             );
         }
+    }
 
-        return this;
+    /**
+     * Int and long sequences go into the row as (copied) primitive arrays, which are only viewed as lists
+     * when the children get resolved and related (see {@link #children(Map)}), so they're never boxed as a whole.
+     * @return estimated bytes of transaction state
+     */
+    private <T, U> long buffer(final SequenceTree<T, U> sequenceTree) {
+        final Object children;
+        final long bytes;
+        if (sequenceTree instanceof IntSequenceTree) {
+            final int[] identifiers = ((IntSequenceTree<?>) sequenceTree).getIdentifiers();
+            children = identifiers.clone();
+            metrics.tree(identifiers.length);
+            bytes = bytesPerElement + identifierBytes(sequenceTree.getRoot().getIdentifier()) + identifiers.length * (2L * bytesPerElement + 8L);
+        } else if (sequenceTree instanceof LongSequenceTree) {
+            final long[] identifiers = ((LongSequenceTree<?>) sequenceTree).getIdentifiers();
+            children = identifiers.clone();
+            metrics.tree(identifiers.length);
+            bytes = bytesPerElement + identifierBytes(sequenceTree.getRoot().getIdentifier()) + identifiers.length * (2L * bytesPerElement + 8L);
+        } else {
+            final List<Value<U>> values = sequenceTree.getValues();
+            final List<Object> identifiers = new ArrayList<>(values.size());
+            for (final Value<U> value : values) {
+                identifiers.add(value.getIdentifier());
+            }
+            children = identifiers;
+            metrics.tree(values.size());
+            bytes = stateBytes(sequenceTree.getRoot(), values);
+        }
+        final String parentDimension = sequenceTree.getParentDimension().getName();
+        final String childDimension = sequenceTree.getChildDimension().getName();
+        final Object root = sequenceTree.getRoot().getIdentifier();
+        final Map<String, Object> row = map("root", root, "children", children);
+        if (symbols != null) {
+            row.put("rootSymbol", symbol(parentDimension, root));
+        }
+        batches.computeIfAbsent(Arrays.asList(parentDimension, childDimension), d -> new ArrayList<>()).add(row);
+        buffered++;
+        return bytes;
     }
 
-    private <U, V> void addRelation(//
-                                    final V childId, //
-                                    final String childDimension, //
-                                    final U parentId, //
-                                    final String parentDimension, //
-                                    final int position //
-    ) {
-        final Map<String, Object> parameters = map(
-            "cid", childId,
-            "pid", parentId,
-            "pos", position
-        );
-        final String query = "MATCH (c:" + childDimension + " { " + Value.idKey + ": $cid }),(p:" + parentDimension + " { " + Value.idKey + ": $pid })\n"//
-            + "MERGE (c)-[:" + childDimension + " {" + Dimension.positionKey + ":$pos}]->(p)\n"//
+    private void flush() {
+        for (final Map.Entry<List<String>, List<Map<String, Object>>> batch : batches.entrySet()) {
+            final String parentDimension = batch.getKey().get(0);
+            final String childDimension = batch.getKey().get(1);
+            resolveChildren(childDimension, batch.getValue());
+            if (nodes != null) {
+                append(parentDimension, childDimension, batch.getValue());
+                continue;
+            }
+            /* The children go in as the nodes themselves, so only the roots are looked up. */
+            final List<Map<String, Object>> trees = new ArrayList<>(batch.getValue().size());
+            for (final Map<String, Object> tree : batch.getValue()) {
+                final List<?> children = children(tree);
+                final List<Node> childNodes = new ArrayList<>(children.size());
+                for (final Object child : children) {
+                    childNodes.add(handles.get(handleKey(childDimension, child)));
+                }
+                trees.add(map("root", tree.get("root"), "rootSymbol", tree.get("rootSymbol"), "children", childNodes));
+                if (existence != null) {
+                    written(parentDimension, tree.get("root"));
+                }
+            }
+            final String query = "UNWIND $trees AS tree\n"//
+                + "MERGE (p:" + parentDimension + " { " + Value.idKey + ": tree.root })\n"//
+                + (symbols != null ? "ON CREATE SET p." + Value.symbolKey + " = tree.rootSymbol\n" : "")//
+                + "WITH p, tree\n"//
+                + "UNWIND range(0, size(tree.children) - 1) AS pos\n"//
+                + "WITH p, pos, tree.children[pos] AS c\n"//
+                + "MERGE (c)-[:" + childDimension + " {" + Dimension.positionKey + ": pos}]->(p)\n"//
+                ;
+            execute(query, map("trees", trees));
+        }
+        batches.clear();
+        buffered = 0;
+        /* After the batches, which have the subtrees, and in order, so a subtree's root exists before its parent's parent is related. */
+        unrelated.forEach(this::relate);
+        unrelated.clear();
+    }
+
+    /**
+     * Gets a node for each child of the trees that has none in the current transaction yet.
+     * It comes from the dictionary in append-only mode, or from the node id cache,
+     * and the others are merged, each distinct one once.
+     */
+    private void resolveChildren(final String childDimension, final List<Map<String, Object>> trees) {
+        final Set<Object> unknown = new LinkedHashSet<>();
+        for (final Map<String, Object> tree : trees) {
+            for (final Object child : children(tree)) {
+                final NodeKey<?> key = handleKey(childDimension, child);
+                if (handles.containsKey(key)) {
+                    continue;
+                }
+                final long known = nodes != null ? nodes.get(childDimension, child) : NodeDictionary.absent;
+                final Node cached = known == NodeDictionary.absent ? cached(childDimension, child) : null;
+                if (known != NodeDictionary.absent) {
+                    handles.put(key, db.getNodeById(known));
+                } else if (cached != null) {
+                    if (nodes != null) {
+                        nodes.put(childDimension, child, cached.getId());
+                    }
+                    handles.put(key, cached);
+                } else {
+                    unknown.add(child);
+                }
+            }
+        }
+        final List<Object> fresh = new ArrayList<>();
+        final List<Object> known = new ArrayList<>();
+        for (final Object child : unknown) {
+            (isNew(childDimension, child) ? fresh : known).add(child);
+        }
+        resolve(childDimension, fresh, true);
+        resolve(childDimension, known, false);
+    }
+
+    /** Creates the roots and relationships through the core API, with the children's nodes at hand. */
+    private void append(final String parentDimension, final String childDimension, final List<Map<String, Object>> trees) {
+        /* The nodes are known, so there's nothing left for Cypher to plan or look up. */
+        final Label parentLabel = Label.label(parentDimension);
+        final RelationshipType type = RelationshipType.withName(childDimension);
+        for (final Map<String, Object> tree : trees) {
+            final Node parent = db.createNode(parentLabel);
+            parent.setProperty(Value.idKey, asStored(tree.get("root")));
+            /* In case it's the root of a subtree. */
+            handles.put(handleKey(parentDimension, tree.get("root")), parent);
+            if (tree.get("rootSymbol") != null) {
+                parent.setProperty(Value.symbolKey, tree.get("rootSymbol"));
+            }
+            createdNodes++;
+            if (existence != null) {
+                written(parentDimension, tree.get("root"));
+            }
+            final List<?> children = children(tree);
+            for (int i = 0; i < children.size(); i++) {
+                final Node child = handles.get(handleKey(childDimension, children.get(i)));
+                child.createRelationshipTo(parent, type).setProperty(Dimension.positionKey, (long) i);
+                createdRelationships++;
+            }
+        }
+    }
+
+    /** Looks up the children's nodes, or creates them if they are certainly new, and puts their node ids into the dictionary in append-only mode. */
+    private void resolve(final String childDimension, final List<Object> identifiers, final boolean fresh) {
+        if (identifiers.isEmpty()) {
+            return;
+        }
+        final String query = "UNWIND range(0, size($ids) - 1) AS i\n"//
+            + (fresh ? "CREATE" : "MERGE") + " (c:" + childDimension + " { " + Value.idKey + ": $ids[i] })\n"//
+            + (symbols != null ? (fresh ? "SET" : "ON CREATE SET") + " c." + Value.symbolKey + " = $symbols[i]\n" : "")//
+            + "RETURN i, c\n"//
             ;
-        db.execute(query, parameters);
+        final Map<String, Object> parameters = map("ids", identifiers);
+        if (symbols != null) {
+            parameters.put("symbols", symbols(childDimension, identifiers));
+        }
+        execute(query, parameters, row -> {
+            final Object identifier = identifiers.get(((Number) row.get("i")).intValue());
+            final Node node = (Node) row.get("c");
+            if (nodes != null) {
+                nodes.put(childDimension, identifier, node.getId());
+            }
+            handles.put(handleKey(childDimension, identifier), node);
+            resolved(childDimension, identifier, node.getId());
+        });
+        if (existence != null) {
+            identifiers.forEach(identifier -> written(childDimension, identifier));
+        }
+    }
+
+    /** @return whether the identifier is certainly in neither the store nor the current chunk */
+    private boolean isNew(final String dimension, final Object identifier) {
+        return existence != null //
+            && !existence.mightContain(dimension, identifier) //
+            && !uncommitted.getOrDefault(dimension, Collections.emptySet()).contains(identifier);
+    }
+
+    private void written(final String dimension, final Object identifier) {
+        uncommitted.computeIfAbsent(dimension, d -> new HashSet<>()).add(identifier);
+    }
+
+    private static NodeKey<?> handleKey(final String dimension, final Object identifier) {
+        return NodeKey.key(asStored(identifier), dimension);
+    }
+
+    /** @return the node from the node id cache, if it's still the node of the identifier */
+    private Node cached(final String dimension, final Object identifier) {
+        if (nodeIds == null) {
+            return null;
+        }
+        final long nodeId = nodeIds.get(dimension, identifier);
+        if (nodeId == NodeDictionary.absent) {
+            return null;
+        }
+        try {
+            final Node node = db.getNodeById(nodeId);
+            if (node.hasLabel(Label.label(dimension)) && asStored(identifier).equals(node.getProperty(Value.idKey, null))) {
+                return node;
+            }
+        } catch (final NotFoundException e) {
+            logger.trace("Node {} of {} {} is gone.", nodeId, dimension, identifier);
+        }
+        /* Deleted, and maybe the id went to another node. */
+        nodeIds.invalidate(dimension, identifier);
+        return null;
+    }
+
+    private void resolved(final String dimension, final Object identifier, final long nodeId) {
+        if (nodeIds != null) {
+            uncommittedNodeIds.put(NodeKey.key(identifier, dimension), nodeId);
+        }
+    }
+
+    /** Cypher keeps integral numbers as {@code long}s, so the roots do, too. */
+    private static Object asStored(final Object identifier) {
+        return identifier instanceof Integer || identifier instanceof Short || identifier instanceof Byte ? ((Number) identifier).longValue() : identifier;
+    }
+
+    /** The children of a buffered tree, boxed as the dictionary sees them. */
+    private static List<?> children(final Map<String, Object> tree) {
+        final Object children = tree.get("children");
+        if (children instanceof int[]) {
+            return Ints.asList((int[]) children);
+        } else if (children instanceof long[]) {
+            return Longs.asList((long[]) children);
+        }
+        return (List<?>) children;
+    }
+
+    /** @return the symbol of a string identifier, {@code null} for other identifiers or without a symbol table */
+    private Integer symbol(final String dimension, final Object identifier) {
+        return symbols != null && identifier instanceof String ? symbols.encode(dimension, (String) identifier) : null;
+    }
+
+    private List<Integer> symbols(final String dimension, final List<?> identifiers) {
+        final List<Integer> encoded = new ArrayList<>(identifiers.size());
+        for (final Object identifier : identifiers) {
+            encoded.add(symbol(dimension, identifier));
+        }
+        return encoded;
+    }
+
+    /** Merges the relationship on the nodes, looking through the relationships of the node that has fewer of the type. */
+    private void addRelation(//
+                             final Node child, //
+                             final String childDimension, //
+                             final Node parent, //
+                             final int position //
+    ) {
+        final long childNode = child.getId();
+        final long parentNode = parent.getId();
+        final RelationshipType type = RelationshipType.withName(childDimension);
+        final boolean fromParent = parent.getDegree(type, Direction.INCOMING) <= child.getDegree(type, Direction.OUTGOING);
+        final Iterable<Relationship> relationships = fromParent ? parent.getRelationships(Direction.INCOMING, type) : child.getRelationships(Direction.OUTGOING, type);
+        for (final Relationship relationship : relationships) {
+            final long other = fromParent ? relationship.getStartNodeId() : relationship.getEndNodeId();
+            final Object known = relationship.getProperty(Dimension.positionKey, null);
+            if (other == (fromParent ? childNode : parentNode) && known instanceof Number && ((Number) known).longValue() == position) {
+                return;
+            }
+        }
+        child.createRelationshipTo(parent, type).setProperty(Dimension.positionKey, (long) position);
+        createdRelationships++;
+    }
+
+    private void execute(final String query, final Map<String, Object> parameters) {
+        execute(query, parameters, row -> {
+        });
+    }
+
+    private void execute(final String query, final Map<String, Object> parameters, final Consumer<Map<String, Object>> rows) {
+        try (final Result result = db.execute(query, parameters)) {
+            result.forEachRemaining(rows);
+            final QueryStatistics statistics = result.getQueryStatistics();
+            createdNodes += statistics.getNodesCreated();
+            createdRelationships += statistics.getRelationshipsCreated();
+        }
     }
 
-    private <V> void addNode(final V id, final String dimension, final Map<String, Object> props) {
+    /** @return the node, without a lookup if it was added before in the current transaction */
+    private <V> Node addNode(final V id, final String dimension, final Map<String, Object> props) {
+        final NodeKey<?> key = handleKey(dimension, id);
+        final Node handled = handles.get(key);
+        if (handled != null) {
+            return handled;
+        }
+        final Node cached = cached(dimension, id);
+        if (cached != null) {
+            handles.put(key, cached);
+            return cached;
+        }
         final Map<String, Object> parameters = map(
-            "id", id
+            "id", id,
+            "symbol", symbol(dimension, id)
         );
-        db.execute("MERGE (:" + dimension + " { " //
+        final boolean fresh = isNew(dimension, id);
+        final Node[] node = {null};
+        if (existence != null) {
+            written(dimension, id);
+        }
+        execute((fresh ? "CREATE" : "MERGE") + " (n:" + dimension + " { " //
             //+ props.entrySet().stream().map(e -> e.getKey() + " : " + e.getValue().toString()).collect(joining(",")) + (props.isEmpty() ? "" : ", ")//
-            + Value.idKey + ": $id})", parameters);
+            + Value.idKey + ": $id})" //
+            + (symbols != null ? (fresh ? " SET" : " ON CREATE SET") + " n." + Value.symbolKey + " = $symbol" : "") //
+            + " RETURN n", parameters, row -> node[0] = (Node) row.get("n"));
+        resolved(dimension, id, node[0].getId());
+        handles.put(key, node[0]);
         if (!props.isEmpty()) {
             db.execute("MATCH (n:" + dimension + "{" + Value.idKey + ": $id})\n" //
                     + props.entrySet().stream().map(e -> "SET n." + e.getKey() + "=" + e.getValue().toString()).collect(joining("\n"))
                 , parameters);
         }
+        return node[0];
     }
 
     @Override
     public void abort() {
         logger.info("Aborting transaction...");
+        metrics.finish();
+        uncommitted.clear();
+        /* Ids of rolled back nodes may go to other nodes. */
+        uncommittedNodeIds.clear();
+        handles.clear();
+        if (nodes != null) {
+            /* Nodes of the rolled back chunk are in there, too. */
+            nodes.close();
+            nodes = null;
+        }
+        batches.clear();
+        unrelated.clear();
+        buffered = 0;
+        chunkTrees = 0;
+        chunkBytes = 0;
+        depth = 0;
         t.failure();
-        t.terminate();
+        t.close();
+    }
+
+    /* The root of a subtree and where it goes below its parent. */
+    private static final class Subtree {
+        final String parentDimension;
+        final Object root;
+        final String childDimension;
+        /* Or {@code null} for a parent without subtrees. */
+        final Object child;
+        final int position;
+
+        Subtree(final String parentDimension, final Object root, final String childDimension, final Object child, final int position) {
+            this.parentDimension = parentDimension;
+            this.root = root;
+            this.childDimension = childDimension;
+            this.child = child;
+            this.position = position;
+        }
     }
 
 
@@ -32,15 +32,22 @@ import org.slf4j.LoggerFactory;
 public class ValidatingEmbeddedBackend implements Graph {
   private static final Logger logger = LoggerFactory.getLogger(ValidatingWriter.class);
   private final Graph delegate;
+  private final boolean deepChecks;
 
   ValidatingEmbeddedBackend(final Graph delegate) {
+    this(delegate, false);
+  }
+
+  /** @param deepChecks whether the writers also check across trees, on a thread of their own (see {@link DeepChecks}) */
+  ValidatingEmbeddedBackend(final Graph delegate, final boolean deepChecks) {
     this.delegate = delegate;
+    this.deepChecks = deepChecks;
     logger.debug("Created {}.", ValidatingEmbeddedBackend.class.getName());
   }
 
   @Override
   public GraphWriter writer(final boolean batchMode) {
-    return new ValidatingWriter(delegate.writer(false));
+    return new ValidatingWriter(delegate.writer(batchMode), deepChecks ? new DeepChecks() : null);
   }
 
   @Override
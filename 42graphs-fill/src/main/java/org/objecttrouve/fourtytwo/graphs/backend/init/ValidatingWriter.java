@@ -24,54 +24,186 @@
 
 package org.objecttrouve.fourtytwo.graphs.backend.init;
 
+import com.google.common.collect.Iterators;
+import org.objecttrouve.fourtytwo.graphs.api.Dimension;
 import org.objecttrouve.fourtytwo.graphs.api.GraphWriter;
+import org.objecttrouve.fourtytwo.graphs.api.IngestSummary;
+import org.objecttrouve.fourtytwo.graphs.api.IntSequenceTree;
+import org.objecttrouve.fourtytwo.graphs.api.LongSequenceTree;
+import org.objecttrouve.fourtytwo.graphs.api.NestedTree;
 import org.objecttrouve.fourtytwo.graphs.api.SequenceTree;
+import org.objecttrouve.fourtytwo.graphs.api.Tree;
+import org.objecttrouve.fourtytwo.graphs.api.Value;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Iterator;
+
+/**
+ * Checks each tree on its own before it goes to the delegate, which costs a few null checks per tree.
+ * With {@link DeepChecks}, the checks across trees run alongside, and their first problem fails the next add or the commit.
+ */
 public class ValidatingWriter implements GraphWriter {
 
   private static final Logger logger = LoggerFactory.getLogger(ValidatingWriter.class);
     private final GraphWriter delegate;
+    private final DeepChecks deepChecks;
+    private boolean aborted;
 
     ValidatingWriter(final GraphWriter delegate) {
+        this(delegate, null);
+    }
+
+    /** @param deepChecks or {@code null} to check each tree on its own only */
+    ValidatingWriter(final GraphWriter delegate, final DeepChecks deepChecks) {
         this.delegate = delegate;
+        this.deepChecks = deepChecks;
     }
 
     @Override
-    public void commit() {
-        delegate.commit();
+    public IngestSummary commit() {
+        if (deepChecks != null) {
+            final String problem = deepChecks.finish();
+            if (problem != null) {
+                throw rejected(problem);
+            }
+        }
+        return delegate.commit();
     }
 
     @Override
     public <T, U> GraphWriter add(final SequenceTree<T, U> sequenceTree) {
+        delegate.add(validated(sequenceTree));
+        return this;
+    }
+
+    /** Validates the subtrees as the delegate iterates them, so it can still add them in one pass. */
+    @Override
+    public <T, U> GraphWriter add(final NestedTree<T, U> nestedTree) {
+        delegate.add(validated(nestedTree));
+        return this;
+    }
+
+    /** Validates the trees on their way to the delegate, so it still gets them all at once. */
+    @Override
+    public GraphWriter addAll(final Iterable<? extends SequenceTree<?, ?>> sequenceTrees) {
+        final Iterable<SequenceTree<?, ?>> validated = () -> Iterators.transform(sequenceTrees.iterator(), this::validated);
+        delegate.addAll(validated);
+        return this;
+    }
+
+    private <T, U> SequenceTree<T, U> validated(final SequenceTree<T, U> sequenceTree) {
       logger.trace("Validating {} {}...", SequenceTree.class, sequenceTree);
         if (sequenceTree == null){
-            abort();
-            throw new IllegalArgumentException("Sequence tree not be null.");
+            throw rejected("Sequence tree not be null.");
         }
         if (sequenceTree.getRoot() == null) {
-            abort();
-            throw new IllegalArgumentException("Root item must not be null.");
+            throw rejected("Root item must not be null.");
         }
         if (sequenceTree.getParentDimension() == null) {
-            abort();
-            throw new IllegalArgumentException("Root dimension must not be null.");
+            throw rejected("Root dimension must not be null.");
         }
-        if (sequenceTree.getValues() == null) {
-            abort();
-            throw new IllegalArgumentException("Values must not be null. (Empty would be OK.)");
+        if (values(sequenceTree) == null) {
+            throw rejected("Values must not be null. (Empty would be OK.)");
         }
         if (sequenceTree.getChildDimension() == null) {
-            abort();
-            throw new IllegalArgumentException("Leaf dimension must not be null.");
+            throw rejected("Leaf dimension must not be null.");
+        }
+        return deeplyChecked(sequenceTree);
+    }
+
+    /** @return the identifiers of int and long sequences as they are, without boxing them into values */
+    private static Object values(final SequenceTree<?, ?> sequenceTree) {
+        if (sequenceTree instanceof IntSequenceTree) {
+            return ((IntSequenceTree<?>) sequenceTree).getIdentifiers();
+        }
+        if (sequenceTree instanceof LongSequenceTree) {
+            return ((LongSequenceTree<?>) sequenceTree).getIdentifiers();
+        }
+        return sequenceTree.getValues();
+    }
+
+    private <T, U> NestedTree<T, U> validated(final NestedTree<T, U> nestedTree) {
+        logger.trace("Validating {} {}...", NestedTree.class, nestedTree);
+        if (nestedTree == null) {
+            throw rejected("Nested tree must not be null.");
+        }
+        if (nestedTree.getRoot() == null) {
+            throw rejected("Root item must not be null.");
+        }
+        if (nestedTree.getParentDimension() == null) {
+            throw rejected("Root dimension must not be null.");
+        }
+        if (nestedTree.getChildDimension() == null) {
+            throw rejected("Subtree dimension must not be null.");
+        }
+        deeplyChecked(nestedTree);
+        return new NestedTree<T, U>() {
+            @Override
+            public Value<T> getRoot() {
+                return nestedTree.getRoot();
+            }
+
+            @Override
+            public Dimension getParentDimension() {
+                return nestedTree.getParentDimension();
+            }
+
+            @Override
+            public Dimension getChildDimension() {
+                return nestedTree.getChildDimension();
+            }
+
+            @Override
+            public Iterator<? extends Tree<U>> getSubtrees() {
+                final Iterator<? extends Tree<U>> subtrees = nestedTree.getSubtrees();
+                if (subtrees == null) {
+                    throw rejected("Subtrees must not be null. (Empty would be OK.)");
+                }
+                return Iterators.transform(subtrees, ValidatingWriter.this::validatedSubtree);
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private <U> Tree<U> validatedSubtree(final Tree<U> subtree) {
+        if (subtree instanceof NestedTree) {
+            return validated((NestedTree<U, ?>) subtree);
+        }
+        if (subtree instanceof SequenceTree || subtree == null) {
+            return validated((SequenceTree<U, ?>) subtree);
         }
+        throw rejected("Subtree must be a sequence tree or a nested tree.");
+    }
 
-        return delegate.add(sequenceTree);
+    /* Hands the tree to the deep checks, after failing on the first problem they found so far. */
+    private <T extends Tree<?>> T deeplyChecked(final T tree) {
+        if (deepChecks != null) {
+            final String problem = deepChecks.problem();
+            if (problem != null) {
+                throw rejected(problem);
+            }
+            deepChecks.check(tree);
+        }
+        return tree;
     }
 
+    /* Aborts the delegate, so a batch writer releases the store. */
+    private IllegalArgumentException rejected(final String message) {
+        abort();
+        return new IllegalArgumentException(message);
+    }
+
+    /** Aborts the delegate once, even after a rejected tree aborted it already. */
     @Override
     public void abort() {
+        if (aborted) {
+            return;
+        }
+        aborted = true;
+        if (deepChecks != null) {
+            deepChecks.finish();
+        }
         delegate.abort();
     }
 }
@@ -0,0 +1,128 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 objecttrouve.org <un.object.trouve@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.objecttrouve.fourtytwo.graphs.backend.init;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.factory.GraphDatabaseFactory;
+import org.objecttrouve.fourtytwo.graphs.api.GraphWriter;
+import org.objecttrouve.fourtytwo.graphs.api.IngestSummary;
+
+import java.io.IOException;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.objecttrouve.fourtytwo.graphs.backend.init.Stores.count;
+import static org.objecttrouve.fourtytwo.graphs.backend.init.Stores.sentence;
+import static org.objecttrouve.fourtytwo.graphs.mocks.TestIntSequenceTree.anIntSequence;
+import static org.objecttrouve.fourtytwo.graphs.mocks.TestIntegerSequenceTree.anIntegerSequence;
+
+public class AppendOnlyWriterTest {
+
+    @ClassRule
+    public static TemporaryFolder tmpFolder = new TemporaryFolder();
+    private static GraphDatabaseService db;
+
+    @BeforeClass
+    public static void init() throws IOException {
+        db = new GraphDatabaseFactory().newEmbeddedDatabase(tmpFolder.newFolder());
+    }
+
+    @AfterClass
+    public static void destroy() {
+        db.shutdown();
+    }
+
+    @Before
+    public void clean() {
+        try (final Transaction tx = db.beginTx()) {
+            db.execute("MATCH (n) DETACH DELETE n");
+            tx.success();
+        }
+    }
+
+    private static GraphWriter appending(final int batchSize) {
+        return new TransactionalWriter(db, db.beginTx(), BackendSettings.settings().withAppendOnly(true).withUnwindBatches(batchSize));
+    }
+
+    @Test
+    public void childrenAreMergedOnce() {
+        /* Token nodes from an earlier load, which the writer doesn't know. */
+        new TransactionalWriter(db, db.beginTx()).add(sentence("s0", "Und", "Gott")).commit();
+
+        final IngestSummary summary = appending(2)
+            .add(sentence("s1", "Und", "es", "ward", "Licht"))
+            .add(sentence("s2", "Und", "es", "ward", "Abend"))
+            .add(sentence("s3", "Licht", "Licht"))
+            .commit();
+
+        assertThat(summary.getNodes(), is(7L));
+        assertThat(summary.getRelationships(), is(10L));
+        assertThat(count(db, "MATCH (t:Token) RETURN count(t)"), is(6L));
+        assertThat(count(db, "MATCH (:Token{identifier:'Und'})-[r:Token{position:0}]->(:Sentence) RETURN count(r)"), is(3L));
+        assertThat(count(db, "MATCH (:Token{identifier:'Licht'})-[r:Token]->(:Sentence{identifier:'s3'}) RETURN count(r)"), is(2L));
+        assertThat(count(db, "MATCH (:Token{identifier:'Abend'})-[r:Token{position:3}]->(:Sentence{identifier:'s2'}) RETURN count(r)"), is(1L));
+    }
+
+    @Test
+    public void integerSequences() {
+        appending(0)
+            .add(anIntegerSequence().withRoot(1).withParentDimension("Sentence").withChildDimension("Token").withLeaves(7, 8, 7))
+            .add(anIntegerSequence().withRoot(2).withParentDimension("Sentence").withChildDimension("Token").withLeaves(8))
+            .commit();
+
+        assertThat(count(db, "MATCH (t:Token) RETURN count(t)"), is(2L));
+        assertThat(count(db, "MATCH (:Token{identifier:8})-[r:Token]->(:Sentence) RETURN count(r)"), is(2L));
+    }
+
+    @Test
+    public void intSequences() {
+        appending(0)
+            .add(anIntSequence().withRoot(1).withParentDimension("Sentence").withChildDimension("Token").withLeaves(7, 8, 7))
+            .add(anIntSequence().withRoot(2).withParentDimension("Sentence").withChildDimension("Token").withLeaves(8))
+            .commit();
+
+        assertThat(count(db, "MATCH (t:Token) RETURN count(t)"), is(2L));
+        assertThat(count(db, "MATCH (:Token{identifier:8})-[r:Token]->(:Sentence) RETURN count(r)"), is(2L));
+        assertThat(count(db, "MATCH (:Token{identifier:7})-[r:Token{position:2}]->(:Sentence{identifier:1}) RETURN count(r)"), is(1L));
+    }
+
+    @Test
+    public void abortRollsBackTheChildren() {
+        final GraphWriter aborted = appending(1);
+        aborted.add(sentence("s1", "Und", "es"));
+        aborted.abort();
+
+        appending(1).add(sentence("s2", "Und", "es")).commit();
+
+        assertThat(count(db, "MATCH (t:Token)-->(:Sentence) RETURN count(t)"), is(2L));
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 objecttrouve.org <un.object.trouve@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.objecttrouve.fourtytwo.graphs.backend.init;
+
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.factory.GraphDatabaseFactory;
+import org.neo4j.unsafe.batchinsert.BatchInserters;
+import org.objecttrouve.fourtytwo.graphs.api.GraphWriter;
+import org.objecttrouve.fourtytwo.graphs.api.IngestSummary;
+import org.objecttrouve.fourtytwo.graphs.api.SequenceTree;
+import org.objecttrouve.fourtytwo.graphs.categories.Snore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.objecttrouve.fourtytwo.graphs.mocks.TestStringSequenceTree.aStringSequence;
+
+/**
+ * Compares {@link GraphWriter#addAll(Iterable)} with a loop of {@link GraphWriter#add(SequenceTree)} calls.
+ */
+@Category(Snore.class)
+public class BulkAddThroughputTest {
+
+    private static final Logger log = LoggerFactory.getLogger(BulkAddThroughputTest.class);
+
+    private static final int tokensPerSentence = 20;
+    private static final int sentencesPerDocument = 50;
+    private static final int vocabulary = 50_000;
+
+    @ClassRule
+    public static TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    @Test
+    public void batch_initializer() throws IOException {
+        final List<SequenceTree<String, String>> corpus = corpus(100_000);
+
+        final double warmUp = treesPerSecond(corpus, this::batchWriter, false);
+        final double single = treesPerSecond(corpus, this::batchWriter, false);
+        final double bulk = treesPerSecond(corpus, this::batchWriter, true);
+
+        log.info(String.format("Batch initializer, %d trees: add %.0f trees/s (warm-up %.0f), addAll %.0f trees/s.", corpus.size(), single, warmUp, bulk));
+        assertThat(bulk > 0, is(true));
+    }
+
+    @Test
+    public void transactional_writer() throws IOException {
+        final List<SequenceTree<String, String>> corpus = corpus(1_000);
+
+        final double single = treesPerSecond(corpus, this::transactionalWriter, false);
+        final double bulk = treesPerSecond(corpus, this::transactionalWriter, true);
+
+        log.info(String.format("Transactional writer, %d trees: add %.0f trees/s, addAll %.0f trees/s.", corpus.size(), single, bulk));
+        assertThat(bulk > single, is(true));
+    }
+
+    private GraphWriter batchWriter(final File storeDir) {
+        try {
+            return new CachingBatchInitializer(BatchInserters.inserter(storeDir));
+        } catch (final IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private GraphWriter transactionalWriter(final File storeDir) {
+        final GraphDatabaseService db = new GraphDatabaseFactory().newEmbeddedDatabase(storeDir);
+        final GraphWriter writer = new TransactionalWriter(db, db.beginTx());
+        return new GraphWriter() {
+            @Override
+            public IngestSummary commit() {
+                final IngestSummary summary = writer.commit();
+                db.shutdown();
+                return summary;
+            }
+
+            @Override
+            public <T, U> GraphWriter add(final SequenceTree<T, U> sequenceTree) {
+                writer.add(sequenceTree);
+                return this;
+            }
+
+            @Override
+            public GraphWriter addAll(final Iterable<? extends SequenceTree<?, ?>> sequenceTrees) {
+                writer.addAll(sequenceTrees);
+                return this;
+            }
+
+            @Override
+            public void abort() {
+                writer.abort();
+                db.shutdown();
+            }
+        };
+    }
+
+    private static double treesPerSecond(final List<SequenceTree<String, String>> corpus, final Function<File, GraphWriter> writers, final boolean bulk) throws IOException {
+        final GraphWriter writer = writers.apply(tmpFolder.newFolder());
+        final long start = System.nanoTime();
+        if (bulk) {
+            writer.addAll(corpus);
+        } else {
+            for (final SequenceTree<String, String> sequenceTree : corpus) {
+                writer.add(sequenceTree);
+            }
+        }
+        writer.commit();
+        return corpus.size() * 1e9 / (System.nanoTime() - start);
+    }
+
+    /* Sentences and, after every so many of them, the document holding them, like a corpus reader would emit them. */
+    private static List<SequenceTree<String, String>> corpus(final int sentences) {
+        final Random random = new Random(42);
+        final List<SequenceTree<String, String>> corpus = new ArrayList<>();
+        final List<String> document = new ArrayList<>();
+        for (int s = 0; s < sentences; s++) {
+            final String[] tokens = new String[tokensPerSentence];
+            for (int t = 0; t < tokensPerSentence; t++) {
+                tokens[t] = "t" + (int) Math.pow(vocabulary, random.nextDouble());
+            }
+            corpus.add(aStringSequence().withRoot("s" + s).withParentDimension("Sentence").withChildDimension("Token").withLeaves(tokens));
+            document.add("s" + s);
+            if (document.size() == sentencesPerDocument) {
+                corpus.add(aStringSequence().withRoot("d" + s).withParentDimension("Document").withChildDimension("Sentence").withLeaves(document.toArray(new String[0])));
+                document.clear();
+            }
+        }
+        return corpus;
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 objecttrouve.org <un.object.trouve@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.objecttrouve.fourtytwo.graphs.backend.init;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.factory.GraphDatabaseFactory;
+import org.objecttrouve.fourtytwo.graphs.api.GraphWriter;
+import org.objecttrouve.fourtytwo.graphs.api.NestedTree;
+import org.objecttrouve.fourtytwo.graphs.api.SequenceTree;
+import org.objecttrouve.fourtytwo.graphs.api.Tree;
+import org.objecttrouve.fourtytwo.graphs.api.Value;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+import static org.objecttrouve.fourtytwo.graphs.backend.init.Stores.count;
+import static org.objecttrouve.fourtytwo.graphs.mocks.TestNestedTree.aNestedTree;
+import static org.objecttrouve.fourtytwo.graphs.mocks.TestStringSequenceTree.aStringSequence;
+
+public class ChunkedTransactionsTest {
+
+    @ClassRule
+    public static TemporaryFolder tmpFolder = new TemporaryFolder();
+    private static GraphDatabaseService db;
+
+    @BeforeClass
+    public static void init() throws IOException {
+        db = new GraphDatabaseFactory().newEmbeddedDatabase(tmpFolder.newFolder());
+    }
+
+    @AfterClass
+    public static void destroy() {
+        db.shutdown();
+    }
+
+    @Before
+    public void clean() {
+        try (final Transaction tx = db.beginTx()) {
+            db.execute("MATCH (n) DETACH DELETE n");
+            tx.success();
+        }
+    }
+
+    private static SequenceTree<String, String> sentence(final int i) {
+        return aStringSequence()
+            .withRoot("s" + i)
+            .withParentDimension("Sentence")
+            .withChildDimension("Token")
+            .withLeaves("Und", "es", "ward", "Licht", String.valueOf(i));
+    }
+
+    @SafeVarargs
+    private static NestedTree<String, String> document(final String root, final Tree<String>... sentences) {
+        return aNestedTree()
+            .withRoot(root)
+            .withParentDimension("Document")
+            .withChildDimension("Sentence")
+            .withSubtrees(sentences);
+    }
+
+    @Test
+    public void commitEveryNTrees() {
+        final List<Long> progress = new ArrayList<>();
+        final GraphWriter writer = new TransactionalWriter(db, db.beginTx(), BackendSettings.settings()
+            .withChunkedTransactions(3, 0)
+            .withChunkListener(progress::add));
+
+        for (int i = 0; i < 10; i++) {
+            writer.add(sentence(i));
+        }
+        writer.commit();
+
+        assertThat(progress, is(Arrays.asList(3L, 6L, 9L, 10L)));
+        assertThat(count(db, "MATCH (s:Sentence) RETURN count(s)"), is(10L));
+        assertThat(count(db, "MATCH ()-[r:Token]->() RETURN count(r)"), is(50L));
+    }
+
+    @Test
+    public void commitEveryMBytes() {
+        final List<Long> progress = new ArrayList<>();
+        final GraphWriter writer = new TransactionalWriter(db, db.beginTx(), BackendSettings.settings()
+            .withChunkedTransactions(0, 1)
+            .withChunkListener(progress::add));
+
+        for (int i = 0; i < 3; i++) {
+            writer.add(sentence(i));
+        }
+        writer.commit();
+
+        assertThat(progress, is(Arrays.asList(1L, 2L, 3L, 3L)));
+    }
+
+    @Test
+    public void abortKeepsCommittedChunks() {
+        final List<Long> progress = new ArrayList<>();
+        final GraphWriter writer = new TransactionalWriter(db, db.beginTx(), BackendSettings.settings()
+            .withUnwindBatches(2)
+            .withChunkedTransactions(4, 0)
+            .withChunkListener(progress::add));
+
+        for (int i = 0; i < 6; i++) {
+            writer.add(sentence(i));
+        }
+        writer.abort();
+
+        assertThat(progress, is(Arrays.asList(4L)));
+        assertThat(count(db, "MATCH (s:Sentence) RETURN count(s)"), is(4L));
+    }
+
+    @Test
+    public void nestedTreeCountsAsOne() {
+        final List<Long> progress = new ArrayList<>();
+        final GraphWriter writer = new TransactionalWriter(db, db.beginTx(), BackendSettings.settings()
+            .withChunkedTransactions(1, 0)
+            .withChunkListener(progress::add));
+
+        writer.add(document("d1", sentence(0), sentence(1), sentence(2)));
+        writer.add(document("d2", sentence(3), sentence(4)));
+        writer.commit();
+
+        assertThat(progress, is(Arrays.asList(1L, 2L, 2L)));
+        assertThat(count(db, "MATCH (:Sentence)-[r:Sentence]->(:Document) RETURN count(r)"), is(5L));
+    }
+
+    @Test
+    public void failedNestedTreeLeavesNothingBehind() {
+        final List<Long> progress = new ArrayList<>();
+        final GraphWriter writer = new TransactionalWriter(db, db.beginTx(), BackendSettings.settings()
+            .withChunkedTransactions(1, 0)
+            .withChunkListener(progress::add));
+        writer.add(document("d1", sentence(0)));
+
+        try {
+            writer.add(document("d2", sentence(1), sentence(2), aStringSequence()
+                .withRoot("p1")
+                .withParentDimension("Paragraph")
+                .withChildDimension("Token")
+                .withLeaves("Und")));
+            fail("Subtree in the wrong dimension.");
+        } catch (final IllegalArgumentException e) {
+            writer.abort();
+        }
+
+        assertThat(progress, is(Arrays.asList(1L)));
+        assertThat(count(db, "MATCH (d:Document) RETURN count(d)"), is(1L));
+        assertThat(count(db, "MATCH (s:Sentence) RETURN count(s)"), is(1L));
+    }
+
+    @Test
+    public void nodesOfEarlierChunksAreLookedUpAgain() {
+        final GraphWriter writer = new TransactionalWriter(db, db.beginTx(), BackendSettings.settings()
+            .withChunkedTransactions(1, 0)
+            .withChunkListener(committedTrees -> {
+                if (committedTrees == 1) {
+                    try (final Transaction tx = db.beginTx()) {
+                        db.execute("MATCH (t:Token { " + Value.idKey + ": 'Licht' }) DETACH DELETE t");
+                        tx.success();
+                    }
+                }
+            }));
+
+        writer.add(sentence(0)).add(sentence(1)).commit();
+
+        assertThat(count(db, "MATCH (t:Token) RETURN count(t)"), is(6L));
+        assertThat(count(db, "MATCH (:Token)-[r:Token]->(:Sentence) RETURN count(r)"), is(9L));
+    }
+
+    @Test
+    public void repeatedNodesInOneTransaction() {
+        final GraphWriter writer = new TransactionalWriter(db, db.beginTx(), BackendSettings.settings());
+
+        writer.add(aStringSequence()
+            .withRoot("s0")
+            .withParentDimension("Sentence")
+            .withChildDimension("Token")
+            .withLeaves("Abend", "und", "Abend", "und", "Abend"));
+        writer.add(sentence(1));
+        writer.commit();
+
+        assertThat(count(db, "MATCH (t:Token) RETURN count(t)"), is(7L));
+        assertThat(count(db, "MATCH (:Token { " + Value.idKey + ": 'Abend' })-[r:Token]->() RETURN count(r)"), is(3L));
+        assertThat(count(db, "MATCH ()-[r:Token]->() RETURN count(r)"), is(10L));
+    }
+}
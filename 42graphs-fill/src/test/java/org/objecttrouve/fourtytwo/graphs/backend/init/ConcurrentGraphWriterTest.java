@@ -0,0 +1,174 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 objecttrouve.org <un.object.trouve@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.objecttrouve.fourtytwo.graphs.backend.init;
+
+import org.junit.Test;
+import org.objecttrouve.fourtytwo.graphs.api.GraphWriter;
+import org.objecttrouve.fourtytwo.graphs.api.IngestSummary;
+import org.objecttrouve.fourtytwo.graphs.api.SequenceTree;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+import static org.objecttrouve.fourtytwo.graphs.mocks.TestStringSequenceTree.aStringSequence;
+
+public class ConcurrentGraphWriterTest {
+
+    private static class RecordingWriter implements GraphWriter {
+        final Set<Object> roots = Collections.synchronizedSet(new HashSet<>());
+        final Set<Thread> threads = Collections.synchronizedSet(new HashSet<>());
+        volatile int commits;
+        volatile int aborts;
+
+        @Override
+        public IngestSummary commit() {
+            threads.add(Thread.currentThread());
+            commits++;
+            return null;
+        }
+
+        @Override
+        public <T, U> GraphWriter add(final SequenceTree<T, U> sequenceTree) {
+            threads.add(Thread.currentThread());
+            roots.add(sequenceTree.getRoot().getIdentifier());
+            return this;
+        }
+
+        @Override
+        public void abort() {
+            threads.add(Thread.currentThread());
+            aborts++;
+        }
+    }
+
+    private static SequenceTree<String, String> tree(final String root) {
+        return aStringSequence()
+            .withRoot(root)
+            .withParentDimension("Sentence")
+            .withChildDimension("Token")
+            .withLeaves("a", "b");
+    }
+
+    @Test
+    public void addFromManyThreadsAndCommit() throws Exception {
+        final RecordingWriter delegate = new RecordingWriter();
+        final GraphWriter writer = new ConcurrentGraphWriter(() -> delegate, 64, Backpressure.block);
+        final int producers = 8;
+        final int perProducer = 10_000;
+        final ExecutorService executor = Executors.newFixedThreadPool(producers);
+        final Set<Future<?>> futures = new HashSet<>();
+        for (int p = 0; p < producers; p++) {
+            final int producer = p;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    writer.add(tree(producer + "-" + i));
+                }
+            }));
+        }
+        for (final Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        writer.commit();
+
+        assertThat(delegate.roots.size(), is(producers * perProducer));
+        assertThat(delegate.commits, is(1));
+        assertThat(delegate.aborts, is(0));
+        assertThat(delegate.threads.size(), is(1));
+    }
+
+    @Test
+    public void abortDiscardsQueuedTrees() {
+        final RecordingWriter delegate = new RecordingWriter();
+        final GraphWriter writer = new ConcurrentGraphWriter(() -> delegate, 16, Backpressure.block);
+
+        writer.add(tree("1"));
+        writer.abort();
+
+        assertThat(delegate.aborts, is(1));
+        assertThat(delegate.commits, is(0));
+    }
+
+    @Test
+    public void failWhenFull() throws InterruptedException {
+        final CountDownLatch stuck = new CountDownLatch(1);
+        final RecordingWriter delegate = new RecordingWriter() {
+            @Override
+            public <T, U> GraphWriter add(final SequenceTree<T, U> sequenceTree) {
+                try {
+                    stuck.await();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.add(sequenceTree);
+            }
+        };
+        final GraphWriter writer = new ConcurrentGraphWriter(() -> delegate, 4, Backpressure.fail);
+
+        try {
+            for (int i = 0; i < 100; i++) {
+                writer.add(tree(String.valueOf(i)));
+            }
+            fail("Expected a full queue.");
+        } catch (final IllegalStateException e) {
+            /* Expected. */
+        }
+
+        stuck.countDown();
+        writer.commit();
+        assertThat(delegate.commits, is(1));
+    }
+
+    @Test
+    public void inserterFailureSurfacesOnCommit() {
+        final RecordingWriter delegate = new RecordingWriter() {
+            @Override
+            public <T, U> GraphWriter add(final SequenceTree<T, U> sequenceTree) {
+                throw new IllegalArgumentException("Broken.");
+            }
+        };
+        final GraphWriter writer = new ConcurrentGraphWriter(() -> delegate, 16, Backpressure.block);
+        writer.add(tree("1"));
+
+        try {
+            writer.commit();
+            fail("Expected the failure of the inserter.");
+        } catch (final IllegalStateException e) {
+            assertThat(e.getCause() instanceof IllegalArgumentException, is(true));
+        }
+        assertThat(delegate.aborts, is(1));
+        assertThat(delegate.commits, is(0));
+    }
+}
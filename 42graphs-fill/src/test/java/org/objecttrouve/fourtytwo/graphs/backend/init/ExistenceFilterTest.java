@@ -0,0 +1,106 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 objecttrouve.org <un.object.trouve@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.objecttrouve.fourtytwo.graphs.backend.init;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.objecttrouve.fourtytwo.graphs.api.GraphWriter;
+
+import java.io.IOException;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.objecttrouve.fourtytwo.graphs.backend.init.Stores.count;
+import static org.objecttrouve.fourtytwo.graphs.backend.init.Stores.sentence;
+
+public class ExistenceFilterTest {
+
+    @Rule
+    public Stores stores = new Stores();
+    private EmbeddedBackend graph;
+
+    @Before
+    public void init() throws IOException {
+        graph = stores.backend(BackendSettings.settings().withExistenceFilter(1000, 0.001));
+    }
+
+    @Test
+    public void numbersAsTheStoreHasThem() {
+        final ExistenceFilter filter = new ExistenceFilter(100, 0.001);
+        filter.put("Token", 42);
+
+        assertThat(filter.mightContain("Token", 42L), is(true));
+        assertThat(filter.mightContain("Sentence", 42L), is(false));
+        assertThat(filter.mightContain("Token", "42"), is(false));
+    }
+
+    @Test
+    public void noDuplicatesAcrossWriters() {
+        graph.writer(false).add(sentence("s1", "Und", "es", "ward", "Licht")).commit();
+        graph.writer(false).add(sentence("s2", "Und", "es", "ward", "Abend", "Abend")).commit();
+
+        assertThat(count(graph.getDb(), "MATCH (t:Token) RETURN count(t)"), is(5L));
+        assertThat(count(graph.getDb(), "MATCH (s:Sentence) RETURN count(s)"), is(2L));
+        assertThat(count(graph.getDb(), "MATCH ()-[r:Token]->() RETURN count(r)"), is(9L));
+    }
+
+    @Test
+    public void appendOnlyWithTheFilter() {
+        final GraphWriter first = new TransactionalWriter(graph.getDb(), graph.getDb().beginTx(), BackendSettings.settings().withAppendOnly(true), null, null, filter(), null);
+        first.add(sentence("s1", "Und", "es", "ward", "Licht")).commit();
+
+        assertThat(count(graph.getDb(), "MATCH (t:Token) RETURN count(t)"), is(4L));
+    }
+
+    @Test
+    public void rebuiltAfterBatchWrites() {
+        graph.writer(true).add(sentence("s1", "Und", "es", "ward", "Licht")).commit();
+        graph.writer(false).add(sentence("s2", "Und", "es", "ward", "Abend")).commit();
+
+        assertThat(count(graph.getDb(), "MATCH (t:Token) RETURN count(t)"), is(5L));
+    }
+
+    @Test
+    public void onlyCommittedIdentifiers() {
+        final ExistenceFilter filter = new ExistenceFilter(100, 0.001);
+        final GraphDatabaseService db = graph.getDb();
+        final GraphWriter aborted = new TransactionalWriter(db, db.beginTx(), BackendSettings.settings(), null, null, filter, null);
+        aborted.add(sentence("s1", "Und"));
+        aborted.abort();
+        assertThat(filter.mightContain("Token", "Und"), is(false));
+
+        new TransactionalWriter(db, db.beginTx(), BackendSettings.settings(), null, null, filter, null).add(sentence("s1", "Und")).commit();
+        assertThat(filter.mightContain("Token", "Und"), is(true));
+        assertThat(filter.mightContain("Sentence", "s1"), is(true));
+    }
+
+    private ExistenceFilter filter() {
+        final ExistenceFilter filter = new ExistenceFilter(100, 0.001);
+        filter.rebuild(graph.getDb());
+        return filter;
+    }
+}
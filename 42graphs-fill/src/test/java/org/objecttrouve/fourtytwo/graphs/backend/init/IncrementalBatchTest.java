@@ -0,0 +1,117 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 objecttrouve.org <un.object.trouve@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.objecttrouve.fourtytwo.graphs.backend.init;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.objecttrouve.fourtytwo.graphs.backend.init.Stores.count;
+import static org.objecttrouve.fourtytwo.graphs.backend.init.Stores.sentence;
+import static org.objecttrouve.fourtytwo.graphs.mocks.TestIntSequenceTree.anIntSequence;
+
+public class IncrementalBatchTest {
+
+    @Rule
+    public Stores stores = new Stores();
+    private File storeDir;
+    private EmbeddedBackend graph;
+
+    @Before
+    public void init() throws IOException {
+        storeDir = stores.newStoreDir();
+        graph = backend(BackendSettings.settings().withIncrementalBatches(true));
+    }
+
+    private EmbeddedBackend backend(final BackendSettings settings) {
+        return stores.backend(storeDir, settings);
+    }
+
+    @Test
+    public void secondBatchReusesNodes() {
+        graph.writer(true).add(sentence("s1", "Und", "es", "ward", "Licht")).commit();
+        graph.writer(true).add(sentence("s2", "Und", "es", "ward", "Abend")).commit();
+
+        assertThat(count(graph.getDb(), "MATCH (t:Token) RETURN count(t)"), is(5L));
+        assertThat(count(graph.getDb(), "MATCH (s:Sentence) RETURN count(s)"), is(2L));
+        assertThat(count(graph.getDb(), "MATCH (:Token{identifier:'Und'})-[r]->() RETURN count(r)"), is(2L));
+    }
+
+    @Test
+    public void secondBatchSkipsKnownTrees() {
+        graph.writer(true).add(sentence("s1", "Und", "es", "ward", "Licht")).commit();
+        graph.writer(true).add(sentence("s1", "Und", "es", "ward", "Licht")).commit();
+
+        assertThat(count(graph.getDb(), "MATCH (n) RETURN count(n)"), is(5L));
+        assertThat(count(graph.getDb(), "MATCH ()-[r]->() RETURN count(r)"), is(4L));
+    }
+
+    @Test
+    public void secondBatchReusesNodesOfIntSequences() {
+        graph.writer(true).add(anIntSequence().withRoot(1).withParentDimension("Sentence").withChildDimension("Token").withLeaves(7, 8, 7)).commit();
+        graph.writer(true).add(anIntSequence().withRoot(2).withParentDimension("Sentence").withChildDimension("Token").withLeaves(8, 9)).commit();
+
+        assertThat(count(graph.getDb(), "MATCH (t:Token) RETURN count(t)"), is(3L));
+        assertThat(count(graph.getDb(), "MATCH (:Token{identifier:8})-[r]->() RETURN count(r)"), is(2L));
+    }
+
+    @Test
+    public void batchAfterTransactionalWrites() {
+        graph.writer(false).add(sentence("s1", "Und", "es", "ward", "Licht")).commit();
+        graph.writer(true).add(sentence("s2", "Licht")).commit();
+
+        assertThat(count(graph.getDb(), "MATCH (t:Token) RETURN count(t)"), is(4L));
+        assertThat(count(graph.getDb(), "MATCH (t:Token{identifier:'Licht'})-[r]->() RETURN count(r)"), is(2L));
+    }
+
+    @Test
+    public void secondBatchWithConstraintsReusesNodes() {
+        graph.writer(true).add(sentence("s1", "Und", "es", "ward", "Licht")).commit();
+        graph.shutdown();
+        graph = backend(BackendSettings.settings());
+
+        graph.writer(true).add(sentence("s2", "Licht")).commit();
+
+        assertThat(count(graph.getDb(), "MATCH (t:Token) RETURN count(t)"), is(4L));
+        assertThat(count(graph.getDb(), "MATCH (t:Token{identifier:'Licht'})-[r]->() RETURN count(r)"), is(2L));
+    }
+
+    @Test
+    public void secondBatchWithoutConstraints() {
+        graph.shutdown();
+        graph = backend(BackendSettings.settings().withIdentifierConstraints(false));
+
+        graph.writer(true).add(sentence("s1", "Und", "es", "ward", "Licht")).commit();
+        graph.writer(true).add(sentence("s2", "Licht")).commit();
+
+        /* Created again, as documented. */
+        assertThat(count(graph.getDb(), "MATCH (t:Token{identifier:'Licht'}) RETURN count(t)"), is(2L));
+    }
+}
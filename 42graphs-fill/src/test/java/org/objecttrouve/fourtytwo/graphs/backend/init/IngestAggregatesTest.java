@@ -0,0 +1,144 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 objecttrouve.org <un.object.trouve@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.objecttrouve.fourtytwo.graphs.backend.init;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Transaction;
+import org.objecttrouve.fourtytwo.graphs.api.SequenceTree;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.neo4j.helpers.collection.MapUtil.map;
+import static org.objecttrouve.fourtytwo.graphs.backend.init.Stores.sentence;
+import static org.objecttrouve.fourtytwo.graphs.mocks.TestNestedTree.aNestedTree;
+import static org.objecttrouve.fourtytwo.graphs.mocks.TestStringSequenceTree.aStringSequence;
+
+public class IngestAggregatesTest {
+
+    @Rule
+    public Stores stores = new Stores();
+    private File storeDir;
+    private EmbeddedBackend graph;
+
+    @Before
+    public void init() throws IOException {
+        storeDir = stores.newStoreDir();
+        graph = backend(BackendSettings.settings().withIngestAggregates(true));
+    }
+
+    private EmbeddedBackend backend(final BackendSettings settings) {
+        return stores.backend(storeDir, settings);
+    }
+
+    private static SequenceTree<String, String> document(final String root, final String... sentences) {
+        return aStringSequence()
+            .withRoot(root)
+            .withParentDimension("Document")
+            .withChildDimension("Sentence")
+            .withLeaves(sentences);
+    }
+
+    private Object property(final String dimension, final String identifier, final String key) {
+        final GraphDatabaseService db = graph.getDb();
+        try (final Transaction tx = db.beginTx()) {
+            final Object value = db.execute("MATCH (n:" + dimension + "{identifier:$id}) RETURN n." + key, map("id", identifier)).next().values().iterator().next();
+            tx.success();
+            return value;
+        }
+    }
+
+    @Test
+    public void sameAsTheProcedures() {
+        graph.writer(true)
+            .add(sentence("s1", "Und", "es", "ward", "Licht"))
+            .add(sentence("s2", "Und", "es", "ward", "Abend"))
+            .add(sentence("s3", "Licht", "Licht"))
+            .add(document("d1", "s1", "s2"))
+            .add(document("d2", "s3"))
+            .commit();
+
+        assertThat(property("Sentence", "s1", "length_Token"), is(4L));
+        assertThat(property("Sentence", "s3", "length_Token"), is(2L));
+        assertThat(property("Document", "d1", "length_Sentence"), is(2L));
+        assertThat(property("Token", "Und", "directNeighbourCount_Token"), is(1L));
+        assertThat(property("Token", "ward", "directNeighbourCount_Token"), is(3L));
+        /* Next to itself in s3. */
+        assertThat(property("Token", "Licht", "directNeighbourCount_Token"), is(2L));
+        assertThat(property("Sentence", "s1", "directNeighbourCount_Sentence"), is(1L));
+        assertThat(property("Sentence", "s3", "directNeighbourCount_Sentence"), is(nullValue()));
+        assertThat(property("Document", "d1", "positionCounts_Sentence_Token"), is(new int[]{2, 2, 2, 2}));
+        assertThat(property("Document", "d2", "positionCounts_Sentence_Token"), is(new int[]{1, 1}));
+    }
+
+    @Test
+    public void nestedTrees() {
+        graph.writer(true)
+            .add(aNestedTree()
+                .withRoot("d1")
+                .withParentDimension("Document")
+                .withChildDimension("Sentence")
+                .withSubtrees(sentence("s1", "Und", "es", "ward", "Licht"), sentence("s2", "Und", "es", "ward", "Abend")))
+            .add(aNestedTree()
+                .withRoot("d2")
+                .withParentDimension("Document")
+                .withChildDimension("Sentence")
+                .withSubtrees(sentence("s3", "Licht", "Licht")))
+            .commit();
+
+        assertThat(property("Document", "d1", "length_Sentence"), is(2L));
+        assertThat(property("Token", "ward", "directNeighbourCount_Token"), is(3L));
+        assertThat(property("Sentence", "s1", "directNeighbourCount_Sentence"), is(1L));
+        assertThat(property("Document", "d1", "positionCounts_Sentence_Token"), is(new int[]{2, 2, 2, 2}));
+        assertThat(property("Document", "d2", "positionCounts_Sentence_Token"), is(new int[]{1, 1}));
+    }
+
+    @Test
+    public void repeatedRoot() {
+        graph.writer(true)
+            .add(sentence("s1", "a", "b"))
+            .add(sentence("s1", "c"))
+            .add(sentence("s1", "a", "b"))
+            .commit();
+
+        assertThat(property("Sentence", "s1", "length_Token"), is(3L));
+        assertThat(property("Token", "a", "directNeighbourCount_Token"), is(1L));
+        assertThat(property("Token", "b", "directNeighbourCount_Token"), is(2L));
+        assertThat(property("Token", "c", "directNeighbourCount_Token"), is(1L));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void notWithIncrementalBatches() {
+        graph.shutdown();
+        graph = backend(BackendSettings.settings().withIngestAggregates(true).withIncrementalBatches(true));
+        graph.writer(true);
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 objecttrouve.org <un.object.trouve@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.objecttrouve.fourtytwo.graphs.backend.init;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.objecttrouve.fourtytwo.graphs.api.GraphWriter;
+import org.objecttrouve.fourtytwo.graphs.api.IngestSummary;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.objecttrouve.fourtytwo.graphs.backend.init.Stores.sentence;
+
+public class IngestMetricsTest {
+
+    @Rule
+    public Stores stores = new Stores();
+    private EmbeddedBackend graph;
+
+    @Before
+    public void init() throws IOException {
+        graph = stores.backend(BackendSettings.settings().withIngestMetrics(true));
+    }
+
+    private static void assertLoad(final IngestSummary summary) {
+        assertThat(summary.getTrees(), is(3L));
+        assertThat(summary.getNodes(), is(8L));
+        assertThat(summary.getRelationships(), is(9L));
+        assertThat(summary.getDictionaryLookups(), is(12L));
+        assertThat(summary.getDictionaryHits(), is(4L));
+        assertThat(summary.getDictionaryMisses(), is(8L));
+        assertThat(summary.getTreeLengthHistogram()[1], is(1L));
+        assertThat(summary.getTreeLengthHistogram()[3], is(2L));
+        assertThat(summary.getElapsedNanos() >= summary.getStoreNanos() + summary.getCallerNanos(), is(true));
+    }
+
+    private static GraphWriter load(final GraphWriter writer) {
+        return writer
+            .add(sentence("s1", "Und", "es", "ward", "Licht"))
+            .add(sentence("s2", "Und", "es", "ward", "Abend"))
+            .add(sentence("s3", "Licht"));
+    }
+
+    @Test
+    public void batchWriterSummary() {
+        final IngestSummary summary = load(graph.writer(true)).commit();
+
+        assertLoad(summary);
+        assertThat(summary.getDictionaryBytes() > 0, is(true));
+    }
+
+    @Test
+    public void transactionalWriterSummary() {
+        assertLoad(load(graph.writer(false)).commit());
+    }
+
+    @Test
+    public void registeredWhileOpen() throws Exception {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName pattern = new ObjectName("org.objecttrouve.fourtytwo:type=Ingest,*");
+        final int before = server.queryNames(pattern, null).size();
+
+        final GraphWriter writer = load(graph.writer(false));
+        final ObjectName name = server.queryNames(pattern, null).stream()
+            .filter(n -> n.getKeyProperty("name").startsWith(TransactionalWriter.class.getSimpleName()))
+            .findFirst()
+            .orElseThrow(AssertionError::new);
+        assertThat(server.getAttribute(name, "Trees"), is(3L));
+        writer.commit();
+
+        assertThat(server.queryNames(pattern, null).size(), is(before));
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 objecttrouve.org <un.object.trouve@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.objecttrouve.fourtytwo.graphs.backend.init;
+
+import com.google.common.base.Strings;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class MappedNodeDictionaryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    private MappedNodeDictionary dictionary;
+
+    @Before
+    public void init() {
+        /* Small segments and a small hot tier, so that both get exercised. */
+        dictionary = new MappedNodeDictionary(folder.getRoot().toPath(), 64 * 1024, 16);
+    }
+
+    @After
+    public void close() {
+        dictionary.close();
+    }
+
+    @Test
+    public void getAnUnknownIdentifier() {
+        assertThat(dictionary.get("Token", "unknown"), is(NodeDictionary.absent));
+    }
+
+    @Test
+    public void putAndGet() {
+        dictionary.put("Token", "Licht", 42L);
+
+        assertThat(dictionary.get("Token", "Licht"), is(42L));
+        assertThat(dictionary.size(), is(1L));
+    }
+
+    @Test
+    public void putReplaces() {
+        dictionary.put("Token", "Licht", 42L);
+        dictionary.put("Token", "Licht", 43L);
+
+        assertThat(dictionary.get("Token", "Licht"), is(43L));
+        assertThat(dictionary.size(), is(1L));
+    }
+
+    @Test
+    public void dimensionsAreSeparate() {
+        dictionary.put("Token", "1", 1L);
+        dictionary.put("Sentence", "1", 2L);
+
+        assertThat(dictionary.get("Token", "1"), is(1L));
+        assertThat(dictionary.get("Sentence", "1"), is(2L));
+        assertThat(dictionary.get("Document", "1"), is(NodeDictionary.absent));
+    }
+
+    @Test
+    public void identifierTypesAreSeparate() {
+        final AtomicLong created = new AtomicLong(10);
+        final NodeDictionary.NodeFactory factory = (dimension, identifier) -> created.incrementAndGet();
+
+        dictionary.put("Token", 1, 1L);
+        dictionary.put("Token", "1", 3L);
+
+        assertThat(dictionary.computeIfAbsent("Token", 1, factory), is(1L));
+        assertThat(dictionary.computeIfAbsent("Token", 1L, factory), is(11L));
+        assertThat(dictionary.get("Token", 1L), is(11L));
+        assertThat(dictionary.get("Token", "1"), is(3L));
+    }
+
+    @Test
+    public void computeIfAbsentCreatesOnlyOnce() {
+        final AtomicLong created = new AtomicLong();
+        final NodeDictionary.NodeFactory factory = (dimension, identifier) -> created.incrementAndGet();
+
+        final long first = dictionary.computeIfAbsent("Token", "Gott", factory);
+        final long second = dictionary.computeIfAbsent("Token", "Gott", factory);
+
+        assertThat(first, is(second));
+        assertThat(created.get(), is(1L));
+    }
+
+    @Test
+    public void longIdentifiersStayOnDisk() {
+        final String longer = Strings.repeat("x", 10_000);
+
+        dictionary.put("Token", longer, 7L);
+        dictionary.put("Token", longer + "y", 8L);
+
+        assertThat(dictionary.get("Token", longer), is(7L));
+        assertThat(dictionary.get("Token", longer + "y"), is(8L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void identifiersLongerThanASegment() {
+        dictionary.put("Token", Strings.repeat("x", 1 << 16), 7L);
+    }
+
+    @Test
+    public void identifiersOfOtherTypes() {
+        final UUID uuid = UUID.randomUUID();
+
+        dictionary.put("Token", uuid, 7L);
+
+        assertThat(dictionary.get("Token", UUID.fromString(uuid.toString())), is(7L));
+        assertThat(dictionary.size(), is(1L));
+    }
+
+    @Test
+    public void manyIdentifiers() {
+        final int n = 300_000;
+
+        for (int i = 0; i < n; i++) {
+            dictionary.put("Token", "t" + i, i);
+        }
+
+        assertThat(dictionary.size(), is((long) n));
+        for (int i = 0; i < n; i++) {
+            assertThat(dictionary.get("Token", "t" + i), is((long) i));
+        }
+        assertThat(dictionary.get("Token", "t" + n), is(NodeDictionary.absent));
+        assertThat(dictionary.estimatedBytes() < 128 * 1024, is(true));
+        assertThat(dictionary.mappedBytes() > 300_000 * 16, is(true));
+    }
+
+    @Test
+    public void frequentIdentifiersStayHot() {
+        final Random random = new Random(42);
+        final NodeDictionary.NodeFactory factory = (dimension, identifier) -> ((Integer) identifier).longValue();
+
+        for (int i = 0; i < 200_000; i++) {
+            /* Roughly Zipf: small numbers are much more frequent. */
+            final int identifier = (int) Math.pow(100_000, random.nextDouble());
+            assertThat(dictionary.computeIfAbsent("Token", identifier, factory), is((long) identifier));
+        }
+
+        assertThat(dictionary.hotHitRatio() > 0.5, is(true));
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 objecttrouve.org <un.object.trouve@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.objecttrouve.fourtytwo.graphs.backend.init;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Transaction;
+import org.objecttrouve.fourtytwo.graphs.api.IngestSummary;
+import org.objecttrouve.fourtytwo.graphs.api.NestedTree;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.objecttrouve.fourtytwo.graphs.backend.init.Stores.count;
+import static org.objecttrouve.fourtytwo.graphs.backend.init.Stores.sentence;
+import static org.objecttrouve.fourtytwo.graphs.mocks.TestNestedTree.aNestedTree;
+import static org.objecttrouve.fourtytwo.graphs.mocks.TestStringSequenceTree.aStringSequence;
+
+public class NestedTreeTest {
+
+    @Rule
+    public Stores stores = new Stores();
+    private EmbeddedBackend graph;
+
+    @Before
+    public void init() throws IOException {
+        graph = stores.backend(BackendSettings.settings());
+    }
+
+    /** Writes the corpus into a new store with the given settings and the transactional writer. */
+    private IngestSummary writeCorpus(final BackendSettings settings) throws IOException {
+        graph.shutdown();
+        graph = stores.backend(settings);
+        return graph.writer(false).add(corpus()).commit();
+    }
+
+    private static NestedTree<String, String> corpus() {
+        return aNestedTree()
+            .withRoot("c1")
+            .withParentDimension("Corpus")
+            .withChildDimension("Document")
+            .withSubtrees(
+                aNestedTree()
+                    .withRoot("d1")
+                    .withParentDimension("Document")
+                    .withChildDimension("Sentence")
+                    .withSubtrees(
+                        sentence("s1", "Und", "es", "ward", "Licht"),
+                        sentence("s2", "Und", "es", "ward", "Abend")
+                    ),
+                aNestedTree()
+                    .withRoot("d2")
+                    .withParentDimension("Document")
+                    .withChildDimension("Sentence")
+                    .withSubtrees(
+                        sentence("s3", "Licht", "Licht"),
+                        sentence("s1", "Und", "es", "ward", "Licht")
+                    )
+            );
+    }
+
+    private List<String> relationships() {
+        final GraphDatabaseService db = graph.getDb();
+        final List<String> relationships = new ArrayList<>();
+        try (final Transaction tx = db.beginTx()) {
+            db.execute("MATCH (c)-[r]->(p) RETURN labels(p)[0] + ':' + p.identifier + ' <-' + r.position + '- ' + labels(c)[0] + ':' + c.identifier AS r ORDER BY r")
+                .forEachRemaining(row -> relationships.add((String) row.get("r")));
+            tx.success();
+        }
+        return relationships;
+    }
+
+    @Test
+    public void batchWriterInOnePass() {
+        graph.writer(true).add(corpus()).commit();
+
+        assertThat(count(graph.getDb(), "MATCH (n) RETURN count(n)"), is(11L));
+        assertThat(count(graph.getDb(), "MATCH (:Sentence { identifier: 's1' })-[r:Sentence]->(:Document) RETURN count(r)"), is(2L));
+        assertThat(count(graph.getDb(), "MATCH (:Document)-[r:Document { position: 1 }]->(:Corpus) RETURN count(r)"), is(1L));
+        assertThat(relationships().size(), is(16));
+    }
+
+    @Test
+    public void batchWriterLooksUpEachRootOnce() {
+        final IngestSummary summary = graph.writer(true).add(corpus()).commit();
+
+        assertThat(summary.getTrees(), is(7L));
+        assertThat(summary.getNodes(), is(11L));
+        assertThat(summary.getRelationships(), is(16L));
+        assertThat(summary.getDictionaryLookups(), is(21L));
+        assertThat(summary.getDictionaryHits(), is(10L));
+    }
+
+    @Test
+    public void sameGraphWithEitherWriter() {
+        graph.writer(true).add(corpus()).commit();
+        final List<String> batched = relationships();
+        try (final Transaction tx = graph.getDb().beginTx()) {
+            graph.getDb().execute("MATCH (n) DETACH DELETE n");
+            tx.success();
+        }
+
+        graph.writer(false).add(corpus()).commit();
+
+        assertThat(relationships(), is(batched));
+    }
+
+    @Test
+    public void transactionalWriterRelatesRootsAsItGoes() throws IOException {
+        graph.writer(true).add(corpus()).commit();
+        final List<String> batched = relationships();
+
+        final IngestSummary summary = writeCorpus(BackendSettings.settings());
+
+        assertThat(relationships(), is(batched));
+        assertThat(summary.getTrees(), is(7L));
+        assertThat(summary.getNodes(), is(11L));
+        assertThat(summary.getRelationships(), is(16L));
+        assertThat(summary.getDictionaryLookups(), is(21L));
+    }
+
+    @Test
+    public void sameGraphWithUnwindBatches() throws IOException {
+        graph.writer(true).add(corpus()).commit();
+        final List<String> batched = relationships();
+
+        final IngestSummary summary = writeCorpus(BackendSettings.settings().withUnwindBatches(3));
+
+        assertThat(relationships(), is(batched));
+        assertThat(summary.getNodes(), is(11L));
+        assertThat(summary.getRelationships(), is(16L));
+    }
+
+    @Test
+    public void sameGraphInSmallChunks() throws IOException {
+        graph.writer(true).add(corpus()).commit();
+        final List<String> batched = relationships();
+
+        writeCorpus(BackendSettings.settings().withUnwindBatches(3).withChunkedTransactions(1, 0));
+
+        assertThat(relationships(), is(batched));
+    }
+
+    @Test
+    public void concurrentWriterPassesNestedTreesOn() throws IOException {
+        graph.shutdown();
+        graph = stores.backend(BackendSettings.settings().withConcurrentIngest(4, Backpressure.block));
+
+        final IngestSummary summary = graph.writer(true).add(corpus()).commit();
+
+        assertThat(count(graph.getDb(), "MATCH (n) RETURN count(n)"), is(11L));
+        assertThat(relationships().size(), is(16));
+        /* Only the batch writer's own nested path looks up each root once. */
+        assertThat(summary.getDictionaryLookups(), is(21L));
+    }
+
+    /** Imports the corpus into a new store with the given settings. */
+    private IngestSummary importCorpus(final BackendSettings settings) throws IOException {
+        graph.shutdown();
+        final File storeDir = stores.newStoreDir();
+        graph = stores.backend(storeDir, settings.withOfflineImport(storeDir));
+        return graph.writer(true).add(corpus()).commit();
+    }
+
+    @Test
+    public void sameGraphWithOfflineImport() throws IOException {
+        graph.writer(true).add(corpus()).commit();
+        final List<String> batched = relationships();
+
+        final IngestSummary summary = importCorpus(BackendSettings.settings());
+
+        assertThat(relationships(), is(batched));
+        assertThat(summary.getDictionaryLookups(), is(21L));
+    }
+
+    @Test
+    public void sameGraphWithShardedImport() throws IOException {
+        graph.writer(true).add(corpus()).commit();
+        final List<String> batched = relationships();
+
+        final IngestSummary summary = importCorpus(BackendSettings.settings().withImportShards(3));
+
+        assertThat(relationships(), is(batched));
+        assertThat(summary.getDictionaryLookups(), is(21L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void subtreesInTheChildDimension() {
+        graph.writer(true).add(aNestedTree()
+            .withRoot("d1")
+            .withParentDimension("Document")
+            .withChildDimension("Sentence")
+            .withSubtrees(aStringSequence()
+                .withRoot("p1")
+                .withParentDimension("Paragraph")
+                .withChildDimension("Token")
+                .withLeaves("Und")));
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 objecttrouve.org <un.object.trouve@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.objecttrouve.fourtytwo.graphs.backend.init;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.factory.GraphDatabaseFactory;
+import org.objecttrouve.fourtytwo.graphs.api.GraphWriter;
+import org.objecttrouve.fourtytwo.graphs.api.Value;
+
+import java.io.IOException;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.objecttrouve.fourtytwo.graphs.backend.init.Stores.count;
+import static org.objecttrouve.fourtytwo.graphs.backend.init.Stores.sentence;
+
+public class NodeIdCacheTest {
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+    private GraphDatabaseService db;
+
+    @Before
+    public void init() throws IOException {
+        db = new GraphDatabaseFactory().newEmbeddedDatabase(tmpFolder.newFolder());
+    }
+
+    @After
+    public void destroy() {
+        db.shutdown();
+    }
+
+    private GraphWriter writer(final NodeIdCache cache) {
+        return new TransactionalWriter(db, db.beginTx(), BackendSettings.settings(), null, null, null, cache);
+    }
+
+    @Test
+    public void keepsTheFrequentOnes() {
+        final NodeIdCache cache = new NodeIdCache(10);
+        cache.put("Token", ".", 1L);
+        for (int i = 0; i < 100; i++) {
+            cache.put("Token", "t" + i, 100L + i);
+            cache.get("Token", ".");
+        }
+
+        assertThat(cache.size() <= 10, is(true));
+        assertThat(cache.get("Token", "."), is(1L));
+        assertThat(cache.get("Token", "t0"), is(NodeDictionary.absent));
+    }
+
+    @Test
+    public void numbersAsTheStoreHasThem() {
+        final NodeIdCache cache = new NodeIdCache(10);
+        cache.put("Token", 42, 7L);
+
+        assertThat(cache.get("Token", 42L), is(7L));
+        assertThat(cache.get("Sentence", 42L), is(NodeDictionary.absent));
+    }
+
+    @Test
+    public void sharedAcrossWriters() {
+        final NodeIdCache cache = new NodeIdCache(100);
+        writer(cache).add(sentence("s1", "Und", "es", "ward", "Licht")).commit();
+        writer(cache).add(sentence("s2", "Und", "es", "ward", "Abend", "Abend")).commit();
+
+        /* Und, es, ward. The second Abend is in the same transaction. */
+        assertThat(cache.hits(), is(3L));
+        assertThat(count(db, "MATCH (t:Token) RETURN count(t)"), is(5L));
+        assertThat(count(db, "MATCH ()-[r:Token]->() RETURN count(r)"), is(9L));
+    }
+
+    @Test
+    public void onlyCommittedNodeIds() {
+        final NodeIdCache cache = new NodeIdCache(100);
+        final GraphWriter aborted = writer(cache);
+        aborted.add(sentence("s1", "Und"));
+        aborted.abort();
+
+        assertThat(cache.size(), is(0));
+    }
+
+    @Test
+    public void checksHits() {
+        final NodeIdCache cache = new NodeIdCache(100);
+        writer(cache).add(sentence("s1", "Und", "es", "ward", "Licht")).commit();
+        try (final Transaction tx = db.beginTx()) {
+            db.execute("MATCH (t:Token { " + Value.idKey + ": 'Licht' }) DETACH DELETE t");
+            tx.success();
+        }
+        writer(cache).add(sentence("s2", "Licht")).commit();
+
+        assertThat(count(db, "MATCH (t:Token) RETURN count(t)"), is(4L));
+        assertThat(count(db, "MATCH (:Token)-[r:Token]->(:Sentence) RETURN count(r)"), is(4L));
+    }
+}
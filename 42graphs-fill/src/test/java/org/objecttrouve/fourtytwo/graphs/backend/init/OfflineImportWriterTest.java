@@ -0,0 +1,145 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 objecttrouve.org <un.object.trouve@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.objecttrouve.fourtytwo.graphs.backend.init;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.factory.GraphDatabaseFactory;
+import org.neo4j.unsafe.batchinsert.BatchInserters;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.neo4j.helpers.collection.MapUtil.map;
+import static org.objecttrouve.fourtytwo.graphs.mocks.TestIntSequenceTree.anIntSequence;
+import static org.objecttrouve.fourtytwo.graphs.mocks.TestIntegerSequenceTree.anIntegerSequence;
+import static org.objecttrouve.fourtytwo.graphs.mocks.TestStringSequenceTree.aStringSequence;
+
+public class OfflineImportWriterTest {
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+    private EmbeddedBackend graph;
+
+    @Before
+    public void init() throws IOException {
+        final File storeDir = tmpFolder.newFolder();
+        graph = new EmbeddedBackend(//
+            () -> new GraphDatabaseFactory().newEmbeddedDatabase(storeDir), //
+            () -> {
+                try {
+                    return BatchInserters.inserter(storeDir);
+                } catch (final IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }, //
+            BackendSettings.settings().withOfflineImport(storeDir));
+    }
+
+    @After
+    public void destroy() {
+        graph.shutdown();
+    }
+
+    private long count(final String query, final Object... parameters) {
+        final GraphDatabaseService db = graph.getDb();
+        try (final Transaction tx = db.beginTx()) {
+            final long count = (Long) db.execute(query, map(parameters)).next().values().iterator().next();
+            tx.success();
+            return count;
+        }
+    }
+
+    @Test
+    public void importSentences() {
+        graph.writer(true)
+            .add(aStringSequence().withRoot("s1").withParentDimension("Sentence").withChildDimension("Token").withLeaves("Und", "es", "ward", "Licht"))
+            .add(aStringSequence().withRoot("s2").withParentDimension("Sentence").withChildDimension("Token").withLeaves("Und", "Gott", "sah"))
+            .add(aStringSequence().withRoot("d1").withParentDimension("Document").withChildDimension("Sentence").withLeaves("s1", "s2"))
+            .commit();
+
+        assertThat(count("MATCH (n) RETURN count(n)"), is(9L));
+        assertThat(count("MATCH ()-[r]->() RETURN count(r)"), is(9L));
+        assertThat(count("MATCH (:Token{identifier:'Und'})-[r:Token]->(:Sentence) RETURN count(r)"), is(2L));
+        assertThat(count("MATCH (:Token{identifier:'Licht'})-[r:Token{position:3}]->(:Sentence{identifier:'s1'}) RETURN count(r)"), is(1L));
+        assertThat(count("MATCH (:Sentence{identifier:'s2'})-[r:Sentence{position:1}]->(:Document{identifier:'d1'}) RETURN count(r)"), is(1L));
+    }
+
+    @Test
+    public void sameTreeTwice() {
+        graph.writer(true)
+            .add(aStringSequence().withRoot("s1").withParentDimension("Sentence").withChildDimension("Token").withLeaves("Licht", "Licht"))
+            .add(aStringSequence().withRoot("s1").withParentDimension("Sentence").withChildDimension("Token").withLeaves("Licht", "Licht"))
+            .commit();
+
+        assertThat(count("MATCH (n) RETURN count(n)"), is(2L));
+        assertThat(count("MATCH ()-[r]->() RETURN count(r)"), is(2L));
+    }
+
+    @Test
+    public void identifiersNeedingQuotes() {
+        final String quoted = "\"Es werde Licht\", sprach er,\nund";
+        graph.writer(true)
+            .add(aStringSequence().withRoot("s1").withParentDimension("Sentence").withChildDimension("Token").withLeaves(quoted))
+            .commit();
+
+        assertThat(count("MATCH (:Token{identifier:$id})-->() RETURN count(*)", "id", quoted), is(1L));
+    }
+
+    @Test
+    public void integerIdentifiers() {
+        graph.writer(true)
+            .add(anIntegerSequence().withRoot(7).withParentDimension("Sentence").withChildDimension("Token").withLeaves(1, 2, 1))
+            .commit();
+
+        assertThat(count("MATCH (:Token{identifier:1})-[r]->(:Sentence{identifier:7}) RETURN count(r)"), is(2L));
+    }
+
+    @Test
+    public void intIdentifiers() {
+        graph.writer(true)
+            .add(anIntSequence().withRoot(7).withParentDimension("Sentence").withChildDimension("Token").withLeaves(1, 2, 1))
+            .commit();
+
+        assertThat(count("MATCH (:Token{identifier:1})-[r]->(:Sentence{identifier:7}) RETURN count(r)"), is(2L));
+        assertThat(count("MATCH (:Token{identifier:2})-[r{position:1}]->(:Sentence{identifier:7}) RETURN count(r)"), is(1L));
+    }
+
+    @Test
+    public void identifiersAreConstrained() {
+        graph.writer(true)
+            .add(aStringSequence().withRoot("s1").withParentDimension("Sentence").withChildDimension("Token").withLeaves("Licht"))
+            .commit();
+
+        assertThat(count("CALL db.constraints() YIELD description RETURN count(*)"), is(2L));
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 objecttrouve.org <un.object.trouve@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.objecttrouve.fourtytwo.graphs.backend.init;
+
+import com.google.common.base.Strings;
+import org.junit.Test;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class PrimitiveNodeDictionaryTest {
+
+    @Test
+    public void getAnUnknownIdentifier() {
+        final PrimitiveNodeDictionary dictionary = new PrimitiveNodeDictionary();
+
+        assertThat(dictionary.get("Token", "unknown"), is(NodeDictionary.absent));
+    }
+
+    @Test
+    public void putAndGet() {
+        final PrimitiveNodeDictionary dictionary = new PrimitiveNodeDictionary();
+
+        dictionary.put("Token", "Licht", 42L);
+
+        assertThat(dictionary.get("Token", "Licht"), is(42L));
+        assertThat(dictionary.size(), is(1L));
+    }
+
+    @Test
+    public void dimensionsAreSeparate() {
+        final PrimitiveNodeDictionary dictionary = new PrimitiveNodeDictionary();
+
+        dictionary.put("Token", "1", 1L);
+        dictionary.put("Sentence", "1", 2L);
+
+        assertThat(dictionary.get("Token", "1"), is(1L));
+        assertThat(dictionary.get("Sentence", "1"), is(2L));
+        assertThat(dictionary.get("Document", "1"), is(NodeDictionary.absent));
+    }
+
+    @Test
+    public void identifierTypesAreSeparate() {
+        final PrimitiveNodeDictionary dictionary = new PrimitiveNodeDictionary();
+
+        dictionary.put("Token", 1, 1L);
+        dictionary.put("Token", 1L, 2L);
+        dictionary.put("Token", "1", 3L);
+
+        assertThat(dictionary.get("Token", 1), is(1L));
+        assertThat(dictionary.get("Token", 1L), is(2L));
+        assertThat(dictionary.get("Token", "1"), is(3L));
+        assertThat(dictionary.get("Token", (short) 1), is(NodeDictionary.absent));
+    }
+
+    @Test
+    public void computeIfAbsentCreatesOnlyOnce() {
+        final PrimitiveNodeDictionary dictionary = new PrimitiveNodeDictionary();
+        final AtomicLong created = new AtomicLong();
+        final NodeDictionary.NodeFactory factory = (dimension, identifier) -> created.incrementAndGet();
+
+        final long first = dictionary.computeIfAbsent("Token", "Gott", factory);
+        final long second = dictionary.computeIfAbsent("Token", "Gott", factory);
+
+        assertThat(first, is(second));
+        assertThat(created.get(), is(1L));
+    }
+
+    @Test
+    public void primitiveAndBoxedIdentifiersAgree() {
+        final PrimitiveNodeDictionary dictionary = new PrimitiveNodeDictionary();
+        final AtomicLong created = new AtomicLong();
+        final NodeDictionary.NodeFactory factory = (dimension, identifier) -> created.incrementAndGet();
+
+        dictionary.put("Token", 1, 10L);
+        dictionary.put("Token", 1L, 20L);
+
+        assertThat(dictionary.computeIfAbsent("Token", 1, factory), is(10L));
+        assertThat(dictionary.computeIfAbsent("Token", 1L, factory), is(20L));
+        final long fresh = dictionary.computeIfAbsent("Token", 2, factory);
+        assertThat(dictionary.get("Token", 2), is(fresh));
+        assertThat(dictionary.get("Token", 2L), is(NodeDictionary.absent));
+        assertThat(created.get(), is(1L));
+    }
+
+    @Test
+    public void nonAsciiIdentifiers() {
+        final PrimitiveNodeDictionary dictionary = new PrimitiveNodeDictionary();
+
+        dictionary.put("Token", "wüst", 1L);
+        dictionary.put("Token", "Örter", 2L);
+        dictionary.put("Token", "😀", 3L);
+        dictionary.put("Token", "\uD83D", 4L);
+
+        assertThat(dictionary.get("Token", "wüst"), is(1L));
+        assertThat(dictionary.get("Token", "Örter"), is(2L));
+        assertThat(dictionary.get("Token", "😀"), is(3L));
+        assertThat(dictionary.get("Token", "\uD83D"), is(4L));
+        assertThat(dictionary.get("Token", "wust"), is(NodeDictionary.absent));
+    }
+
+    @Test
+    public void identifiersLongerThanAPage() {
+        final PrimitiveNodeDictionary dictionary = new PrimitiveNodeDictionary();
+        final String huge = Strings.repeat("x", 3 << 20);
+
+        dictionary.put("Token", "before", 1L);
+        dictionary.put("Token", huge, 2L);
+        dictionary.put("Token", "after", 3L);
+
+        assertThat(dictionary.get("Token", "before"), is(1L));
+        assertThat(dictionary.get("Token", huge), is(2L));
+        assertThat(dictionary.get("Token", "after"), is(3L));
+    }
+
+    @Test
+    public void identifiersOfOtherTypes() {
+        final PrimitiveNodeDictionary dictionary = new PrimitiveNodeDictionary();
+        final UUID uuid = UUID.randomUUID();
+
+        dictionary.put("Token", uuid, 7L);
+
+        assertThat(dictionary.get("Token", UUID.fromString(uuid.toString())), is(7L));
+        assertThat(dictionary.size(), is(1L));
+    }
+
+    @Test
+    public void manyIdentifiers() {
+        final PrimitiveNodeDictionary dictionary = new PrimitiveNodeDictionary();
+        final int n = 500_000;
+
+        for (int i = 0; i < n; i++) {
+            dictionary.put("Token", "t" + i, i);
+        }
+
+        assertThat(dictionary.size(), is((long) n));
+        for (int i = 0; i < n; i++) {
+            assertThat(dictionary.get("Token", "t" + i), is((long) i));
+        }
+        assertThat(dictionary.get("Token", "t" + n), is(NodeDictionary.absent));
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 objecttrouve.org <un.object.trouve@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.objecttrouve.fourtytwo.graphs.backend.init;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.factory.GraphDatabaseFactory;
+import org.objecttrouve.fourtytwo.graphs.api.GraphWriter;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+import static org.objecttrouve.fourtytwo.graphs.backend.init.Stores.count;
+import static org.objecttrouve.fourtytwo.graphs.backend.init.Stores.sentence;
+
+public class ReopenAfterBatchTest {
+
+    @Rule
+    public Stores stores = new Stores();
+    private final AtomicInteger started = new AtomicInteger();
+    private EmbeddedBackend graph;
+
+    /** @return a backend on a new store that counts how often it starts the service */
+    private EmbeddedBackend backend(final BackendSettings settings) throws IOException {
+        final File storeDir = stores.newStoreDir();
+        graph = stores.backend(storeDir, () -> {
+            started.incrementAndGet();
+            return new GraphDatabaseFactory().newEmbeddedDatabase(storeDir);
+        }, settings);
+        return graph;
+    }
+
+    @Test
+    public void serviceIsUpRightAfterTheBatchCommit() throws IOException {
+        backend(BackendSettings.settings().withReopenAfterBatch(true));
+
+        graph.writer(true).add(sentence("s1", "Und", "es", "ward", "Licht")).commit();
+
+        assertThat(started.get(), is(2));
+        final GraphDatabaseService db = graph.service();
+        assertThat(db.isAvailable(0), is(true));
+        assertThat(started.get(), is(2));
+        assertThat(count(db, "MATCH ()-[r]->() RETURN count(r)"), is(4L));
+    }
+
+    @Test
+    public void serviceIsStartedWhenNeededWithoutReopening() throws IOException {
+        backend(BackendSettings.settings());
+
+        graph.writer(true).add(sentence("s1", "Und", "es", "ward", "Licht")).commit();
+
+        assertThat(started.get(), is(1));
+        assertThat(count(graph.service(), "MATCH ()-[r]->() RETURN count(r)"), is(4L));
+        assertThat(started.get(), is(2));
+    }
+
+    @Test
+    public void batchThenTransactionalThenBatch() throws IOException {
+        backend(BackendSettings.settings().withReopenAfterBatch(true).withIncrementalBatches(true).withPageCacheWarmUp(true));
+
+        graph.writer(true).add(sentence("s1", "Und", "es", "ward", "Licht")).commit();
+        graph.writer(false).add(sentence("s2", "Und", "es", "ward", "Abend")).commit();
+        graph.writer(true).add(sentence("s3", "Und", "Gott", "sah")).commit();
+
+        assertThat(started.get(), is(3));
+        assertThat(count(graph.service(), "MATCH (t:Token) RETURN count(t)"), is(7L));
+        assertThat(count(graph.service(), "MATCH ()-[r]->() RETURN count(r)"), is(11L));
+    }
+
+    @Test
+    public void abortedBatchReleasesTheStore() throws IOException {
+        backend(BackendSettings.settings().withReopenAfterBatch(true));
+
+        graph.writer(true).add(sentence("s1", "Und", "es", "ward", "Licht")).abort();
+
+        assertThat(started.get(), is(2));
+        /* A batch inserter can't roll back. */
+        assertThat(count(graph.service(), "MATCH ()-[r]->() RETURN count(r)"), is(4L));
+    }
+
+    @Test
+    public void rejectedBatchReleasesTheStore() throws IOException {
+        backend(BackendSettings.settings().withReopenAfterBatch(true));
+        final GraphWriter writer = new ValidatingEmbeddedBackend(graph, true).writer(true)
+            .add(sentence("s1", "Und", "es", "ward", "Licht"))
+            .add(sentence("s1", "Und", "es", "ward", "Abend"));
+        try {
+            writer.commit();
+            fail("Root added twice.");
+        } catch (final IllegalArgumentException e) {
+            /* Expected. */
+        }
+        writer.abort();
+
+        assertThat(graph.service().isAvailable(0), is(true));
+        assertThat(started.get(), is(2));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void factoryHasToStartANewService() throws IOException {
+        final File storeDir = stores.newStoreDir();
+        final GraphDatabaseService db = new GraphDatabaseFactory().newEmbeddedDatabase(storeDir);
+        graph = stores.backend(storeDir, () -> db, BackendSettings.settings().withReopenAfterBatch(true));
+
+        graph.writer(true).add(sentence("s1", "Licht")).commit();
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 objecttrouve.org <un.object.trouve@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.objecttrouve.fourtytwo.graphs.backend.init;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.factory.GraphDatabaseFactory;
+import org.neo4j.unsafe.batchinsert.BatchInserters;
+import org.objecttrouve.fourtytwo.graphs.api.GraphWriter;
+import org.objecttrouve.fourtytwo.graphs.api.IngestSummary;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.neo4j.helpers.collection.MapUtil.map;
+import static org.objecttrouve.fourtytwo.graphs.mocks.TestStringSequenceTree.aStringSequence;
+
+public class ShardedImportWriterTest {
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+    private EmbeddedBackend graph;
+
+    @Before
+    public void init() throws IOException {
+        final File storeDir = tmpFolder.newFolder();
+        graph = new EmbeddedBackend(//
+            () -> new GraphDatabaseFactory().newEmbeddedDatabase(storeDir), //
+            () -> {
+                try {
+                    return BatchInserters.inserter(storeDir);
+                } catch (final IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }, //
+            BackendSettings.settings().withOfflineImport(storeDir).withImportShards(3));
+    }
+
+    @After
+    public void destroy() {
+        graph.shutdown();
+    }
+
+    private long count(final String query, final Object... parameters) {
+        final GraphDatabaseService db = graph.getDb();
+        try (final Transaction tx = db.beginTx()) {
+            final long count = (Long) db.execute(query, map(parameters)).next().values().iterator().next();
+            tx.success();
+            return count;
+        }
+    }
+
+    @Test
+    public void importSentences() {
+        graph.writer(true)
+            .add(aStringSequence().withRoot("s1").withParentDimension("Sentence").withChildDimension("Token").withLeaves("Und", "es", "ward", "Licht"))
+            .add(aStringSequence().withRoot("s2").withParentDimension("Sentence").withChildDimension("Token").withLeaves("Und", "Gott", "sah"))
+            .add(aStringSequence().withRoot("d1").withParentDimension("Document").withChildDimension("Sentence").withLeaves("s1", "s2"))
+            .commit();
+
+        assertThat(count("MATCH (n) RETURN count(n)"), is(9L));
+        assertThat(count("MATCH ()-[r]->() RETURN count(r)"), is(9L));
+        assertThat(count("MATCH (:Token{identifier:'Und'})-[r:Token]->(:Sentence) RETURN count(r)"), is(2L));
+        assertThat(count("MATCH (:Token{identifier:'Licht'})-[r:Token{position:3}]->(:Sentence{identifier:'s1'}) RETURN count(r)"), is(1L));
+        assertThat(count("MATCH (:Sentence{identifier:'s2'})-[r:Sentence{position:1}]->(:Document{identifier:'d1'}) RETURN count(r)"), is(1L));
+        assertThat(count("CALL db.constraints() YIELD description RETURN count(*)"), is(3L));
+    }
+
+    private static void addSentences(final GraphWriter writer) {
+        final Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            final String[] tokens = new String[1 + random.nextInt(10)];
+            for (int j = 0; j < tokens.length; j++) {
+                tokens[j] = "t" + random.nextInt(300);
+            }
+            /* Many roots come more than once, some with the same tokens. */
+            final int root = random.nextInt(500);
+            writer.add(aStringSequence().withRoot("s" + root).withParentDimension("Sentence").withChildDimension("Token").withLeaves(root % 2 == 0 ? new String[]{"t" + root} : tokens));
+        }
+    }
+
+    @Test
+    public void sameGraphAsOneShard() throws IOException {
+        final String query = "MATCH (t:Token)-[r]->(s:Sentence) RETURN count(DISTINCT t.identifier + '|' + r.position + '|' + s.identifier)";
+        /* Not next to the other store, which holds the lock in their parent directory. */
+        final File storeDir = new File(tmpFolder.newFolder(), "graph.db");
+        final EmbeddedBackend unsharded = new EmbeddedBackend(//
+            () -> new GraphDatabaseFactory().newEmbeddedDatabase(storeDir), //
+            () -> {
+                throw new UnsupportedOperationException();
+            }, //
+            BackendSettings.settings().withOfflineImport(storeDir).withIdentifierConstraints(false));
+        final GraphWriter reference = unsharded.writer(true);
+        addSentences(reference);
+        final IngestSummary expected = reference.commit();
+        final GraphDatabaseService db = unsharded.getDb();
+        final long expectedTriples;
+        final long expectedRelationships;
+        try (final Transaction tx = db.beginTx()) {
+            expectedTriples = (Long) db.execute(query).next().values().iterator().next();
+            expectedRelationships = (Long) db.execute("MATCH ()-[r]->() RETURN count(r)").next().values().iterator().next();
+            tx.success();
+        }
+        unsharded.shutdown();
+
+        final GraphWriter writer = graph.writer(true);
+        addSentences(writer);
+        final IngestSummary summary = writer.commit();
+
+        assertThat(summary.getTrees(), is(1000L));
+        assertThat(summary.getNodes(), is(expected.getNodes()));
+        assertThat(summary.getDictionaryLookups(), is(expected.getDictionaryLookups()));
+        /* Tokens in more than one shard are a miss in each. */
+        assertThat(summary.getDictionaryMisses() > expected.getDictionaryMisses(), is(true));
+        assertThat(count("MATCH (n) RETURN count(n)"), is(expected.getNodes()));
+        assertThat(count("MATCH ()-[r]->() RETURN count(r)"), is(expectedRelationships));
+        assertThat(count(query), is(expectedTriples));
+    }
+
+    @Test
+    public void identifiersNeedingQuotes() {
+        final String quoted = "\"Es werde Licht\", sprach er,\nund";
+        graph.writer(true)
+            .add(aStringSequence().withRoot("s1").withParentDimension("Sentence").withChildDimension("Token").withLeaves(quoted))
+            .add(aStringSequence().withRoot("s2").withParentDimension("Sentence").withChildDimension("Token").withLeaves(quoted))
+            .add(aStringSequence().withRoot("s3").withParentDimension("Sentence").withChildDimension("Token").withLeaves(quoted))
+            .commit();
+
+        assertThat(count("MATCH (:Token{identifier:$id})-->() RETURN count(*)", "id", quoted), is(3L));
+        assertThat(count("MATCH (t:Token) RETURN count(t)"), is(1L));
+    }
+
+    @Test
+    public void readRecordsAcrossQuotedLineBreaks() throws IOException {
+        final BufferedReader reader = new BufferedReader(new StringReader("0,\"a\nb\"\n1,\"\"\"c\"\"\"\n2,d"));
+        final StringBuilder record = new StringBuilder();
+
+        assertThat(ShardedImportWriter.readRecord(reader, record), is(true));
+        assertThat(record.toString(), is("0,\"a\nb\""));
+        assertThat(ShardedImportWriter.readRecord(reader, record), is(true));
+        assertThat(record.toString(), is("1,\"\"\"c\"\"\""));
+        assertThat(ShardedImportWriter.readRecord(reader, record), is(true));
+        assertThat(record.toString(), is("2,d"));
+        assertThat(ShardedImportWriter.readRecord(reader, record), is(false));
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 objecttrouve.org <un.object.trouve@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.objecttrouve.fourtytwo.graphs.backend.init;
+
+import org.junit.rules.ExternalResource;
+import org.junit.rules.TemporaryFolder;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.factory.GraphDatabaseFactory;
+import org.neo4j.unsafe.batchinsert.BatchInserters;
+import org.objecttrouve.fourtytwo.graphs.api.SequenceTree;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.objecttrouve.fourtytwo.graphs.mocks.TestStringSequenceTree.aStringSequence;
+
+/**
+ * Stores in a temporary folder, with {@link EmbeddedBackend}s on them that are shut down after each test.
+ * Also has the sentences the writer tests load, and a way to count what's in a store.
+ */
+class Stores extends ExternalResource {
+
+    private final TemporaryFolder tmpFolder = new TemporaryFolder();
+    private final List<EmbeddedBackend> backends = new ArrayList<>();
+
+    @Override
+    protected void before() throws Throwable {
+        tmpFolder.create();
+    }
+
+    @Override
+    protected void after() {
+        backends.forEach(EmbeddedBackend::shutdown);
+        backends.clear();
+        tmpFolder.delete();
+    }
+
+    File newStoreDir() throws IOException {
+        return tmpFolder.newFolder();
+    }
+
+    /** @return a backend on a new store */
+    EmbeddedBackend backend(final BackendSettings settings) throws IOException {
+        return backend(newStoreDir(), settings);
+    }
+
+    EmbeddedBackend backend(final File storeDir, final BackendSettings settings) {
+        return backend(storeDir, () -> new GraphDatabaseFactory().newEmbeddedDatabase(storeDir), settings);
+    }
+
+    /** @param serviceFactory starts a service on the store */
+    EmbeddedBackend backend(final File storeDir, final Supplier<GraphDatabaseService> serviceFactory, final BackendSettings settings) {
+        final EmbeddedBackend backend = new EmbeddedBackend(serviceFactory, () -> {
+            try {
+                return BatchInserters.inserter(storeDir);
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, settings);
+        backends.add(backend);
+        return backend;
+    }
+
+    static SequenceTree<String, String> sentence(final String root, final String... tokens) {
+        return aStringSequence()
+            .withRoot(root)
+            .withParentDimension("Sentence")
+            .withChildDimension("Token")
+            .withLeaves(tokens);
+    }
+
+    /** @return the single number the query returns */
+    static long count(final GraphDatabaseService db, final String query) {
+        try (final Transaction tx = db.beginTx()) {
+            final long count = (Long) db.execute(query).next().values().iterator().next();
+            tx.success();
+            return count;
+        }
+    }
+}
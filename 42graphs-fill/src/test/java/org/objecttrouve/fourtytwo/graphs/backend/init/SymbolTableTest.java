@@ -0,0 +1,148 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 objecttrouve.org <un.object.trouve@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.objecttrouve.fourtytwo.graphs.backend.init;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.event.TransactionData;
+import org.neo4j.graphdb.event.TransactionEventHandler;
+import org.neo4j.graphdb.factory.GraphDatabaseFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static java.nio.file.StandardOpenOption.APPEND;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.objecttrouve.fourtytwo.graphs.mocks.TestStringSequenceTree.aStringSequence;
+
+public class SymbolTableTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void symbolsAreDense() {
+        final SymbolTable symbols = SymbolTable.open(folder.getRoot());
+
+        assertThat(symbols.encode("Token", "Im"), is(0));
+        assertThat(symbols.encode("Token", "Anfang"), is(1));
+        assertThat(symbols.encode("Token", "Im"), is(0));
+        assertThat(symbols.encode("Token", "war"), is(2));
+        assertThat(symbols.size("Token"), is(3));
+    }
+
+    @Test
+    public void lookupsBothWays() {
+        final SymbolTable symbols = SymbolTable.open(folder.getRoot());
+
+        symbols.encode("Token", "Licht");
+
+        assertThat(symbols.symbol("Token", "Licht"), is(0));
+        assertThat(symbols.identifier("Token", 0), is("Licht"));
+        assertThat(symbols.symbol("Token", "Finsternis"), is(SymbolTable.absent));
+        assertThat(symbols.identifier("Token", 1), is(nullValue()));
+        assertThat(symbols.identifier("Token", SymbolTable.absent), is(nullValue()));
+    }
+
+    @Test
+    public void dimensionsAreSeparate() {
+        final SymbolTable symbols = SymbolTable.open(folder.getRoot());
+
+        symbols.encode("Token", "a");
+        symbols.encode("Token", "b");
+
+        assertThat(symbols.encode("Sentence", "b"), is(0));
+        assertThat(symbols.symbol("Token", "b"), is(1));
+    }
+
+    @Test
+    public void reopenedTableContinues() {
+        final SymbolTable symbols = SymbolTable.open(folder.getRoot());
+        symbols.encode("Token", "wüst");
+        symbols.encode("Token", "leer");
+        symbols.save();
+        symbols.encode("Token", "Tiefe");
+        symbols.save();
+        symbols.encode("Token", "never saved");
+
+        final SymbolTable reopened = SymbolTable.open(folder.getRoot());
+
+        assertThat(reopened.size("Token"), is(3));
+        assertThat(reopened.identifier("Token", 0), is("wüst"));
+        assertThat(reopened.symbol("Token", "Tiefe"), is(2));
+        assertThat(reopened.encode("Token", "Wasser"), is(3));
+    }
+
+    @Test
+    public void incompleteSaveIsDropped() throws IOException {
+        final SymbolTable symbols = SymbolTable.open(folder.getRoot());
+        symbols.encode("Token", "Geist");
+        symbols.save();
+        final Path file = new File(new File(folder.getRoot(), SymbolTable.directoryName), "Token.symbols").toPath();
+        Files.write(file, new byte[]{0, 0, 0, 9, 'G'}, APPEND);
+
+        final SymbolTable reopened = SymbolTable.open(folder.getRoot());
+        reopened.encode("Token", "Gottes");
+        reopened.save();
+
+        final SymbolTable again = SymbolTable.open(folder.getRoot());
+        assertThat(again.size("Token"), is(2));
+        assertThat(again.identifier("Token", 1), is("Gottes"));
+    }
+
+    @Test
+    public void savedBeforeTheStoreCommits() throws IOException {
+        final File symbolStore = folder.newFolder("symbols");
+        final GraphDatabaseService db = new GraphDatabaseFactory().newEmbeddedDatabase(folder.newFolder("db"));
+        final List<Integer> savedAtCommit = new ArrayList<>();
+        db.registerTransactionEventHandler(new TransactionEventHandler.Adapter<Object>() {
+            @Override
+            public Object beforeCommit(final TransactionData data) {
+                if (data.createdNodes().iterator().hasNext()) {
+                    savedAtCommit.add(SymbolTable.open(symbolStore).size("Token"));
+                }
+                return null;
+            }
+        });
+        try {
+            new TransactionalWriter(db, db.beginTx(), BackendSettings.settings().withSymbolTable(symbolStore))
+                .add(aStringSequence().withRoot("s1").withParentDimension("Sentence").withChildDimension("Token").withLeaves("Es", "werde", "Licht"))
+                .commit();
+        } finally {
+            db.shutdown();
+        }
+
+        assertThat(savedAtCommit, is(Collections.singletonList(3)));
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 objecttrouve.org <un.object.trouve@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.objecttrouve.fourtytwo.graphs.backend.init;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.factory.GraphDatabaseFactory;
+import org.objecttrouve.fourtytwo.graphs.api.GraphWriter;
+import org.objecttrouve.fourtytwo.graphs.api.SequenceTree;
+import org.objecttrouve.fourtytwo.graphs.api.Value;
+import org.objecttrouve.fourtytwo.graphs.categories.Snore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.objecttrouve.fourtytwo.graphs.mocks.TestStringSequenceTree.aStringSequence;
+
+/**
+ * Compares per-element writes with {@code UNWIND} batches, and {@code MERGE} with append-only batches,
+ * on a corpus of synthetic sentences.
+ */
+@Category(Snore.class)
+public class TransactionalWriterThroughputTest {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionalWriterThroughputTest.class);
+
+    private static final int sentences = 200;
+    private static final int tokensPerSentence = 30;
+    private static final int vocabulary = 2_000;
+    /* Enough for the append-only writer to know most tokens after the first batches. */
+    private static final int appendedSentences = 3_000;
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+    private static GraphDatabaseService db;
+
+    @Before
+    public void init() throws IOException {
+        db = new GraphDatabaseFactory().newEmbeddedDatabase(tmpFolder.newFolder());
+    }
+
+    @After
+    public void destroy() {
+        db.shutdown();
+    }
+
+    @Test
+    public void unwind_batches_are_faster_than_per_element_writes() {
+        final List<SequenceTree<String, String>> corpus = corpus();
+        /* Without indexes, both are dominated by label scans. */
+        compare(corpus, "without indexes");
+
+        indexIdentifiers();
+        final double[] indexed = compare(corpus, "with indexes");
+
+        assertThat(indexed[1] > indexed[0], is(true));
+    }
+
+    @Test
+    public void append_only_is_faster_than_merge_on_a_populated_graph() {
+        indexIdentifiers();
+        write(corpus("p", appendedSentences), settings().withUnwindBatches(100));
+
+        final double merged = treesPerSecond(corpus("m", appendedSentences), settings().withUnwindBatches(100));
+        final double appended = treesPerSecond(corpus("a", appendedSentences), settings().withUnwindBatches(100).withAppendOnly(true));
+        log.info(String.format("%d sentences of %d tokens on a populated graph: MERGE %.0f trees/s, append-only %.0f trees/s.", appendedSentences, tokensPerSentence, merged, appended));
+
+        assertThat(appended > merged, is(true));
+    }
+
+    private static double[] compare(final List<SequenceTree<String, String>> corpus, final String setup) {
+        final double perElement = treesPerSecond(corpus, 0);
+        final double batched = treesPerSecond(corpus, 100);
+        log.info(String.format("%d sentences of %d tokens %s: per element %.0f trees/s, UNWIND batches %.0f trees/s.", corpus.size(), tokensPerSentence, setup, perElement, batched));
+        return new double[]{perElement, batched};
+    }
+
+    private static void indexIdentifiers() {
+        try (final Transaction tx = db.beginTx()) {
+            db.execute("CREATE INDEX ON :Sentence(" + Value.idKey + ")");
+            db.execute("CREATE INDEX ON :Token(" + Value.idKey + ")");
+            tx.success();
+        }
+        try (final Transaction tx = db.beginTx()) {
+            db.schema().awaitIndexesOnline(1, MINUTES);
+            tx.success();
+        }
+    }
+
+    private static double treesPerSecond(final List<SequenceTree<String, String>> corpus, final int batchSize) {
+        clean();
+        return treesPerSecond(corpus, settings().withUnwindBatches(batchSize));
+    }
+
+    private static double treesPerSecond(final List<SequenceTree<String, String>> corpus, final BackendSettings settings) {
+        final long start = System.nanoTime();
+        write(corpus, settings);
+        final long nanos = System.nanoTime() - start;
+        return corpus.size() * 1e9 / nanos;
+    }
+
+    /* The indexes come from the test, the writers would make them unique constraints. */
+    private static BackendSettings settings() {
+        return BackendSettings.settings().withIdentifierConstraints(false);
+    }
+
+    private static void write(final List<SequenceTree<String, String>> corpus, final BackendSettings settings) {
+        final GraphWriter writer = new TransactionalWriter(db, db.beginTx(), settings);
+        for (final SequenceTree<String, String> sentence : corpus) {
+            writer.add(sentence);
+        }
+        writer.commit();
+    }
+
+    private static List<SequenceTree<String, String>> corpus() {
+        return corpus("s", sentences);
+    }
+
+    /** @param roots prefix of the sentence identifiers */
+    private static List<SequenceTree<String, String>> corpus(final String roots, final int sentences) {
+        final Random random = new Random(42);
+        final List<SequenceTree<String, String>> corpus = new ArrayList<>(sentences);
+        for (int s = 0; s < sentences; s++) {
+            final String[] tokens = new String[tokensPerSentence];
+            for (int t = 0; t < tokensPerSentence; t++) {
+                /* Roughly Zipfian, like real tokens. */
+                tokens[t] = "t" + (int) Math.pow(vocabulary, random.nextDouble());
+            }
+            corpus.add(aStringSequence()
+                .withRoot(roots + s)
+                .withParentDimension("Sentence")
+                .withChildDimension("Token")
+                .withLeaves(tokens));
+        }
+        return corpus;
+    }
+
+    private static void clean() {
+        try (final Transaction tx = db.beginTx()) {
+            db.execute("MATCH (n) DETACH DELETE n");
+            tx.success();
+        }
+    }
+}
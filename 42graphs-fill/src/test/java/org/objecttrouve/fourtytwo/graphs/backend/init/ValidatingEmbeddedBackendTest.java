@@ -27,12 +27,15 @@ package org.objecttrouve.fourtytwo.graphs.backend.init;
 import org.junit.Test;
 import org.objecttrouve.fourtytwo.graphs.api.Graph;
 import org.objecttrouve.fourtytwo.graphs.api.GraphWriter;
+import org.objecttrouve.fourtytwo.graphs.api.SequenceTree;
 import org.objecttrouve.fourtytwo.graphs.mocks.BackendMock;
 import org.objecttrouve.fourtytwo.graphs.mocks.WritingMock;
 
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.junit.Assert.assertThat;
 import static org.objecttrouve.fourtytwo.graphs.matchers.SequenceTreeMatcher.aSequenceTree;
+import static org.objecttrouve.fourtytwo.graphs.mocks.TestIntSequenceTree.anIntSequence;
+import static org.objecttrouve.fourtytwo.graphs.mocks.TestIntegerSequenceTree.anIntegerSequence;
 import static org.objecttrouve.fourtytwo.graphs.mocks.TestStringSequenceTree.aStringSequence;
 
 public class ValidatingEmbeddedBackendTest {
@@ -46,7 +49,7 @@ public class ValidatingEmbeddedBackendTest {
 
         try {
             graph.writer(false) //
-                    .add(null); //
+                    .add((SequenceTree<String, String>) null); //
         } catch (final IllegalArgumentException e) {
             /* Expected. */
         }
@@ -155,6 +158,31 @@ public class ValidatingEmbeddedBackendTest {
 
     }
 
+    @Test
+    public void addAnIntSequenceTreeWithoutIdentifiers() {
+
+        final WritingMock writer = WritingMock.ofWriting();
+        final BackendMock backend = BackendMock.ofBackend().writing(writer);
+        final Graph graph = new ValidatingEmbeddedBackend(backend.getMock());
+        try {
+            graph.writer(false) //
+                    .add( //
+                            anIntSequence()//
+                                    .withRoot(1) //
+                                    .withParentDimension("not null root dimension") //
+                                    .withLeaves((int[]) null) //
+                                    .withChildDimension("not null leaf dimension") //
+                    );
+
+        } catch (final IllegalArgumentException e) {
+            /* Expected. */
+        }
+
+        writer.verifyNoSequenceAdded();
+        writer.verifyAborted();
+
+    }
+
     @Test
     public void addASequenceTreeOnTheHappyPath() {
 
@@ -250,4 +278,135 @@ public class ValidatingEmbeddedBackendTest {
         .verifyCommitted();
 
     }
+
+    @Test
+    public void addASequenceTreeInBatchMode() {
+
+        final WritingMock writer = WritingMock.ofWriting();
+        final BackendMock backend = BackendMock.ofBackend().writingInBatchMode(writer);
+        final Graph graph = new ValidatingEmbeddedBackend(backend.getMock());
+        graph.writer(true) //
+                .add( //
+                        aStringSequence()//
+                                .withRoot("root") //
+                                .withParentDimension("parentDimension") //
+                                .withLeaves("l1", "l2", "l3") //
+                                .withChildDimension("childDimension") //
+                ) //
+                .commit();
+
+        writer.verifyAddedSequence(//
+                aSequenceTree(String.class, String.class)//
+                        .withRootId("root") //
+                        .withParentDimension("parentDimension") //
+                        .withLeaves("l1", "l2", "l3") //
+                        .withChildDimension("childDimension") //
+        )
+        .verifyCommitted();
+    }
+
+    @Test
+    public void addTheSameRootTwiceWithDeepChecks() {
+
+        final WritingMock writer = WritingMock.ofWriting();
+        final BackendMock backend = BackendMock.ofBackend().writingInBatchMode(writer);
+        final Graph graph = new ValidatingEmbeddedBackend(backend.getMock(), true);
+        try {
+            graph.writer(true) //
+                    .add(aStringSequence().withRoot("s1").withParentDimension("Sentence").withLeaves("Licht").withChildDimension("Token")) //
+                    .add(aStringSequence().withRoot("s1").withParentDimension("Sentence").withLeaves("Abend").withChildDimension("Token")) //
+                    .commit();
+        } catch (final IllegalArgumentException e) {
+            /* Expected. */
+        }
+
+        writer.verifyNotCommitted();
+        writer.verifyAborted();
+    }
+
+    @Test
+    public void addChildrenOfMixedDimensionsWithDeepChecks() {
+
+        final WritingMock writer = WritingMock.ofWriting();
+        final BackendMock backend = BackendMock.ofBackend().writing(writer);
+        final Graph graph = new ValidatingEmbeddedBackend(backend.getMock(), true);
+        try {
+            graph.writer(false) //
+                    .add(aStringSequence().withRoot("s1").withParentDimension("Sentence").withLeaves("Licht").withChildDimension("Token")) //
+                    .add(aStringSequence().withRoot("s2").withParentDimension("Sentence").withLeaves("Licht").withChildDimension("Lemma")) //
+                    .commit();
+        } catch (final IllegalArgumentException e) {
+            /* Expected. */
+        }
+
+        writer.verifyNotCommitted();
+        writer.verifyAborted();
+    }
+
+    @Test
+    public void addIdentifiersOfMixedTypesWithDeepChecks() {
+
+        final WritingMock writer = WritingMock.ofWriting();
+        final BackendMock backend = BackendMock.ofBackend().writing(writer);
+        final Graph graph = new ValidatingEmbeddedBackend(backend.getMock(), true);
+        try {
+            graph.writer(false) //
+                    .add(aStringSequence().withRoot("s1").withParentDimension("Sentence").withLeaves("7").withChildDimension("Token")) //
+                    .add(anIntegerSequence().withRoot(2).withParentDimension("Sentence").withLeaves(7).withChildDimension("Token")) //
+                    .commit();
+        } catch (final IllegalArgumentException e) {
+            /* Expected. */
+        }
+
+        writer.verifyNotCommitted();
+        writer.verifyAborted();
+    }
+
+    @Test
+    public void addIntSequencesAmongStringIdentifiersWithDeepChecks() {
+
+        final WritingMock writer = WritingMock.ofWriting();
+        final BackendMock backend = BackendMock.ofBackend().writing(writer);
+        final Graph graph = new ValidatingEmbeddedBackend(backend.getMock(), true);
+        try {
+            graph.writer(false) //
+                    .add(aStringSequence().withRoot("s1").withParentDimension("Sentence").withLeaves("7").withChildDimension("Token")) //
+                    .add(anIntSequence().withRoot(2).withParentDimension("Paragraph").withLeaves(7).withChildDimension("Token")) //
+                    .commit();
+        } catch (final IllegalArgumentException e) {
+            /* Expected. */
+        }
+
+        writer.verifyNotCommitted();
+        writer.verifyAborted();
+    }
+
+    @Test
+    public void addIntAndIntegerSequencesWithDeepChecks() {
+
+        final WritingMock writer = WritingMock.ofWriting();
+        final BackendMock backend = BackendMock.ofBackend().writing(writer);
+        final Graph graph = new ValidatingEmbeddedBackend(backend.getMock(), true);
+        graph.writer(false) //
+                .add(anIntSequence().withRoot(1).withParentDimension("Sentence").withLeaves(7, 8).withChildDimension("Token")) //
+                .add(anIntegerSequence().withRoot(2).withParentDimension("Sentence").withLeaves(7).withChildDimension("Token")) //
+                .commit();
+
+        writer.verifyCommitted();
+    }
+
+    @Test
+    public void addSequenceTreesOnTheHappyPathWithDeepChecks() {
+
+        final WritingMock writer = WritingMock.ofWriting();
+        final BackendMock backend = BackendMock.ofBackend().writingInBatchMode(writer);
+        final Graph graph = new ValidatingEmbeddedBackend(backend.getMock(), true);
+        graph.writer(true) //
+                .add(aStringSequence().withRoot("s1").withParentDimension("Sentence").withLeaves("Und", "es", "ward", "Licht").withChildDimension("Token")) //
+                .add(aStringSequence().withRoot("s2").withParentDimension("Sentence").withLeaves("Und", "es", "ward", "Abend").withChildDimension("Token")) //
+                .add(aStringSequence().withRoot("d1").withParentDimension("Document").withLeaves("s1", "s2").withChildDimension("Sentence")) //
+                .commit();
+
+        writer.verifyCommitted();
+    }
 }
\ No newline at end of file
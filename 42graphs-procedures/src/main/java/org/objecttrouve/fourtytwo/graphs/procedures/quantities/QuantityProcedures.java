@@ -33,10 +33,14 @@ import org.neo4j.procedure.Name;
 import org.neo4j.procedure.Procedure;
 
 import javax.annotation.Nonnull;
+import java.util.Map;
 import java.util.stream.Stream;
 
 import static java.lang.String.format;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonMap;
 import static java.util.stream.Stream.empty;
+import static org.neo4j.helpers.collection.MapUtil.map;
 import static org.neo4j.procedure.Mode.READ;
 
 public class QuantityProcedures {
@@ -53,9 +57,9 @@ public class QuantityProcedures {
     private enum Query {
         countAllValues("MATCH (n:%s) RETURN count(n)", "count(n)"),
         countAllOccurrences("MATCH (l:%s)-[r]->(p:%s) RETURN count(r)", "count(r)"),
-        countOccurrences("MATCH (l:%s{identifier:'%s'})-[r]->(p:%s) RETURN count(r)", "count(r)"),
-        countNeighbours("MATCH (:%s{identifier:'%s'})-[spos]->(:%s)<-[vpos]-(neighbour:%s) " +
-                               " WHERE vpos.position=spos.position+%s RETURN count(distinct neighbour)", "count(distinct neighbour)")
+        countOccurrences("MATCH (l:%s{identifier:$value})-[r]->(p:%s) RETURN count(r)", "count(r)"),
+        countNeighbours("MATCH (:%s{identifier:$self})-[spos]->(:%s)<-[vpos]-(neighbour:%s) " +
+                               " WHERE vpos.position=spos.position+$vicinity RETURN count(distinct neighbour)", "count(distinct neighbour)")
         ;
         final String template;
         final String resultKey;
@@ -82,7 +86,7 @@ public class QuantityProcedures {
     @Procedure(name = procCountAllValues, mode = READ)
     @Description("Counts the value nodes in the given dimension.")
     public Stream<LongQuantityRecord> countAllValues(@Name("dimension") @Nonnull final String dimensionName) {
-        return execute(Query.countAllValues, dimensionName);
+        return execute(Query.countAllValues, emptyMap(), dimensionName);
     }
 
     @SuppressWarnings("unused")
@@ -92,7 +96,7 @@ public class QuantityProcedures {
         @Name("parentDimension") final String parentDimensionName,
         @Name("childDimension")final String childDimensionName
     ) {
-        return execute(Query.countAllOccurrences, childDimensionName, parentDimensionName);
+        return execute(Query.countAllOccurrences, emptyMap(), childDimensionName, parentDimensionName);
     }
 
 
@@ -105,7 +109,7 @@ public class QuantityProcedures {
         @Name("childDimension")final String childDimensionName
 
     ){
-        return execute(Query.countOccurrences, childDimensionName, value, parentDimensionName);
+        return execute(Query.countOccurrences, singletonMap("value", value), childDimensionName, parentDimensionName);
 
     }
 
@@ -118,17 +122,18 @@ public class QuantityProcedures {
         @Name("childDimension") final String childDimension,
         @Name("vicinity") final long vicinity
     ) {
-        return execute(Query.countNeighbours, childDimension, self, parentDimension, childDimension, vicinity);
+        return execute(Query.countNeighbours, map("self", self, "vicinity", vicinity), childDimension, parentDimension, childDimension);
     }
 
 
-    private Stream<LongQuantityRecord> execute(final Query q, final Object... args){
-        return executeLongQuery(q.str(args), q.resultKey);
+    /* Values go in as parameters, so the plans are cached and can seek the identifier index. */
+    private Stream<LongQuantityRecord> execute(final Query q, final Map<String, Object> parameters, final Object... labels){
+        return executeLongQuery(q.str(labels), parameters, q.resultKey);
     }
 
-    private Stream<LongQuantityRecord> executeLongQuery(final String query, final String resultKey) {
-        log.debug("Executing query '%s'...", query);
-        final Result result = db.execute(query);
+    private Stream<LongQuantityRecord> executeLongQuery(final String query, final Map<String, Object> parameters, final String resultKey) {
+        log.debug("Executing query '%s' with %s...", query, parameters);
+        final Result result = db.execute(query, parameters);
         if (!result.hasNext()) {
             return empty();
         }
@@ -0,0 +1,53 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 objecttrouve.org <un.object.trouve@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.objecttrouve.fourtytwo.graphs.procedures.values;
+
+import org.neo4j.driver.v1.Record;
+import org.neo4j.driver.v1.Value;
+
+import static java.util.Optional.ofNullable;
+
+@SuppressWarnings("WeakerAccess")
+public class SymbolRecord {
+
+    public static final String keySymbol = "symbol";
+
+    public static SymbolRecord fromNeoRecord(final Record neoRecord) {
+        return new SymbolRecord(ofNullable(neoRecord)
+            .map(nr -> nr.get(keySymbol))
+            .map(Value::asLong)
+            .orElse(0L));
+    }
+
+    public final long symbol;
+
+    SymbolRecord(final long symbol) {
+        this.symbol = symbol;
+    }
+
+    public long getSymbol() {
+        return symbol;
+    }
+}
@@ -41,7 +41,10 @@ import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 import static java.lang.String.format;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonMap;
 import static java.util.stream.Stream.empty;
+import static org.neo4j.helpers.collection.MapUtil.map;
 import static org.neo4j.procedure.Mode.READ;
 
 public class ValueProcedures {
@@ -50,12 +53,18 @@ public class ValueProcedures {
     public static final String procRetrieveAllValues = "org.objecttrouve.fourtytwo.retrieveAllValues";
     @SuppressWarnings("WeakerAccess")
     public static final String procRetrieveNeighbours = "org.objecttrouve.fourtytwo.retrieveNeighbours";
+    @SuppressWarnings("WeakerAccess")
+    public static final String procRetrieveValueOfSymbol = "org.objecttrouve.fourtytwo.retrieveValueOfSymbol";
+    @SuppressWarnings("WeakerAccess")
+    public static final String procRetrieveSymbol = "org.objecttrouve.fourtytwo.retrieveSymbol";
 
     private enum Query {
         retrieveAllValues("MATCH (n:%s) RETURN n.identifier", "n.identifier"),
         retrieveNeighbours("" +
-            "MATCH (:%s{identifier:'%s'})-[spos]->(:%s)<-[vpos]-(neighbour:%s) " +
-            " WHERE vpos.position=spos.position+%s RETURN DISTINCT neighbour", "neighbour"),;
+            "MATCH (:%s{identifier:$self})-[spos]->(:%s)<-[vpos]-(neighbour:%s) " +
+            " WHERE vpos.position=spos.position+$vicinity RETURN DISTINCT neighbour", "neighbour"),
+        retrieveValueOfSymbol("MATCH (n:%s{symbol:$symbol}) RETURN n.identifier", "n.identifier"),
+        retrieveSymbol("MATCH (n:%s{identifier:$value}) WHERE exists(n.symbol) RETURN n.symbol", "n.symbol"),;
         final String template;
         final String resultKey;
 
@@ -79,7 +88,7 @@ public class ValueProcedures {
     @Procedure(name = procRetrieveAllValues, mode = READ)
     @Description("Returns all values in the given dimension.")
     public Stream<StringValueRecord> retrieveAllValues(@Name("dimension") final String dimension) {
-        return execute(Query.retrieveAllValues, dimension);
+        return execute(Query.retrieveAllValues, emptyMap(), dimension);
     }
 
     @SuppressWarnings("unused")
@@ -91,16 +100,45 @@ public class ValueProcedures {
         @Name("childDimension") final String childDimension,
         @Name("vicinity") final long vicinity
     ) {
-        return execute(Query.retrieveNeighbours, childDimension, self, parentDimension, childDimension, vicinity);
+        return execute(Query.retrieveNeighbours, map("self", self, "vicinity", vicinity), childDimension, parentDimension, childDimension);
+    }
+
+    @SuppressWarnings("unused")
+    @Procedure(name = procRetrieveValueOfSymbol, mode = READ)
+    @Description("Returns the value with the given symbol in the given dimension, if the graph was written with a symbol table.")
+    public Stream<StringValueRecord> retrieveValueOfSymbol(
+        @Name("symbol") final long symbol,
+        @Name("dimension") final String dimension
+    ) {
+        return execute(Query.retrieveValueOfSymbol, singletonMap("symbol", symbol), dimension);
+    }
+
+    @SuppressWarnings("unused")
+    @Procedure(name = procRetrieveSymbol, mode = READ)
+    @Description("Returns the symbol of the given value in the given dimension, if the graph was written with a symbol table.")
+    public Stream<SymbolRecord> retrieveSymbol(
+        @Name("value") final String value,
+        @Name("dimension") final String dimension
+    ) {
+        final Query q = Query.retrieveSymbol;
+        final String query = q.str(dimension);
+        final Map<String, Object> parameters = singletonMap("value", value);
+        log.debug("Executing query '%s' with %s...", query, parameters);
+        final Result result = db.execute(query, parameters);
+        if (!result.hasNext()) {
+            return empty();
+        }
+        return Stream.of(new SymbolRecord(((Number) result.next().get(q.resultKey)).longValue()));
     }
 
-    private Stream<StringValueRecord> execute(final Query q, final Object... args) {
-        return executeValueQuery(q.str(args), q.resultKey);
+    /* Values go in as parameters, so the plans are cached and can seek the identifier index. */
+    private Stream<StringValueRecord> execute(final Query q, final Map<String, Object> parameters, final Object... labels) {
+        return executeValueQuery(q.str(labels), parameters, q.resultKey);
     }
 
-    private Stream<StringValueRecord> executeValueQuery(final String query, final String resultKey) {
-        log.debug("Executing query '%s'...", query);
-        final Result result = db.execute(query);
+    private Stream<StringValueRecord> executeValueQuery(final String query, final Map<String, Object> parameters, final String resultKey) {
+        log.debug("Executing query '%s' with %s...", query, parameters);
+        final Result result = db.execute(query, parameters);
         if (!result.hasNext()) {
             return empty();
         }
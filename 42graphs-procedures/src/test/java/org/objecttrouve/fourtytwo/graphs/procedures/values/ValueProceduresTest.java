@@ -27,6 +27,7 @@ package org.objecttrouve.fourtytwo.graphs.procedures.values;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.neo4j.driver.v1.Config;
 import org.neo4j.driver.v1.Driver;
 import org.neo4j.driver.v1.GraphDatabase;
@@ -34,10 +35,12 @@ import org.neo4j.driver.v1.StatementResult;
 import org.neo4j.harness.junit.Neo4jRule;
 import org.objecttrouve.fourtytwo.graphs.api.Dimension;
 import org.objecttrouve.fourtytwo.graphs.api.Value;
+import org.objecttrouve.fourtytwo.graphs.backend.init.BackendSettings;
 import org.objecttrouve.fourtytwo.graphs.backend.init.EmbeddedBackend;
 
 import java.util.List;
 
+import static java.util.Collections.singletonList;
 import static java.util.Optional.ofNullable;
 import static java.util.stream.Collectors.toList;
 import static org.hamcrest.CoreMatchers.hasItem;
@@ -59,6 +62,9 @@ public class ValueProceduresTest {
     public Neo4jRule neo4j = new Neo4jRule()
         .withProcedure(ValueProcedures.class);
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     private EmbeddedBackend graph;
     private Driver driver;
 
@@ -557,9 +563,95 @@ public class ValueProceduresTest {
                 ));
     }
 
+    // --- retrieveValueOfSymbol ----------------------------------
+
+
+    @Test
+    public void retrieveValueOfSymbol__with_symbol_table() {
+
+        final EmbeddedBackend symbolGraph = new EmbeddedBackend(//
+            () -> neo4j.getGraphDatabaseService(), () -> {
+            throw new UnsupportedOperationException("Won't use it here. ");
+        }, BackendSettings.settings().withSymbolTable(folder.getRoot()));
+        symbolGraph.writer(noInit) //
+            .add( //
+                aStringSequence()//
+                    .withRoot("S") //
+                    .withParentDimension("Sentence") //
+                    .withChildDimension("Token") //
+                    .withLeaves("Am", "Anfang", "war", "das", "Wort") //
+            ) //
+            .commit();
+
+        final List<Value<String>> tokenNodes = values(callRetrieveValueOfSymbol(1, "Token"));
+
+        assertThat(tokenNodes.size(), is(1));
+        assertThat(tokenNodes, hasItem(aStringValue().withIdentifier("Anfang")));
+        assertThat(symbolGraph.symbols().identifier("Token", 1), is("Anfang"));
+        assertThat(values(callRetrieveValueOfSymbol(5, "Token")).size(), is(0));
+    }
+
+
+    private StatementResult callRetrieveValueOfSymbol(final long symbol, final String dimension) {
+        return driver.session()//
+            .run(//
+                "CALL " + ValueProcedures.procRetrieveValueOfSymbol + "({symbol},{dimension})", //
+                parameters("symbol", symbol, "dimension", dimension));
+    }
+
+    // --- retrieveSymbol -----------------------------------------
+
+    @Test
+    public void retrieveSymbol__with_symbol_table() {
+
+        final EmbeddedBackend symbolGraph = new EmbeddedBackend(//
+            () -> neo4j.getGraphDatabaseService(), () -> {
+            throw new UnsupportedOperationException("Won't use it here. ");
+        }, BackendSettings.settings().withSymbolTable(folder.getRoot()));
+        symbolGraph.writer(noInit) //
+            .add( //
+                aStringSequence()//
+                    .withRoot("S") //
+                    .withParentDimension("Sentence") //
+                    .withChildDimension("Token") //
+                    .withLeaves("Am", "Anfang", "war", "das", "Wort") //
+            ) //
+            .commit();
+
+        assertThat(symbols(callRetrieveSymbol("Wort", "Token")), is(singletonList(4L)));
+        assertThat(symbols(callRetrieveSymbol("S", "Sentence")), is(singletonList(0L)));
+        assertThat(symbols(callRetrieveSymbol("Ende", "Token")).size(), is(0));
+    }
+
+    @Test
+    public void retrieveSymbol__without_symbol_table() {
+        graph.writer(noInit) //
+            .add( //
+                aStringSequence()//
+                    .withRoot("S") //
+                    .withParentDimension("Sentence") //
+                    .withChildDimension("Token") //
+                    .withLeaves("Wort") //
+            ) //
+            .commit();
+
+        assertThat(symbols(callRetrieveSymbol("Wort", "Token")).size(), is(0));
+    }
+
+    private StatementResult callRetrieveSymbol(final String value, final String dimension) {
+        return driver.session()//
+            .run(//
+                "CALL " + ValueProcedures.procRetrieveSymbol + "({value},{dimension})", //
+                parameters("value", value, "dimension", dimension));
+    }
+
     // --- shared helpers -----------------------------------------
 
     private List<Value<String>> values(final StatementResult result) {
         return result.list().stream().map(StringValueRecord::fromNeoRecord).collect(toList());
     }
+
+    private List<Long> symbols(final StatementResult result) {
+        return result.list().stream().map(SymbolRecord::fromNeoRecord).map(SymbolRecord::getSymbol).collect(toList());
+    }
 }
\ No newline at end of file
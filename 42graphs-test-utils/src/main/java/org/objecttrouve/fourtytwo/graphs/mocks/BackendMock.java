@@ -46,4 +46,10 @@ public class BackendMock {
         return this;
     }
 
+    public BackendMock writingInBatchMode(final WritingMock writingMock){
+        final GraphWriter mock = writingMock.getMock();
+        Mockito.when(db.writer(true)).thenReturn(mock);
+        return this;
+    }
+
 }
@@ -0,0 +1,85 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 objecttrouve.org <un.object.trouve@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.objecttrouve.fourtytwo.graphs.mocks;
+
+import org.objecttrouve.fourtytwo.graphs.api.Dimension;
+import org.objecttrouve.fourtytwo.graphs.api.IntSequenceTree;
+import org.objecttrouve.fourtytwo.graphs.api.Value;
+
+/** Like {@link TestIntegerSequenceTree}, with the leaves as an {@code int[]} for the unboxed writer paths. */
+public class TestIntSequenceTree implements IntSequenceTree<Integer> {
+
+    private Integer root;
+    private String parentDimension;
+    private String childDimension;
+    private int[] leaves;
+
+    public static TestIntSequenceTree anIntSequence() {
+        return new TestIntSequenceTree();
+    }
+
+    private TestIntSequenceTree(){
+    }
+
+    public TestIntSequenceTree withRoot(final Integer root){
+        this.root = root;
+        return this;
+    }
+
+    public TestIntSequenceTree withChildDimension(final String childDimension) {
+        this.childDimension = childDimension;
+        return this;
+    }
+
+    public TestIntSequenceTree withParentDimension(final String parentDimension) {
+        this.parentDimension = parentDimension;
+        return this;
+    }
+
+    public TestIntSequenceTree withLeaves(final int... leaves){
+        this.leaves = leaves;
+        return this;
+    }
+
+    @Override
+    public Value<Integer> getRoot() {
+        return root != null ? () -> root : null;
+    }
+
+    @Override
+    public Dimension getParentDimension() {
+        return parentDimension != null ? () -> parentDimension : null;
+    }
+
+    @Override
+    public Dimension getChildDimension() {
+        return childDimension != null ? () -> childDimension : null ;
+    }
+
+    @Override
+    public int[] getIdentifiers() {
+        return leaves;
+    }
+}
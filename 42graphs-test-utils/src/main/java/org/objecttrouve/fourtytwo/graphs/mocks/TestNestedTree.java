@@ -0,0 +1,90 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 objecttrouve.org <un.object.trouve@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.objecttrouve.fourtytwo.graphs.mocks;
+
+import org.objecttrouve.fourtytwo.graphs.api.Dimension;
+import org.objecttrouve.fourtytwo.graphs.api.NestedTree;
+import org.objecttrouve.fourtytwo.graphs.api.Tree;
+import org.objecttrouve.fourtytwo.graphs.api.Value;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+public class TestNestedTree implements NestedTree<String, String> {
+
+    private String root;
+    private String parentDimension;
+    private String childDimension;
+    private List<Tree<String>> subtrees;
+
+    public static TestNestedTree aNestedTree() {
+        return new TestNestedTree();
+    }
+
+    private TestNestedTree() {
+    }
+
+    public TestNestedTree withRoot(final String root) {
+        this.root = root;
+        return this;
+    }
+
+    public TestNestedTree withChildDimension(final String childDimension) {
+        this.childDimension = childDimension;
+        return this;
+    }
+
+    public TestNestedTree withParentDimension(final String parentDimension) {
+        this.parentDimension = parentDimension;
+        return this;
+    }
+
+    @SafeVarargs
+    public final TestNestedTree withSubtrees(final Tree<String>... subtrees) {
+        this.subtrees = Arrays.asList(subtrees);
+        return this;
+    }
+
+    @Override
+    public Value<String> getRoot() {
+        return root != null ? () -> root : null;
+    }
+
+    @Override
+    public Dimension getParentDimension() {
+        return parentDimension != null ? () -> parentDimension : null;
+    }
+
+    @Override
+    public Dimension getChildDimension() {
+        return childDimension != null ? () -> childDimension : null;
+    }
+
+    @Override
+    public Iterator<? extends Tree<String>> getSubtrees() {
+        return subtrees != null ? subtrees.iterator() : null;
+    }
+}
@@ -76,4 +76,8 @@ public class WritingMock {
     public void verifyCommitted() {
         Mockito.verify(graphWriter, times(1)).commit();
     }
+
+    public void verifyNotCommitted() {
+        Mockito.verify(graphWriter, never()).commit();
+    }
 }